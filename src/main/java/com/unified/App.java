@@ -11,6 +11,14 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.GZIPOutputStream;
 
 import com.sun.net.httpserver.HttpServer;
 import com.sun.net.httpserver.HttpHandler;
@@ -25,7 +33,16 @@ import com.google.gson.JsonObject;
 import com.google.gson.reflect.TypeToken;
 import java.lang.reflect.Type;
 
+import com.unified.server.AdaptiveLimiter;
+import com.unified.server.AdaptiveLimiter.Priority;
 import com.unified.server.CloudStore;
+import com.unified.server.FirestoreColdSegmentStore;
+import com.unified.server.FirestoreInboxSink;
+import com.unified.server.PasswordHashingPool;
+import com.unified.server.RateLimiter;
+import com.unified.server.RetentionSweeper;
+import com.unified.server.SessionTokens;
+import com.unified.server.SubscriptionBroker;
 
 /**
  * Main application class for the Unified messaging system.
@@ -34,11 +51,37 @@ import com.unified.server.CloudStore;
 public class App {
     private static final Scanner scanner = new Scanner(System.in);
     private static User currentUser = null;
-    private static Map<String, User> users = new HashMap<>();
-    private static Map<String, Channel> channels = new HashMap<>();
+    /** Written by concurrent /api/register handlers while the CLI and send path read it. */
+    private static final Map<String, User> users = new ConcurrentHashMap<>();
+    private static final UserDirectory directory = new UserDirectory();
+    private static Map<String, Channel> channels = new ConcurrentHashMap<>();
     private static boolean isRunning = true;
 
     private static final Gson GSON = new Gson();
+    private static final SubscriptionBroker BROKER = new SubscriptionBroker();
+    private static final LaneScheduler LANES = new LaneScheduler(
+            Integer.parseInt(System.getenv().getOrDefault("UNIFIED_DELIVERY_THREADS", "8")));
+    private static final AnnouncementFanout FANOUT =
+            new AnnouncementFanout(new FirestoreInboxSink(), LANES, AnnouncementFanout.DEFAULT_CHUNK_SIZE);
+    private static final PasswordHashingPool HASHING = new PasswordHashingPool(
+            Integer.parseInt(System.getenv().getOrDefault("UNIFIED_HASH_THREADS",
+                    String.valueOf(Math.max(1, Runtime.getRuntime().availableProcessors() / 2)))),
+            Integer.parseInt(System.getenv().getOrDefault("UNIFIED_HASH_QUEUE", "64")));
+    /** Adaptive in-flight limit on Firestore work; sheds LOW before NORMAL before CRITICAL. */
+    private static final AdaptiveLimiter STORE = AdaptiveLimiter.fromEnvironment();
+    private static final SessionTokens SESSIONS = SessionTokens.fromEnvironment();
+    /** When set, requests acting as a user must carry that user's session token. */
+    private static final boolean REQUIRE_AUTH = Boolean.parseBoolean(System.getenv().getOrDefault("UNIFIED_REQUIRE_AUTH", "false"));
+    // Token-bucket limits per route, "permitsPerSecond:burst" or "off"
+    private static final RateLimiter LOGIN_BY_IP = RateLimiter.fromEnvironment("login-ip", "UNIFIED_RATE_LOGIN_IP", "0.5:20");
+    private static final RateLimiter LOGIN_BY_USER = RateLimiter.fromEnvironment("login-user", "UNIFIED_RATE_LOGIN_USER", "0.1:5");
+    private static final RateLimiter REGISTER_BY_IP = RateLimiter.fromEnvironment("register-ip", "UNIFIED_RATE_REGISTER_IP", "0.05:5");
+    private static final RateLimiter SEND_BY_USER = RateLimiter.fromEnvironment("send-user", "UNIFIED_RATE_SEND_USER", "5:20");
+    private static final RateLimiter MESSAGES_BY_IP = RateLimiter.fromEnvironment("messages-ip", "UNIFIED_RATE_MESSAGES_IP", "50:100");
+    /** Honour X-Forwarded-For for the client address; only safe behind a proxy that sets it. */
+    private static final boolean TRUST_FORWARDED = Boolean.parseBoolean(System.getenv().getOrDefault("UNIFIED_TRUST_FORWARDED", "false"));
+    /** How long a login waits for its hash before giving up with 503. */
+    private static final long HASH_TIMEOUT_MS = 10_000;
     private static final Type MAP_STRING_OBJECT =
             new TypeToken<Map<String, Object>>() {}.getType();
 
@@ -47,6 +90,7 @@ public class App {
     static class LoginDto    { String username, password; }
 
     public static void main(String[] args) throws IOException {
+        configurePasswordHashing();
         loadUsers();
 
         // HTTP Server
@@ -79,25 +123,29 @@ public class App {
         // POST /api/register
         server.createContext("/api/register", ex -> {
             if (handleCorsPreflight(ex)) return;
+            if (rateLimited(ex, REGISTER_BY_IP, clientAddress(ex))) return;
             try {
                 String body = new String(ex.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
                 RegisterDto dto = GSON.fromJson(body, RegisterDto.class);
 
-                // Build a Student domain object (password hashing should be handled in Student/PasswordManager)
-                Student s = new Student(dto.username, dto.fullName, dto.email, dto.password, dto.studentId);
+                // Hash on the dedicated pool so a registration burst can't stall the HTTP workers
+                String hash = HASHING.hash(dto.password).get(HASH_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                Student s = new Student(UUID.randomUUID().toString(), dto.username, dto.fullName, dto.email,
+                        hash, dto.studentId);
 
                 // Save locally (JSON) and to Firestore
                 users.put(s.getUserId(), s);
-                var r = CloudStore.saveUser(s);
+                directory.add(s);
+                var r = STORE.call(Priority.NORMAL, () -> CloudStore.saveUser(s));
                 if (!r.ok) {
                     writeJson(ex, 500, Map.of("ok", false, "error", r.error));
                     return;
                 }
-                writeJson(ex, 200, Map.of("ok", true, "userId", s.getUserId()));
-
                 try { saveUsers(); } catch (IOException ignore) {}
 
                 writeJson(ex, 200, Map.of("ok", true, "userId", s.getUserId()));
+            } catch (RejectedExecutionException | TimeoutException e) {
+                busy(ex);
             } catch (Exception e) {
                 writeJson(ex, 500, Map.of("ok", false, "error", String.valueOf(e)));
             }
@@ -106,23 +154,46 @@ public class App {
         // POST /api/login
         server.createContext("/api/login", ex -> {
             if (handleCorsPreflight(ex)) return;
+            if (rateLimited(ex, LOGIN_BY_IP, clientAddress(ex))) return;
             try {
                 String body = new String(ex.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
                 LoginDto dto = GSON.fromJson(body, LoginDto.class);
+                if (rateLimited(ex, LOGIN_BY_USER, dto.username)) return;
 
                 // Fetch student by username from Firestore
-                Student s = CloudStore.getStudentByUsername(dto.username);
-                if (s != null && s.verifyPassword(dto.password)) {
-                    writeJson(ex, 200, Map.of("ok", true, "userId", s.getUserId(), "fullName", s.getFullName()));
+                Student s = STORE.call(Priority.CRITICAL, () -> CloudStore.getStudentByUsername(dto.username));
+                if (s != null && HASHING.verify(s, dto.password).get(HASH_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    // Upgrade legacy or under-cost hashes now that we know the password
+                    HASHING.rehashLater(s, dto.password, u -> {
+                        // Best effort: a shed upgrade is retried on the next login
+                        try (var permit = STORE.tryAcquire(Priority.LOW)) {
+                            if (permit != null) CloudStore.updatePasswordHash(s);
+                        }
+                    });
+                    writeJson(ex, 200, Map.of("ok", true, "userId", s.getUserId(), "fullName", s.getFullName(),
+                            "token", SESSIONS.issue(s.getUserId()), "expiresIn", SESSIONS.getTtl().toSeconds()));
                 } else {
                     writeJson(ex, 401, Map.of("ok", false, "error", "Invalid credentials"));
                 }
+            } catch (RejectedExecutionException | TimeoutException e) {
+                busy(ex);
             } catch (Exception e) {
                 writeJson(ex, 500, Map.of("ok", false, "error", String.valueOf(e)));
             }
         });
 
-        // GET /api/channels?userId=...
+        // POST /api/logout  (Authorization: Bearer <token>)
+        server.createContext("/api/logout", ex -> {
+            if (handleCorsPreflight(ex)) return;
+            if (!"POST".equalsIgnoreCase(ex.getRequestMethod())) {
+                writeJson(ex, 405, Map.of("ok", false, "error", "Method not allowed"));
+                return;
+            }
+            boolean revoked = SESSIONS.revoke(bearerToken(ex));
+            writeJson(ex, revoked ? 200 : 401, revoked ? Map.of("ok", true) : Map.of("ok", false, "error", "Invalid token"));
+        });
+
+        // GET /api/channels?userId=...[&dmWith=otherUserId]
         // POST /api/channels {ownerId,name,type,participants:[...],description?,maxParticipants?,isPrivate?}
         
 server.createContext("/api/channels", ex -> {
@@ -132,19 +203,32 @@ server.createContext("/api/channels", ex -> {
             String name   = query(ex, "name");
             String prefix = query(ex, "prefix");
             String userId = query(ex, "userId");
+            String dmWith = query(ex, "dmWith");
+            if (userId != null && !authorize(ex, userId)) return;
 
+            if (dmWith != null && userId != null) {
+                String channelId = STORE.call(Priority.NORMAL, () -> CloudStore.findDirectChannel(userId, dmWith));
+                writeJson(ex, 200, channelId == null ? Map.of("ok", true) : Map.of("ok", true, "channelId", channelId));
+                return;
+            }
             if (name != null) {
-                var ch = CloudStore.findChannelByExactName(name);
+                var ch = STORE.call(Priority.NORMAL, () -> CloudStore.findChannelByExactName(name));
                 writeJson(ex, 200, Map.of("ok", true, "channel", ch));
                 return;
             }
             if (prefix != null) {
-                var list = CloudStore.searchChannelsByPrefix(prefix);
-                writeJson(ex, 200, Map.of("ok", true, "channels", list));
+                int limit = Integer.parseInt(Optional.ofNullable(query(ex, "limit")).orElse("50"));
+                String after = query(ex, "after");
+                var page = STORE.call(Priority.LOW, () -> CloudStore.searchChannelsByPrefix(prefix, limit, after));
+                Map<String,Object> resp = new LinkedHashMap<>();
+                resp.put("ok", true);
+                resp.put("channels", page.channels);
+                if (page.nextCursor != null) resp.put("next", page.nextCursor);
+                writeJson(ex, 200, resp);
                 return;
             }
             if (userId != null) {
-                var list = CloudStore.listChannelsByUser(userId);
+                var list = STORE.call(Priority.NORMAL, () -> CloudStore.listChannelsByUser(userId));
                 writeJson(ex, 200, Map.of("ok", true, "channels", list));
                 return;
             }
@@ -152,19 +236,37 @@ server.createContext("/api/channels", ex -> {
         } else if ("POST".equalsIgnoreCase(ex.getRequestMethod())) {
             String body = new String(ex.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
             Map<String,Object> doc = GSON.fromJson(body, MAP_STRING_OBJECT);
+            if (!authorize(ex, (String) doc.get("ownerId"))) return;
             doc.putIfAbsent("participants", new ArrayList<String>());
-            String id = CloudStore.createChannel(doc);
+            if ("DIRECT".equalsIgnoreCase(String.valueOf(doc.get("type")))) {
+                // Reuse the existing DM for this pair instead of fragmenting history across duplicates
+                Set<String> pair = new LinkedHashSet<>();
+                if (doc.get("ownerId") != null) pair.add(String.valueOf(doc.get("ownerId")));
+                for (Object p : (List<?>) doc.get("participants")) pair.add(String.valueOf(p));
+                if (pair.size() != 2) {
+                    writeJson(ex, 400, Map.of("ok", false, "error", "A direct channel needs exactly two users"));
+                    return;
+                }
+                Iterator<String> it = pair.iterator();
+                String a = it.next(), b = it.next();
+                String id = STORE.call(Priority.NORMAL, () -> CloudStore.findOrCreateDirectChannel(a, b, doc));
+                writeJson(ex, 200, Map.of("ok", true, "channelId", id));
+                return;
+            }
+            String id = STORE.call(Priority.NORMAL, () -> CloudStore.createChannel(doc));
             writeJson(ex, 200, Map.of("ok", true, "channelId", id));
         } else {
             writeJson(ex, 405, Map.of("ok", false, "error", "Method not allowed"));
         }
+    } catch (RejectedExecutionException e) {
+        busy(ex);
     } catch (Exception e) {
         writeJson(ex, 500, Map.of("ok", false, "error", String.valueOf(e)));
     }
 });
 
 
-        // GET /api/messages?channelId=...
+        // GET /api/messages?channelId=...&userId=...
         // POST /api/messages {channelId,senderId,content,type?}
         
 // POST /api/channels/join {channelId, userId}
@@ -179,45 +281,406 @@ server.createContext("/api/channels/join", ex -> {
         Map<String,Object> req = GSON.fromJson(body, MAP_STRING_OBJECT);
         String channelId = (String) req.get("channelId");
         String userId    = (String) req.get("userId");
-        CloudStore.addParticipant(channelId, userId);
+        if (!authorize(ex, userId)) return;
+        STORE.call(Priority.NORMAL, () -> { CloudStore.addParticipant(channelId, userId); return null; });
         writeJson(ex, 200, Map.of("ok", true));
+    } catch (RejectedExecutionException e) {
+        busy(ex);
+    } catch (Exception e) {
+        writeJson(ex, 500, Map.of("ok", false, "error", String.valueOf(e)));
+    }
+});
+
+// GET /api/channels/export?channelId=...&userId=...&format=jsonl|txt&gzip=true
+server.createContext("/api/channels/export", ex -> {
+    if (handleCorsPreflight(ex)) return;
+    if (!"GET".equalsIgnoreCase(ex.getRequestMethod())) {
+        writeJson(ex, 405, Map.of("ok", false, "error", "Method not allowed"));
+        return;
+    }
+    String channelId = query(ex, "channelId");
+    String userId = query(ex, "userId");
+    String format = Optional.ofNullable(query(ex, "format")).orElse("jsonl").toLowerCase();
+    boolean gzip = "true".equalsIgnoreCase(query(ex, "gzip"));
+    if (channelId == null || channelId.isBlank()) {
+        writeJson(ex, 400, Map.of("ok", false, "error", "Missing query: channelId"));
+        return;
+    }
+    if (!format.equals("jsonl") && !format.equals("txt")) {
+        writeJson(ex, 400, Map.of("ok", false, "error", "Unsupported format: " + format));
+        return;
+    }
+    if (userId == null || userId.isBlank()) {
+        writeJson(ex, 400, Map.of("ok", false, "error", "Missing query: userId"));
+        return;
+    }
+    if (!authorize(ex, userId)) return;
+    // Only members may export, and the channel must exist before any of the body is committed
+    try {
+        Set<String> participants = STORE.call(Priority.LOW, () -> CloudStore.findChannelParticipants(channelId));
+        if (participants == null) {
+            writeJson(ex, 404, Map.of("ok", false, "error", "Channel not found"));
+            return;
+        }
+        if (!participants.contains(userId)) {
+            writeJson(ex, 403, Map.of("ok", false, "error", "Not a member of this channel"));
+            return;
+        }
+    } catch (RejectedExecutionException e) {
+        busy(ex);
+        return;
     } catch (Exception e) {
         writeJson(ex, 500, Map.of("ok", false, "error", String.valueOf(e)));
+        return;
+    }
+    // A long stream by design: admitted as LOW, but kept out of the latency estimate
+    try (var permit = STORE.tryAcquire(Priority.LOW)) {
+        if (permit == null) {
+            busy(ex);
+            return;
+        }
+        permit.ignoreLatency();
+        streamChannelExport(ex, channelId, format, gzip);
     }
 });
 
 server.createContext("/api/messages", ex -> {
             if (handleCorsPreflight(ex)) return;
+            if (rateLimited(ex, MESSAGES_BY_IP, clientAddress(ex))) return;
             try {
                 if ("GET".equalsIgnoreCase(ex.getRequestMethod())) {
                     String channelId = query(ex, "channelId");
-                    var msgs = CloudStore.listMessages(channelId);
+                    String userId = query(ex, "userId");
+                    if (channelId == null || channelId.isBlank() || userId == null || userId.isBlank()) {
+                        writeJson(ex, 400, Map.of("ok", false, "error", "Missing query: channelId and userId"));
+                        return;
+                    }
+                    if (!authorize(ex, userId)) return;
+                    // Same rule as export: only members read a channel's history
+                    Set<String> participants = STORE.call(Priority.NORMAL, () -> CloudStore.findChannelParticipants(channelId));
+                    if (participants == null) {
+                        writeJson(ex, 404, Map.of("ok", false, "error", "Channel not found"));
+                        return;
+                    }
+                    if (!participants.contains(userId)) {
+                        writeJson(ex, 403, Map.of("ok", false, "error", "Not a member of this channel"));
+                        return;
+                    }
+                    var msgs = STORE.call(Priority.NORMAL, () -> CloudStore.listMessages(channelId));
                     writeJson(ex, 200, Map.of("ok", true, "messages", msgs));
                 } else if ("POST".equalsIgnoreCase(ex.getRequestMethod())) {
                     String body = new String(ex.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
                     Map<String,Object> req = GSON.fromJson(body, MAP_STRING_OBJECT);
 
                     String channelId = (String) req.get("channelId");
+                    if (!authorize(ex, (String) req.get("senderId"))) return;
+                    if (rateLimited(ex, SEND_BY_USER, (String) req.get("senderId"))) return;
                     Map<String,Object> msgDoc = new HashMap<>();
                     msgDoc.put("senderId", req.get("senderId"));
                     msgDoc.put("content",  req.get("content"));
                     msgDoc.put("type",     req.getOrDefault("type","text"));
 
-                    String messageId = CloudStore.addMessage(channelId, msgDoc);
-                    writeJson(ex, 200, Map.of("ok", true, "messageId", messageId));
+                    // clientMessageId makes retries idempotent: a repeat returns the stored message and is not re-published
+                    Object clientMessageId = req.get("clientMessageId");
+                    if (clientMessageId != null && !(clientMessageId instanceof String)) {
+                        writeJson(ex, 400, Map.of("ok", false, "error", "clientMessageId must be a string"));
+                        return;
+                    }
+                    // Only the channel's owner or instructor may announce; checked before anything is stored
+                    boolean announcement = "announcement".equalsIgnoreCase(String.valueOf(msgDoc.get("type")));
+                    Map<String,Object> channel = null;
+                    if (announcement) {
+                        if (channelId == null || channelId.isBlank()) {
+                            writeJson(ex, 400, Map.of("ok", false, "error", "Missing channelId"));
+                            return;
+                        }
+                        channel = STORE.call(Priority.NORMAL,
+                                () -> CloudStore.getChannels(List.of(channelId))).get(channelId);
+                        if (channel == null) {
+                            writeJson(ex, 404, Map.of("ok", false, "error", "Channel not found"));
+                            return;
+                        }
+                        if (!mayAnnounce(channel, (String) req.get("senderId"))) {
+                            writeJson(ex, 403, Map.of("ok", false, "error", "Not allowed to announce in " + channelId));
+                            return;
+                        }
+                    }
+                    CloudStore.MessageAck ack;
+                    try {
+                        ack = STORE.call(Priority.CRITICAL, () -> CloudStore.addMessage(channelId, (String) clientMessageId, msgDoc));
+                    } catch (IllegalArgumentException e) {
+                        // A malformed clientMessageId or channelId is the caller's mistake, not a server error
+                        writeJson(ex, 400, Map.of("ok", false, "error", String.valueOf(e.getMessage())));
+                        return;
+                    }
+                    String messageId = ack.messageId;
+                    if (ack.duplicate) {
+                        writeJson(ex, 200, Map.of("ok", true, "messageId", messageId, "createdAt", ack.createdAt, "duplicate", true));
+                        return;
+                    }
+                    Map<String,Object> event = new LinkedHashMap<>(msgDoc);
+                    event.put("messageId", messageId);
+                    event.put("channelId", channelId);
+                    // Live delivery is queued by priority; if the lane is full the request thread does it itself.
+                    Runnable publish = () -> BROKER.publish(channelId, event);
+                    DeliveryLane lane = DeliveryLane.of(String.valueOf(msgDoc.get("type")), Boolean.TRUE.equals(req.get("important")));
+                    if (!LANES.submit(lane, publish)) publish.run();
+                    if (announcement) {
+                        // Inbox delivery runs in the background; progress via /api/announcements/delivery
+                        var delivery = FANOUT.deliver(toAnnouncement(messageId, channelId, req),
+                                announcementRecipients(channel, (String) req.get("senderId")));
+                        writeJson(ex, 200, Map.of("ok", true, "messageId", messageId, "recipients", delivery.getTotal()));
+                        return;
+                    }
+                    writeJson(ex, 200, Map.of("ok", true, "messageId", messageId, "createdAt", ack.createdAt));
                 } else {
                     writeJson(ex, 405, Map.of("ok", false, "error", "Method not allowed"));
                 }
+            } catch (RejectedExecutionException e) {
+                busy(ex);
             } catch (Exception e) {
                 writeJson(ex, 500, Map.of("ok", false, "error", String.valueOf(e)));
             }
         });
 
-        // Start server
-        server.setExecutor(null);
+        // POST /api/announcements/crosspost {channelIds:[...], senderId, content, courseId?, courseName?, important?, announcementType?}
+        server.createContext("/api/announcements/crosspost", ex -> {
+            if (handleCorsPreflight(ex)) return;
+            try {
+                if (!"POST".equalsIgnoreCase(ex.getRequestMethod())) {
+                    writeJson(ex, 405, Map.of("ok", false, "error", "Method not allowed"));
+                    return;
+                }
+                String body = new String(ex.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+                Map<String,Object> req = GSON.fromJson(body, MAP_STRING_OBJECT);
+                if (!authorize(ex, (String) req.get("senderId"))) return;
+                String senderId = (String) req.get("senderId");
+                Set<String> ids = new LinkedHashSet<>();
+                if (req.get("channelIds") instanceof List) {
+                    for (Object id : (List<?>) req.get("channelIds")) ids.add(String.valueOf(id));
+                }
+                List<String> channelIds = new ArrayList<>(ids);
+                if (channelIds.isEmpty()) {
+                    writeJson(ex, 400, Map.of("ok", false, "error", "Missing channelIds"));
+                    return;
+                }
+                if (channelIds.size() > CloudStore.MAX_CROSSPOST_CHANNELS) {
+                    writeJson(ex, 400, Map.of("ok", false, "error", "At most " + CloudStore.MAX_CROSSPOST_CHANNELS + " channels per cross-post"));
+                    return;
+                }
+                // One read for every section: existence, permission and recipients all come from it
+                var sections = STORE.call(Priority.NORMAL, () -> CloudStore.getChannels(channelIds));
+                for (String channelId : channelIds) {
+                    Map<String,Object> ch = sections.get(channelId);
+                    if (ch == null) {
+                        writeJson(ex, 404, Map.of("ok", false, "error", "Channel not found: " + channelId));
+                        return;
+                    }
+                    if (!mayAnnounce(ch, senderId)) {
+                        writeJson(ex, 403, Map.of("ok", false, "error", "Not allowed to announce in " + channelId));
+                        return;
+                    }
+                }
+                Map<String,Object> doc = new LinkedHashMap<>();
+                for (String k : new String[] {"senderId", "content", "courseId", "courseName", "announcementType"}) {
+                    if (req.get(k) != null) doc.put(k, req.get(k));
+                }
+                doc.put("important", Boolean.TRUE.equals(req.get("important")));
+                String announcementId = STORE.call(Priority.NORMAL, () -> CloudStore.crossPostAnnouncement(channelIds, doc));
+
+                // One fan-out for the union of all sections: a student in two sections gets one inbox entry
+                Set<String> recipients = new LinkedHashSet<>();
+                for (Map<String,Object> ch : sections.values()) recipients.addAll(sectionRecipients(ch));
+                recipients.remove(senderId);
+                AnnouncementMessage announcement = toAnnouncement(announcementId, channelIds.get(0), req);
+                for (String channelId : channelIds) {
+                    Map<String,Object> event = new LinkedHashMap<>(doc);
+                    event.put("type", "crosspost");
+                    event.put("announcementId", announcementId);
+                    event.put("channelId", channelId);
+                    Runnable publish = () -> BROKER.publish(channelId, event);
+                    if (!LANES.submit(DeliveryLane.of(announcement), publish)) publish.run();
+                }
+                var delivery = FANOUT.deliver(announcement, recipients);
+                writeJson(ex, 200, Map.of("ok", true, "announcementId", announcementId, "recipients", delivery.getTotal()));
+            } catch (IllegalArgumentException e) {
+                writeJson(ex, 400, Map.of("ok", false, "error", String.valueOf(e.getMessage())));
+            } catch (RejectedExecutionException e) {
+                busy(ex);
+            } catch (Exception e) {
+                writeJson(ex, 500, Map.of("ok", false, "error", String.valueOf(e)));
+            }
+        });
+
+        // GET /api/announcements/delivery?messageId=...
+        server.createContext("/api/announcements/delivery", ex -> {
+            if (handleCorsPreflight(ex)) return;
+            var delivery = FANOUT.getDelivery(query(ex, "messageId"));
+            if (delivery == null) {
+                writeJson(ex, 404, Map.of("ok", false, "error", "Unknown delivery"));
+                return;
+            }
+            Map<String,Object> out = new LinkedHashMap<>(delivery.toMap());
+            out.put("ok", true);
+            writeJson(ex, 200, out);
+        });
+
+        // POST /api/subscriptions {userId, channelIds?, capacity?, policy?: DROP_OLDEST|RESYNC|DISCONNECT}
+        server.createContext("/api/subscriptions", ex -> {
+            if (handleCorsPreflight(ex)) return;
+            try {
+                if (!"POST".equalsIgnoreCase(ex.getRequestMethod())) {
+                    writeJson(ex, 405, Map.of("ok", false, "error", "Method not allowed"));
+                    return;
+                }
+                String body = new String(ex.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+                Map<String,Object> req = GSON.fromJson(body, MAP_STRING_OBJECT);
+                String userId = (String) req.get("userId");
+                if (userId == null || userId.isBlank()) {
+                    writeJson(ex, 400, Map.of("ok", false, "error", "Missing userId"));
+                    return;
+                }
+                if (!authorize(ex, userId)) return;
+                // Only channels the user belongs to; an explicit list is narrowed to those
+                List<String> channelIds = new ArrayList<>();
+                for (Map<String,Object> ch : STORE.call(Priority.NORMAL, () -> CloudStore.listChannelsByUser(userId))) channelIds.add((String) ch.get("channelId"));
+                if (req.get("channelIds") instanceof List) {
+                    Set<String> requested = new HashSet<>();
+                    for (Object id : (List<?>) req.get("channelIds")) requested.add(String.valueOf(id));
+                    channelIds.retainAll(requested);
+                }
+                int capacity = req.get("capacity") instanceof Number
+                        ? ((Number) req.get("capacity")).intValue() : SubscriptionBroker.DEFAULT_CAPACITY;
+                SubscriptionBroker.OverflowPolicy policy = SubscriptionBroker.OverflowPolicy.valueOf(
+                        String.valueOf(req.getOrDefault("policy", "DROP_OLDEST")).toUpperCase());
+                var sub = BROKER.subscribe(userId, channelIds, capacity, policy);
+                writeJson(ex, 200, Map.of("ok", true, "subscriptionId", sub.getId(), "channelIds", channelIds));
+            } catch (IllegalArgumentException e) {
+                writeJson(ex, 400, Map.of("ok", false, "error", String.valueOf(e.getMessage())));
+            } catch (RejectedExecutionException e) {
+                busy(ex);
+            } catch (Exception e) {
+                writeJson(ex, 500, Map.of("ok", false, "error", String.valueOf(e)));
+            }
+        });
+
+        // GET /api/subscriptions/poll?id=...&userId=...&max=100&waitMs=25000  (long poll)
+        server.createContext("/api/subscriptions/poll", ex -> {
+            if (handleCorsPreflight(ex)) return;
+            String userId = query(ex, "userId");
+            if (userId == null || userId.isBlank()) {
+                writeJson(ex, 400, Map.of("ok", false, "error", "Missing query: userId"));
+                return;
+            }
+            if (!authorize(ex, userId)) return;
+            var sub = BROKER.get(query(ex, "id"));
+            if (sub == null) {
+                writeJson(ex, 404, Map.of("ok", false, "error", "Unknown subscription", "closed", true));
+                return;
+            }
+            // The subscription ID alone is not a credential
+            if (!userId.equals(sub.getSubscriberId())) {
+                writeJson(ex, 403, Map.of("ok", false, "error", "Subscription belongs to another user"));
+                return;
+            }
+            int max;
+            long waitMs;
+            try {
+                max = Math.max(1, Math.min(MAX_POLL_EVENTS, Integer.parseInt(Optional.ofNullable(query(ex, "max")).orElse("100"))));
+                waitMs = Math.max(0, Math.min(MAX_POLL_WAIT_MS, Long.parseLong(Optional.ofNullable(query(ex, "waitMs")).orElse("25000"))));
+            } catch (NumberFormatException e) {
+                writeJson(ex, 400, Map.of("ok", false, "error", "max and waitMs must be numbers"));
+                return;
+            }
+            // Parked polls hold an HTTP worker each; past the cap, answer at once with whatever is buffered
+            boolean parked = waitMs > 0 && PARKED_POLLS.tryAcquire();
+            try {
+                var batch = sub.poll(max, parked ? waitMs : 0);
+                writeJson(ex, 200, Map.of("ok", true, "events", batch.events, "resync", batch.resync, "closed", batch.closed));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                writeJson(ex, 503, Map.of("ok", false, "error", "Interrupted"));
+            } finally {
+                if (parked) PARKED_POLLS.release();
+            }
+        });
+
+        // GET /api/lanes/metrics
+        server.createContext("/api/lanes/metrics", ex -> {
+            if (handleCorsPreflight(ex)) return;
+            writeJson(ex, 200, LANES.metrics());
+        });
+
+        // GET /api/hashing/metrics
+        server.createContext("/api/hashing/metrics", ex -> {
+            if (handleCorsPreflight(ex)) return;
+            writeJson(ex, 200, HASHING.metrics());
+        });
+
+        // GET /api/ratelimits/metrics
+        server.createContext("/api/ratelimits/metrics", ex -> {
+            if (handleCorsPreflight(ex)) return;
+            List<Map<String,Object>> limits = new ArrayList<>();
+            for (RateLimiter l : new RateLimiter[] {LOGIN_BY_IP, LOGIN_BY_USER, REGISTER_BY_IP, SEND_BY_USER, MESSAGES_BY_IP}) {
+                if (l != null) limits.add(l.metrics());
+            }
+            writeJson(ex, 200, Map.of("limits", limits));
+        });
+
+        // GET /api/store/metrics
+        server.createContext("/api/store/metrics", ex -> {
+            if (handleCorsPreflight(ex)) return;
+            writeJson(ex, 200, STORE.metrics());
+        });
+
+        // GET /api/sessions/metrics
+        server.createContext("/api/sessions/metrics", ex -> {
+            if (handleCorsPreflight(ex)) return;
+            writeJson(ex, 200, SESSIONS.metrics());
+        });
+
+        // GET /api/subscriptions/metrics
+        server.createContext("/api/subscriptions/metrics", ex -> {
+            if (handleCorsPreflight(ex)) return;
+            writeJson(ex, 200, BROKER.metrics());
+        });
+
+        // Start server; long polls park a worker each (at most PARKED_POLLS of them), so a single thread won't do
+        server.setExecutor(Executors.newFixedThreadPool(HTTP_THREADS));
+        BROKER.startReaper(Duration.ofMillis(MAX_POLL_WAIT_MS * 4));
         server.start();
         System.out.println("📡 HTTP API server started on port " + server.getAddress().getPort());
 
+        // Channels created before isPrivate was always written are invisible to discovery until backfilled
+        Thread backfill = new Thread(() -> {
+            try {
+                int n = CloudStore.backfillChannelVisibility();
+                if (n > 0) System.out.println("🔎 Backfilled isPrivate on " + n + " channels");
+            } catch (RuntimeException e) {
+                System.err.println("Channel visibility backfill failed: " + e.getMessage());
+            }
+        }, "channel-visibility-backfill");
+        backfill.setDaemon(true);
+        backfill.start();
+
+        // Background retention sweeper and cold tiering (only when configured)
+        RetentionPolicies retention = RetentionPolicies.fromEnvironment();
+        String tierDays = System.getenv("UNIFIED_TIER_AFTER_DAYS");
+        if (!retention.isEmpty() || tierDays != null) {
+            long minutes = Long.parseLong(System.getenv().getOrDefault("UNIFIED_RETENTION_INTERVAL_MINUTES", "60"));
+            // Firestore is swept for retention and tiering alike; in-memory channels are the CLI's
+            RetentionSweeper sweeper = new RetentionSweeper(retention, () -> new ArrayList<>(channels.values()),
+                    true, Paths.get("archive"));
+            if (tierDays != null) {
+                ColdSegmentStore cold = "firestore".equalsIgnoreCase(System.getenv("UNIFIED_COLD_STORE"))
+                        ? new FirestoreColdSegmentStore()
+                        : new LocalColdSegmentStore(Paths.get("cold"));
+                sweeper.tierAfter(Duration.ofDays(Long.parseLong(tierDays)), cold);
+            }
+            sweeper.start(Duration.ofMinutes(minutes));
+            System.out.println("🧹 Retention sweeper started: " + retention + (tierDays != null ? ", tier after " + tierDays + " days" : ""));
+        }
+
         // CLI flow (kept for local testing)
         System.out.println("=== Welcome to Unified - University Messaging System ===");
         while (isRunning) {
@@ -245,7 +708,8 @@ server.createContext("/api/messages", ex -> {
                     .create();
 
                 Map<String, User> loaded = gson.fromJson(json, t);
-                if (loaded != null) users = loaded;
+                if (loaded != null) users.putAll(loaded);
+                directory.addAll(users.values());
             } catch (IOException e) {
                 System.err.println("Failed to load users.json. Using empty user list.");
             }
@@ -253,9 +717,13 @@ server.createContext("/api/messages", ex -> {
     }
 
     private static final String USER_STORE = "users.json";
+    private static final Object USER_STORE_LOCK = new Object();
+    /** Writes a snapshot of the users; the lock keeps concurrent registrations from interleaving the file. */
     private static void saveUsers() throws IOException {
-        String json = new Gson().toJson(users);
-        Files.writeString(Paths.get(USER_STORE), json, StandardCharsets.UTF_8);
+        synchronized (USER_STORE_LOCK) {
+            String json = new Gson().toJson(new HashMap<>(users));
+            Files.writeString(Paths.get(USER_STORE), json, StandardCharsets.UTF_8);
+        }
     }
 
     /**
@@ -362,6 +830,7 @@ server.createContext("/api/messages", ex -> {
 
         Student student = new Student(username, fullName, email, password, studentId);
         users.put(student.getUserId(), student);
+        directory.add(student);
         currentUser = student;
         currentUser.setOnline(true);
 
@@ -468,22 +937,25 @@ server.createContext("/api/messages", ex -> {
             System.out.println("User not found.");
             return;
         }
+        // DM channel IDs are the canonical pair key, so an existing DM is a single map lookup
+        Channel existing = channels.get(DirectMessageChannel.pairKey(currentUser.getUserId(), other.getUserId()));
+        if (existing != null) {
+            System.out.println("You already have a direct message with " + other.getUsername() + ".");
+            return;
+        }
         DirectMessageChannel dm = new DirectMessageChannel(currentUser.getUserId(),
                                                            other.getUserId());
         channels.put(dm.getChannelId(), dm);
         currentUser.joinChannel(dm.getChannelId());
         other.joinChannel(dm.getChannelId());
 
-// --- persist to Firestore (keep same channelId) ---
+// --- persist to Firestore (dmPairs index keeps it unique) ---
 try {
     Map<String,Object> doc = new LinkedHashMap<>();
     doc.put("channelId",  dm.getChannelId());
     doc.put("name",       dm.getChannelName());
-    doc.put("type",       "DIRECT");
-    doc.put("isPrivate",  true);
     doc.put("ownerId",    currentUser.getUserId());
-    doc.put("participants", List.of(currentUser.getUserId(), other.getUserId()));
-    CloudStore.createChannel(doc);
+    CloudStore.findOrCreateDirectChannel(currentUser.getUserId(), other.getUserId(), doc);
 } catch (Exception e) {
     System.err.println("Failed to persist DM to Firestore: " + e);
 }
@@ -546,7 +1018,9 @@ try {
     doc.put("type",       "COURSE");
     doc.put("isPrivate",  false);
     doc.put("ownerId",    currentUser.getUserId());
+    doc.put("instructorId", currentUser.getUserId());
     doc.put("participants", List.of(currentUser.getUserId()));
+    doc.put("courseId",   id);
     doc.put("courseCode", code);
     doc.put("semester",   sem);
     doc.put("year",       year);
@@ -623,10 +1097,14 @@ System.out.println("Successfully joined the channel!");
         int choice = getIntInput();
         if (choice > 0 && choice <= uc.size()) {
             Channel sel = uc.get(choice - 1);
-            String hist = sel.exportChatHistory();
-            String fn = "chat_history_" + sel.getChannelId() + ".txt";
-            try (PrintWriter pw = new PrintWriter(new FileWriter(fn))) {
-                pw.write(hist);
+            System.out.println("Format: 1. Text  2. JSON Lines  3. CSV");
+            System.out.print("Enter format: ");
+            int fmt = getIntInput();
+            ExportOptions.Format format = fmt == 2 ? ExportOptions.Format.JSONL
+                    : fmt == 3 ? ExportOptions.Format.CSV : ExportOptions.Format.TEXT;
+            String fn = "chat_history_" + sel.getChannelId() + "." + format.getExtension();
+            try (Writer w = Files.newBufferedWriter(Paths.get(fn), StandardCharsets.UTF_8)) {
+                ChatHistoryExporter.exportChatHistory(sel, w, new ExportOptions(format));
                 System.out.println("Chat history exported to " + fn);
             } catch (IOException e) {
                 System.out.println("Failed to export chat history: " + e.getMessage());
@@ -694,6 +1172,7 @@ System.out.println("Successfully joined the channel!");
             default:
                 System.out.println("Invalid choice.");
         }
+        directory.updated(currentUser);
         System.out.println("Profile updated successfully!");
     }
 
@@ -717,9 +1196,7 @@ System.out.println("Successfully joined the channel!");
     }
 
     private static User findUserByUsername(String username) {
-        return users.values().stream()
-                .filter(u -> u.getUsername().equals(username))
-                .findFirst().orElse(null);
+        return directory.findByUsername(username);
     }
 
     private static List<Channel> getUserChannels() {
@@ -743,7 +1220,7 @@ System.out.println("Successfully joined the channel!");
     }
 
     private static String getSenderName(String senderId) {
-        User u = users.get(senderId);
+        User u = senderId == null ? null : users.get(senderId);
         return u != null ? u.getFullName() : "Unknown User";
     }
 
@@ -754,7 +1231,7 @@ System.out.println("Successfully joined the channel!");
 
     private static void allowCors(HttpExchange ex) {
         ex.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
-        ex.getResponseHeaders().add("Access-Control-Allow-Headers", "content-type");
+        ex.getResponseHeaders().add("Access-Control-Allow-Headers", "content-type, authorization");
         ex.getResponseHeaders().add("Access-Control-Allow-Methods", "GET,POST,OPTIONS");
     }
 
@@ -778,6 +1255,169 @@ System.out.println("Successfully joined the channel!");
         }
     }
 
+    /**
+     * Checks that the caller may act as {@code userId}. A bearer token, when present, must be valid and
+     * belong to that user; without one the request only passes if UNIFIED_REQUIRE_AUTH is off.
+     * Writes the 401/403 itself and returns false when the request must stop.
+     */
+    private static boolean authorize(HttpExchange ex, String userId) throws IOException {
+        String token = bearerToken(ex);
+        if (token == null) {
+            if (!REQUIRE_AUTH) return true;
+            writeJson(ex, 401, Map.of("ok", false, "error", "Missing session token"));
+            return false;
+        }
+        SessionTokens.Claims claims = SESSIONS.verify(token);
+        if (claims == null) {
+            writeJson(ex, 401, Map.of("ok", false, "error", "Invalid or expired session token"));
+            return false;
+        }
+        if (userId != null && !userId.equals(claims.userId)) {
+            writeJson(ex, 403, Map.of("ok", false, "error", "Token does not belong to " + userId));
+            return false;
+        }
+        return true;
+    }
+
+    private static String bearerToken(HttpExchange ex) {
+        String h = ex.getRequestHeaders().getFirst("Authorization");
+        if (h == null || !h.regionMatches(true, 0, "Bearer ", 0, 7)) return null;
+        String token = h.substring(7).trim();
+        return token.isEmpty() ? null : token;
+    }
+
+    /** Answers 429 with Retry-After and returns true if {@code key} is over its limit. */
+    private static boolean rateLimited(HttpExchange ex, RateLimiter limiter, String key) throws IOException {
+        if (limiter == null) return false;
+        long waitNanos = limiter.tryAcquire(key);
+        if (waitNanos == 0) return false;
+        long seconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        ex.getResponseHeaders().set("Retry-After", String.valueOf(seconds));
+        writeJson(ex, 429, Map.of("ok", false, "error", "Too many requests", "retryAfter", seconds));
+        return true;
+    }
+
+    private static String clientAddress(HttpExchange ex) {
+        if (TRUST_FORWARDED) {
+            String fwd = ex.getRequestHeaders().getFirst("X-Forwarded-For");
+            if (fwd != null && !fwd.isBlank()) return fwd.split(",")[0].trim();
+        }
+        return ex.getRemoteAddress().getAddress().getHostAddress();
+    }
+
+    /** 503 with a short Retry-After when the hashing pool or the store limiter turns a request away. */
+    private static void busy(HttpExchange ex) throws IOException {
+        ex.getResponseHeaders().set("Retry-After", "1");
+        writeJson(ex, 503, Map.of("ok", false, "error", "Server busy, try again"));
+    }
+
+    /**
+     * Sets the PBKDF2 cost from UNIFIED_PBKDF2_TARGET_MS (calibrated on this host) or
+     * UNIFIED_PBKDF2_ITERATIONS; otherwise the default cost applies.
+     */
+    private static void configurePasswordHashing() {
+        String targetMs = System.getenv("UNIFIED_PBKDF2_TARGET_MS");
+        String fixed = System.getenv("UNIFIED_PBKDF2_ITERATIONS");
+        if (targetMs != null) {
+            int cost = PasswordManager.calibrate(Duration.ofMillis(Long.parseLong(targetMs)));
+            PasswordManager.setIterations(cost);
+            System.out.println("🔐 PBKDF2 calibrated to " + PasswordManager.getIterations()
+                    + " iterations for ~" + targetMs + " ms per hash");
+        } else if (fixed != null) {
+            PasswordManager.setIterations(Integer.parseInt(fixed));
+        }
+    }
+
+    private static AnnouncementMessage toAnnouncement(String messageId, String channelId, Map<String,Object> req) {
+        return new AnnouncementMessage(messageId, (String) req.get("senderId"), channelId,
+                String.valueOf(req.getOrDefault("content", "")), java.time.LocalDateTime.now(), false,
+                (String) req.get("courseId"), (String) req.get("courseName"),
+                Boolean.TRUE.equals(req.get("important")),
+                String.valueOf(req.getOrDefault("announcementType", "GENERAL")));
+    }
+
+    /** Owners and instructors may announce in a channel. */
+    private static boolean mayAnnounce(Map<String,Object> channel, String userId) {
+        return userId != null && (userId.equals(channel.get("ownerId")) || userId.equals(channel.get("instructorId")));
+    }
+
+    /**
+     * Participants of a section plus every known student enrolled in its course, mirroring
+     * AnnouncementFanout.resolveRecipients on the client. Works only on the fetched document and the
+     * in-memory directory, so it needs no store permit.
+     */
+    private static Set<String> sectionRecipients(Map<String,Object> channel) {
+        Set<String> out = CloudStore.participantsOf(channel);
+        Object courseId = channel.get("courseId");
+        if (courseId != null) {
+            for (User u : directory.values()) {
+                if (u instanceof Student && ((Student) u).isEnrolledInCourse(String.valueOf(courseId))) out.add(u.getUserId());
+            }
+        }
+        return out;
+    }
+
+    /** Recipients from the channel document already read under the store limiter; no further store call. */
+    private static Set<String> announcementRecipients(Map<String,Object> channel, String senderId) {
+        Set<String> recipients = CloudStore.participantsOf(channel);
+        recipients.remove(senderId);
+        return recipients;
+    }
+
+    private static final int EXPORT_PAGE_SIZE = 500;
+    private static final long MAX_POLL_WAIT_MS = 30_000;
+    private static final int MAX_POLL_EVENTS = 1000;
+    private static final int HTTP_THREADS = Integer.parseInt(System.getenv().getOrDefault("UNIFIED_HTTP_THREADS", "64"));
+    /** At most this many long polls wait at once (default half the HTTP workers), so they can't starve other routes. */
+    private static final Semaphore PARKED_POLLS = new Semaphore(Integer.parseInt(System.getenv().getOrDefault(
+            "UNIFIED_MAX_PARKED_POLLS", String.valueOf(Math.max(1, HTTP_THREADS / 2)))));
+
+    /**
+     * Streams a channel archive as chunked (optionally gzipped) output, paging through Firestore
+     * so server memory stays constant regardless of channel size.
+     */
+    private static void streamChannelExport(HttpExchange ex, String channelId, String format, boolean gzip) throws IOException {
+        String fileName = "channel_" + channelId + "." + format + (gzip ? ".gz" : "");
+        ex.getResponseHeaders().add("Content-Type", gzip ? "application/gzip"
+                : format.equals("jsonl") ? "application/x-ndjson; charset=UTF-8" : "text/plain; charset=UTF-8");
+        ex.getResponseHeaders().add("Content-Disposition", "attachment; filename=\"" + fileName + "\"");
+        ex.sendResponseHeaders(200, 0);
+
+        OutputStream body = ex.getResponseBody();
+        OutputStream out = gzip ? new GZIPOutputStream(body, 8192) : body;
+        try (Writer w = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 8192)) {
+            try {
+                CloudStore.forEachMessage(channelId, EXPORT_PAGE_SIZE, m -> {
+                    try {
+                        if (format.equals("jsonl")) {
+                            w.write(GSON.toJson(m));
+                        } else {
+                            w.write("[" + m.get("createdAt") + "] " + m.get("senderId") + ": " + m.get("content"));
+                        }
+                        w.write('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                // Headers are already sent, so the failure goes in the body as a final, recognisable line
+                System.err.println("Channel export failed for " + channelId + ": " + e);
+                if (format.equals("jsonl")) {
+                    w.write(GSON.toJson(Map.of("error", "Export truncated: " + e.getMessage(), "truncated", true)));
+                } else {
+                    w.write("### EXPORT TRUNCATED: " + e.getMessage());
+                }
+                w.write('\n');
+            }
+        } catch (UncheckedIOException e) {
+            System.err.println("Channel export aborted for " + channelId + ": " + e.getCause());
+        } finally {
+            ex.close();
+        }
+    }
+
     private static String query(HttpExchange ex, String key) {
         String q = ex.getRequestURI().getQuery();
         if (q == null) return null;
@@ -7,28 +7,68 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 public class ClientController {
     private static final String USERS_CSV = "users.csv";
+    private static final String HISTORY_DIR_ENV = "UNIFIED_HISTORY_DIR";
+    /** Channel metadata, kept next to the per-channel logs so they can be reopened by channel ID. */
+    private static final String CHANNELS_FILE = "channels.tsv";
 
-    private final Map<String, User> users = new HashMap<>();
+    private final UserDirectory users = new UserDirectory();
     private final Map<String, Channel> channels = new LinkedHashMap<>();
-    private User currentUser;
+    /** User ID to the IDs of channels they belong to; the reverse direction is Channel.participantIds. */
+    private final Map<String, Set<String>> membership = new HashMap<>();
+    /** Public group and course channels, for the Join dialog. */
+    private final ChannelDirectory channelDirectory = new ChannelDirectory();
+    /** Canonical DM pair key to channel ID. */
+    private final Map<String, String> dmIndex = new HashMap<>();
+    private final AnnouncementInbox inbox = new AnnouncementInbox();
+    private final AnnouncementFanout fanout = new AnnouncementFanout(inbox);
+    /** Runs history reads, searches and exports so callers on the EDT never block on them. */
+    private final ExecutorService loader = Executors.newFixedThreadPool(2, r -> {
+        Thread t = new Thread(r, "client-loader");
+        t.setDaemon(true);
+        return t;
+    });
+    /** Sends text and file messages optimistically; see {@link Outbox}. */
+    private final Outbox outbox = new Outbox(new LocalTransport());
+    private volatile User currentUser;
+    /** Where channel logs and the channel list live, or null for a memory-only client. */
+    private final Path historyDir;
 
     public ClientController() {
         loadUsersCsv();
+        String dir = System.getenv(HISTORY_DIR_ENV);
+        historyDir = dir == null || dir.isBlank() ? null : Paths.get(dir);
+        if (historyDir != null) {
+            try {
+                AnnouncementRegistry.getDefault().attachStore(new SegmentedMessageLog(historyDir.resolve("announcements")));
+            } catch (IOException e) {
+                System.err.println("Failed to open announcement store: " + e);
+            }
+            loadChannels();
+        }
     }
 
-    public boolean login(String username, String password) {
-        User u = findUserByUsername(username);
-        if (u != null && u.verifyPassword(password)) {
-            currentUser = u;
-            currentUser.setOnline(true);
-            return true;
+    /**
+     * Closes every channel's message history. Call once on exit.
+     */
+    public void close() {
+        for (Channel c : channels.values()) {
+            try {
+                c.closeHistory();
+            } catch (IOException e) {
+                System.err.println("Failed to close message history for " + c.getChannelId() + ": " + e);
+            }
         }
-        return false;
     }
 
     public String register(String username, String fullName, String email, String password, String studentId) {
@@ -36,7 +76,7 @@ public class ClientController {
             return "Username already exists";
         }
         Student s = new Student(username, fullName, email, password, studentId);
-        users.put(s.getUserId(), s);
+        users.add(s);
         currentUser = s;
         currentUser.setOnline(true);
         saveUsersCsv();
@@ -53,31 +93,55 @@ public class ClientController {
     }
 
     public User findUserByUsername(String username) {
-        for (User u : users.values()) {
-            if (u.getUsername().equals(username)) return u;
-        }
-        return null;
+        return users.findByUsername(username);
+    }
+
+    /**
+     * Finds a user by username ignoring case, e.g. for the DM dialog where people type names loosely.
+     */
+    public User findUserByUsernameIgnoreCase(String username) {
+        return users.findByUsernameIgnoreCase(username);
+    }
+
+    /**
+     * Autocomplete for usernames and full-name words, excluding the current user.
+     */
+    public List<User> suggestUsers(String prefix, int limit) {
+        List<User> out = users.complete(prefix, limit + 1);
+        if (currentUser != null) out.remove(currentUser);
+        return out.size() > limit ? out.subList(0, limit) : out;
     }
 
     public String getUserDisplayName(String userId) {
-        User u = users.get(userId);
-        if (u == null) return "Unknown user";
-        String name = u.getFullName();
-        return (name == null || name.isBlank()) ? u.getUsername() : name;
+        return users.getDisplayName(userId);
+    }
+
+    public UserDirectory getUserDirectory() {
+        return users;
+    }
+
+    public Channel getChannel(String channelId) {
+        return channelId == null ? null : channels.get(channelId);
     }
 
     public List<Channel> getUserChannels() {
         if (currentUser == null) return List.of();
-        return channels.values().stream()
-                .filter(c -> c.isParticipant(currentUser.getUserId()))
-                .collect(Collectors.toList());
+        Set<String> mine = membership.getOrDefault(currentUser.getUserId(), Set.of());
+        List<Channel> out = new ArrayList<>(mine.size());
+        for (String id : mine) {
+            Channel c = channels.get(id);
+            if (c != null) out.add(c);
+        }
+        return out;
     }
 
-    public List<Channel> getAvailableChannels() {
-        if (currentUser == null) return List.of();
-        return channels.values().stream()
-                .filter(c -> !c.isParticipant(currentUser.getUserId()))
-                .collect(Collectors.toList());
+    /**
+     * The current user's channels, most recently active first.
+     */
+    public List<Channel> getUserChannelsByActivity() {
+        List<Channel> out = getUserChannels();
+        out.sort(Comparator.comparingLong(Channel::getLastActivity).reversed());
+        return out;
     }
 
     public String getChannelDisplayName(Channel c) {
@@ -92,18 +156,31 @@ public class ClientController {
     public Channel createDirectMessage(String otherUsername) {
         if (currentUser == null) return null;
         User other = findUserByUsername(otherUsername);
+        if (other == null) other = findUserByUsernameIgnoreCase(otherUsername);
         if (other == null) return null;
+        Channel existing = findDirectMessage(other.getUserId());
+        if (existing != null) return existing;
         DirectMessageChannel dm = new DirectMessageChannel(currentUser.getUserId(), other.getUserId());
-        channels.put(dm.getChannelId(), dm);
+        addChannel(dm);
         currentUser.joinChannel(dm.getChannelId());
         other.joinChannel(dm.getChannelId());
         return dm;
     }
 
+    /**
+     * Finds the current user's existing DM with another user in O(1).
+     * @return the DM channel, or null if they have none
+     */
+    public Channel findDirectMessage(String otherUserId) {
+        if (currentUser == null || otherUserId == null) return null;
+        String channelId = dmIndex.get(DirectMessageChannel.pairKey(currentUser.getUserId(), otherUserId));
+        return channelId == null ? null : channels.get(channelId);
+    }
+
     public Channel createGroupChat(String name, String desc, int max, boolean isPrivate) {
         if (currentUser == null) return null;
         GroupChatChannel grp = new GroupChatChannel(name, desc, currentUser.getUserId(), max, isPrivate);
-        channels.put(grp.getChannelId(), grp);
+        addChannel(grp);
         currentUser.joinChannel(grp.getChannelId());
         return grp;
     }
@@ -111,18 +188,69 @@ public class ClientController {
     public Channel createCourseChannel(String courseId, String code, String name, String sem, int year, boolean allowStudent) {
         if (currentUser == null) return null;
         CourseChannel cc = new CourseChannel(courseId, code, name, currentUser.getUserId(), sem, year, allowStudent);
-        channels.put(cc.getChannelId(), cc);
+        addChannel(cc);
         currentUser.joinChannel(cc.getChannelId());
         return cc;
     }
 
+    private void addChannel(Channel c) {
+        register(c);
+        saveChannels();
+    }
+
+    /**
+     * Indexes a channel and reopens its history by channel ID, so a restarted client finds the log
+     * it wrote before.
+     */
+    private void register(Channel c) {
+        channels.put(c.getChannelId(), c);
+        for (String userId : c.getParticipantIds()) indexMember(userId, c);
+        channelDirectory.add(c);
+        if (c instanceof DirectMessageChannel) {
+            dmIndex.put(((DirectMessageChannel) c).getPairKey(), c.getChannelId());
+        }
+        if (historyDir == null) return;
+        try {
+            c.attachHistory(new SegmentedMessageLog(historyDir.resolve(c.getChannelId())));
+        } catch (IOException e) {
+            System.err.println("Failed to open message history for " + c.getChannelId() + ": " + e);
+        }
+    }
+
+    /**
+     * Forgets a channel and closes its history. The log files stay on disk.
+     * @return the removed channel, or null if it was unknown
+     */
+    public Channel removeChannel(String channelId) {
+        Channel c = channels.remove(channelId);
+        if (c == null) return null;
+        for (Set<String> ids : membership.values()) ids.remove(channelId);
+        channelDirectory.remove(channelId);
+        if (c instanceof DirectMessageChannel) dmIndex.remove(((DirectMessageChannel) c).getPairKey());
+        try {
+            c.closeHistory();
+        } catch (IOException e) {
+            System.err.println("Failed to close message history for " + channelId + ": " + e);
+        }
+        saveChannels();
+        return c;
+    }
+
     public boolean joinChannel(Channel c) {
         if (currentUser == null || c == null) return false;
         boolean ok = c.addParticipant(currentUser.getUserId());
-        if (ok) currentUser.joinChannel(c.getChannelId());
+        if (ok) {
+            currentUser.joinChannel(c.getChannelId());
+            indexMember(currentUser.getUserId(), c);
+            saveChannels();
+        }
         return ok;
     }
 
+    private void indexMember(String userId, Channel c) {
+        membership.computeIfAbsent(userId, k -> new LinkedHashSet<>()).add(c.getChannelId());
+    }
+
     public boolean canSendIn(Channel c) {
         if (currentUser == null || c == null) return false;
         if (c instanceof CourseChannel) {
@@ -140,6 +268,29 @@ public class ClientController {
         return c.sendMessage(m);
     }
 
+    /**
+     * Sends a text message in the background. The returned entry can be shown right away as pending;
+     * the outbox reports when it is stored or has failed.
+     * @return the pending entry, or null if not logged in
+     */
+    public Outbox.Entry sendTextMessageAsync(Channel c, String content) {
+        if (currentUser == null || c == null) return null;
+        return outbox.submit(c, new TextMessage(currentUser.getUserId(), c.getChannelId(), content));
+    }
+
+    public Outbox.Entry sendFileMessageAsync(Channel c, String fileName, String url, long size, String type) {
+        if (currentUser == null || c == null) return null;
+        return outbox.submit(c, new FileMessage(currentUser.getUserId(), c.getChannelId(), fileName, url, size, type));
+    }
+
+    public boolean retrySend(Outbox.Entry entry) {
+        return outbox.retry(entry);
+    }
+
+    public Outbox getOutbox() {
+        return outbox;
+    }
+
     public boolean sendFileMessage(Channel c, String fileName, String url, long size, String type) {
         if (currentUser == null || c == null) return false;
         FileMessage m = new FileMessage(currentUser.getUserId(), c.getChannelId(), fileName, url, size, type);
@@ -150,15 +301,63 @@ public class ClientController {
         if (currentUser == null || c == null) return false;
         AnnouncementMessage m = new AnnouncementMessage(currentUser.getUserId(), c.getChannelId(), content,
                 c.getCourseId(), c.getCourseIdentifier(), important, type);
-        return c.sendMessage(m);
+        if (!c.sendMessage(m)) return false;
+        fanout.deliver(m, AnnouncementFanout.resolveRecipients(c, currentUser.getUserId(), users.values()));
+        return true;
+    }
+
+    /**
+     * Posts one announcement to several course channels.
+     * The body is stored once and each channel gets a pointer; students enrolled in more than one
+     * of the sections receive a single inbox entry.
+     * @return the number of channels the announcement was posted to
+     */
+    public int crossPostAnnouncement(List<CourseChannel> sections, String content, boolean important, String type) {
+        if (currentUser == null || sections == null || sections.isEmpty()) return 0;
+        CourseChannel home = sections.get(0);
+        AnnouncementMessage body = new AnnouncementMessage(currentUser.getUserId(), home.getChannelId(), content,
+                home.getCourseId(), home.getCourseIdentifier(), important, type);
+        List<CourseChannel> allowed = sections.stream().filter(this::canSendIn).collect(Collectors.toList());
+        int posted;
+        try {
+            posted = AnnouncementRegistry.getDefault().crossPost(body, currentUser.getUserId(), allowed);
+        } catch (IOException e) {
+            return 0;
+        }
+        if (posted == 0) return 0;
+        Set<String> recipients = new LinkedHashSet<>();
+        for (CourseChannel c : allowed) {
+            recipients.addAll(AnnouncementFanout.resolveRecipients(c, currentUser.getUserId(), users.values()));
+        }
+        inbox.noteCrossPost(body.getMessageId(), allowed.stream().map(Channel::getChannelId).collect(Collectors.toList()));
+        fanout.deliver(body, recipients);
+        return posted;
+    }
+
+    public AnnouncementInbox getAnnouncementInbox() {
+        return inbox;
+    }
+
+    public int getUnreadAnnouncementCount() {
+        return currentUser == null ? 0 : inbox.getUnreadCount(currentUser.getUserId());
     }
 
     public List<Message> getMessages(Channel c) {
         return (c == null) ? List.of() : c.getMessages();
     }
 
+    public List<Message> getMessages(Channel c, int from, int to) {
+        return (c == null) ? List.of() : c.getMessages(from, to);
+    }
+
+    public int getMessageCount(Channel c) {
+        return (c == null) ? 0 : c.getMessageCount();
+    }
+
     public void markAllRead(Channel c) {
-        if (currentUser != null && c != null) c.markAllMessagesAsRead(currentUser.getUserId());
+        if (currentUser == null || c == null) return;
+        c.markAllMessagesAsRead(currentUser.getUserId());
+        inbox.markChannelRead(currentUser.getUserId(), c.getChannelId());
     }
 
     public int getUnreadCount(Channel c) {
@@ -175,17 +374,157 @@ public class ClientController {
         return res;
     }
 
+    // ---------- Async API: results complete on the loader threads, never on the EDT ----------
+
+    /**
+     * The current user's channels, most recently active first, sorted in the background.
+     */
+    public CompletableFuture<List<Channel>> loadUserChannelsAsync() {
+        List<Channel> mine = getUserChannels();   // snapshot on the caller's thread
+        return async(f -> {
+            mine.sort(Comparator.comparingLong(Channel::getLastActivity).reversed());
+            return mine;
+        });
+    }
+
+    /**
+     * Reads the newest {@code n} messages of a channel in the background.
+     */
+    public CompletableFuture<MessagePage> loadLatestMessagesAsync(Channel c, int n) {
+        return async(f -> {
+            int count = c.getMessageCount();
+            int from = Math.max(0, count - n);
+            return new MessagePage(c, from, c.getMessages(from, count));
+        });
+    }
+
+    /**
+     * Reads up to {@code n} messages before position {@code before} in the background.
+     */
+    public CompletableFuture<MessagePage> loadMessagesBeforeAsync(Channel c, int before, int n) {
+        return async(f -> {
+            int from = Math.max(0, before - n);
+            return new MessagePage(c, from, c.getMessages(from, before));
+        });
+    }
+
+    /**
+     * Searches the current user's channels one at a time, reporting each channel's hits to
+     * {@code partial} as soon as it is done. Cancelling the future stops before the next channel.
+     */
+    public CompletableFuture<List<Message>> searchMessagesAsync(String keyword, Consumer<List<Message>> partial) {
+        List<Channel> mine = getUserChannels();   // snapshot on the caller's thread
+        return async(f -> {
+            List<Message> res = new ArrayList<>();
+            for (Channel ch : mine) {
+                if (f.isDone()) break;
+                List<Message> hits = ch.searchMessages(keyword);
+                if (hits.isEmpty()) continue;
+                res.addAll(hits);
+                if (partial != null) partial.accept(hits);
+            }
+            return res;
+        });
+    }
+
+    /**
+     * One ranked page of public channels the current user has not joined, matching a name or course
+     * code prefix, looked up in the background.
+     */
+    public CompletableFuture<ChannelDirectory.Page> discoverChannelsAsync(String prefix, int offset, int limit) {
+        if (currentUser == null) return CompletableFuture.completedFuture(new ChannelDirectory.Page(new ArrayList<>(), 0, false));
+        Set<String> mine = new HashSet<>(membership.getOrDefault(currentUser.getUserId(), Set.of()));   // snapshot on the caller's thread
+        return async(f -> channelDirectory.discover(prefix, mine, offset, limit));
+    }
+
+    /**
+     * Checks the password in the background, since the hash is deliberately slow, and upgrades an
+     * outdated hash there as well. The user is logged in once the future completes with true.
+     */
+    public CompletableFuture<Boolean> loginAsync(String username, String password) {
+        return async(f -> {
+            User u = findUserByUsername(username);
+            if (u == null || !u.verifyPassword(password)) return false;
+            if (u.rehashPasswordIfNeeded(password)) saveUsersCsv();
+            currentUser = u;
+            currentUser.setOnline(true);
+            return true;
+        });
+    }
+
+    public CompletableFuture<Boolean> exportChatHistoryAsync(Channel c, File target) {
+        return async(f -> exportChatHistory(c, target));
+    }
+
+    private <T> CompletableFuture<T> async(Function<CompletableFuture<T>, T> task) {
+        CompletableFuture<T> f = new CompletableFuture<>();
+        loader.execute(() -> {
+            if (f.isDone()) return;   // superseded before it started
+            try {
+                f.complete(task.apply(f));
+            } catch (Throwable t) {
+                f.completeExceptionally(t);
+            }
+        });
+        return f;
+    }
+
+    /**
+     * Stores messages straight into the in-memory channel. Remembers recently accepted keys so a
+     * retried send returns the stored message instead of appending it twice.
+     */
+    private static final class LocalTransport implements MessageTransport {
+        private static final int REMEMBERED_KEYS = 1024;
+
+        private final Map<String, Message> accepted = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Message> eldest) {
+                return size() > REMEMBERED_KEYS;
+            }
+        };
+
+        @Override
+        public synchronized Message send(Channel channel, Message message, String idempotencyKey) {
+            Message prev = accepted.get(idempotencyKey);
+            if (prev != null) return prev;
+            if (!channel.sendMessage(message)) throw new IllegalStateException("The channel did not accept the message");
+            accepted.put(idempotencyKey, message);
+            return message;
+        }
+    }
+
+    /** A contiguous run of a channel's messages starting at position {@code from}. */
+    public static final class MessagePage {
+        public final Channel channel;
+        public final int from;
+        public final List<Message> messages;
+
+        public MessagePage(Channel channel, int from, List<Message> messages) {
+            this.channel = channel;
+            this.from = from;
+            this.messages = messages;
+        }
+    }
+
     public boolean exportChatHistory(Channel c, File target) {
+        if (target == null) return false;
+        return exportChatHistory(c, target, new ExportOptions(ExportOptions.Format.fromFileName(target.getName())));
+    }
+
+    public boolean exportChatHistory(Channel c, File target, ExportOptions options) {
         if (c == null || target == null) return false;
-        String hist = c.exportChatHistory();
-        try (Writer w = new OutputStreamWriter(new FileOutputStream(target), StandardCharsets.UTF_8)) {
-            w.write(hist);
+        try (Writer w = Files.newBufferedWriter(target.toPath(), StandardCharsets.UTF_8)) {
+            ChatHistoryExporter.exportChatHistory(c, w, options);
             return true;
         } catch (IOException e) {
             return false;
         }
     }
 
+    public ChatArchiveExporter newArchiveExport(ExportOptions options) {
+        return new ChatArchiveExporter(getUserChannels(), options);
+    }
+
     public void updateProfile(String fullName, String email, String year, String major, String school) {
         if (currentUser == null) return;
         currentUser.setFullName(fullName);
@@ -193,6 +532,7 @@ public class ClientController {
         currentUser.setYearOfGraduation(year);
         currentUser.setMajor(major);
         currentUser.setSchool(school);
+        users.updated(currentUser);
         saveUsersCsv();
     }
 
@@ -212,23 +552,18 @@ public class ClientController {
                 String studentId = parts[4];
                 String userId = parts[5];
                 Student s = new Student(userId, username, fullName, email, hash, studentId);
-                users.put(s.getUserId(), s);
+                users.add(s);
             }
         } catch (IOException ignored) {}
     }
 
-    private void saveUsersCsv() {
+    /** Synchronized because a login may rewrite the file from a loader thread. */
+    private synchronized void saveUsersCsv() {
         Path p = Paths.get(USERS_CSV);
         try (BufferedWriter bw = Files.newBufferedWriter(p, StandardCharsets.UTF_8)) {
             bw.write("# username\tfullName\temail\thash\tstudentId\tuserId\n");
             for (User u : users.values()) {
-                String hash = "";
-                try {
-                    var f = u.getClass().getSuperclass().getDeclaredField("hashedPassword");
-                    f.setAccessible(true);
-                    Object v = f.get(u);
-                    if (v != null) hash = v.toString();
-                } catch (Exception ignored) {}
+                String hash = u.getHashedPassword() == null ? "" : u.getHashedPassword();
                 String studentId = (u instanceof Student) ? ((Student) u).getStudentId() : "";
                 String line = String.join("\t",
                         safe(u.getUsername()),
@@ -244,6 +579,87 @@ public class ClientController {
         } catch (IOException ignored) {}
     }
 
+    private void loadChannels() {
+        Path p = historyDir.resolve(CHANNELS_FILE);
+        if (!Files.exists(p)) return;
+        try (BufferedReader br = Files.newBufferedReader(p, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) continue;
+                Channel c = parseChannel(line.split("\t", -1));
+                if (c == null) continue;
+                register(c);
+                for (String userId : c.getParticipantIds()) {
+                    User u = users.get(userId);
+                    if (u != null) u.joinChannel(c.getChannelId());
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to load channels: " + e);
+        }
+    }
+
+    /** type, id, name, description, creator, createdAt millis, active, participants, then per-type fields */
+    private static Channel parseChannel(String[] f) {
+        if (f.length < 8) return null;
+        String id = f[1], name = f[2], desc = f[3], creator = f[4];
+        Date created = new Date(Long.parseLong(f[5]));
+        boolean active = Boolean.parseBoolean(f[6]);
+        Set<String> members = f[7].isEmpty() ? new HashSet<>() : new HashSet<>(Arrays.asList(f[7].split(",")));
+        switch (f[0]) {
+            case "GROUP":
+                if (f.length < 10) return null;
+                return new GroupChatChannel(id, name, desc, creator, members, created, active,
+                        Integer.parseInt(f[8]), Boolean.parseBoolean(f[9]));
+            case "COURSE":
+                if (f.length < 15) return null;
+                return new CourseChannel(id, name, desc, creator, members, created, active,
+                        f[8], f[9], f[10], f[11], f[12], Integer.parseInt(f[13]), Boolean.parseBoolean(f[14]));
+            case "DM":
+                if (f.length < 10) return null;
+                return new DirectMessageChannel(id, name, desc, creator, members, created, active, f[8], f[9]);
+            default:
+                return null;
+        }
+    }
+
+    private void saveChannels() {
+        if (historyDir == null) return;
+        Path p = historyDir.resolve(CHANNELS_FILE);
+        Path tmp = historyDir.resolve(CHANNELS_FILE + ".tmp");
+        try {
+            Files.createDirectories(historyDir);
+            try (BufferedWriter bw = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                bw.write("# type\tchannelId\tname\tdescription\tcreatorId\tcreatedAt\tactive\tparticipants\t...\n");
+                for (Channel c : channels.values()) {
+                    List<String> f = new ArrayList<>(List.of(
+                            c instanceof CourseChannel ? "COURSE" : c instanceof DirectMessageChannel ? "DM" : "GROUP",
+                            safe(c.getChannelId()), safe(c.getChannelName()), safe(c.getDescription()),
+                            safe(c.getCreatorId()), String.valueOf(c.getCreatedAt().getTime()),
+                            String.valueOf(c.isActive()), String.join(",", c.getParticipantIds())));
+                    if (c instanceof CourseChannel) {
+                        CourseChannel cc = (CourseChannel) c;
+                        f.addAll(List.of(safe(cc.getCourseId()), safe(cc.getCourseCode()), safe(cc.getCourseName()),
+                                safe(cc.getInstructorId()), safe(cc.getSemester()), String.valueOf(cc.getYear()),
+                                String.valueOf(cc.isAllowStudentMessages())));
+                    } else if (c instanceof DirectMessageChannel) {
+                        DirectMessageChannel dm = (DirectMessageChannel) c;
+                        f.addAll(List.of(safe(dm.getUser1Id()), safe(dm.getUser2Id())));
+                    } else if (c instanceof GroupChatChannel) {
+                        GroupChatChannel g = (GroupChatChannel) c;
+                        f.addAll(List.of(String.valueOf(g.getMaxParticipants()), String.valueOf(g.isPrivate())));
+                    }
+                    bw.write(String.join("\t", f));
+                    bw.write('\n');
+                }
+            }
+            Files.move(tmp, p, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Failed to save channels: " + e);
+        }
+    }
+
     private static String safe(String s) {
         return s == null ? "" : s.replace('\t', ' ');
     }
@@ -0,0 +1,63 @@
+package com.unified.client;
+
+import javax.swing.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+/**
+ * Hands results of the controller's background futures back to the Event Dispatch Thread.
+ * Cancelled futures are dropped silently; they were superseded by a newer request.
+ */
+final class EdtBridge {
+
+    private EdtBridge() {}
+
+    /** Runs {@code onResult} or {@code onError} on the EDT once {@code f} completes. */
+    static <T> void deliver(CompletableFuture<T> f, Consumer<? super T> onResult, Consumer<Throwable> onError) {
+        f.whenComplete((value, err) -> {
+            if (f.isCancelled()) return;
+            SwingUtilities.invokeLater(() -> {
+                if (err == null) {
+                    onResult.accept(value);
+                } else if (onError != null) {
+                    Throwable cause = err instanceof CompletionException && err.getCause() != null ? err.getCause() : err;
+                    if (!(cause instanceof CancellationException)) onError.accept(cause);
+                }
+            });
+        });
+    }
+
+    /**
+     * The most recent request of one kind, such as "messages for the selected channel".
+     * Starting a new one cancels the previous, and a result that arrives after it was
+     * superseded is never delivered. Use from the EDT only.
+     */
+    static final class Latest<T> {
+        private CompletableFuture<T> current;
+
+        void submit(CompletableFuture<T> f, Consumer<? super T> onResult, Consumer<Throwable> onError) {
+            cancel();
+            current = f;
+            deliver(f, value -> {
+                if (current != f) return;
+                current = null;
+                onResult.accept(value);
+            }, err -> {
+                if (current != f) return;
+                current = null;
+                if (onError != null) onError.accept(err);
+            });
+        }
+
+        boolean isPending() {
+            return current != null;
+        }
+
+        void cancel() {
+            if (current != null) current.cancel(false);
+            current = null;
+        }
+    }
+}
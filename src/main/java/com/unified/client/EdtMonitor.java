@@ -0,0 +1,106 @@
+package com.unified.client;
+
+import com.unified.util.LatencyHistogram;
+
+import javax.swing.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures how responsive the Event Dispatch Thread is.
+ * A daemon thread posts a probe with invokeLater every {@link #PROBE_INTERVAL_MS} and records how long
+ * it waited to run; only one probe is in flight at a time, so a long freeze shows up as one large
+ * sample instead of a pile of queued ones. UI actions record their own end-to-end latency by name.
+ */
+final class EdtMonitor {
+    static final long PROBE_INTERVAL_MS = 100;
+    /** A probe delayed longer than this counts as a visible stall. */
+    static final long STALL_MS = 100;
+
+    private static final EdtMonitor DEFAULT = new EdtMonitor();
+
+    private final LatencyHistogram edtLag = new LatencyHistogram();
+    private final Map<String, LatencyHistogram> actions = new ConcurrentSkipListMap<>();
+    private final AtomicBoolean probeInFlight = new AtomicBoolean();
+    private final AtomicLong stalls = new AtomicLong();
+    private volatile long lastLagNanos;
+    private ScheduledExecutorService prober;
+
+    static EdtMonitor getDefault() {
+        return DEFAULT;
+    }
+
+    synchronized void start() {
+        if (prober != null) return;
+        prober = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "edt-monitor");
+            t.setDaemon(true);
+            return t;
+        });
+        prober.scheduleAtFixedRate(this::probe, PROBE_INTERVAL_MS, PROBE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    synchronized void stop() {
+        if (prober != null) prober.shutdownNow();
+        prober = null;
+    }
+
+    /** Records a UI action that began at {@code startNanos} (from System.nanoTime) and just finished. */
+    void record(String action, long startNanos) {
+        actions.computeIfAbsent(action, k -> new LatencyHistogram()).recordNanos(System.nanoTime() - startNanos);
+    }
+
+    long getStalls() {
+        return stalls.get();
+    }
+
+    /** One-line summary for the overlay. */
+    String summary() {
+        return String.format("EDT lag %.1f ms (p99 %.1f, max %.1f) · stalls %d",
+                lastLagNanos / 1e6, edtLag.percentileMicros(99) / 1e3, edtLag.percentileMicros(100) / 1e3, stalls.get());
+    }
+
+    Map<String, Object> toMap() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("edtLag", edtLag.toMap());
+        m.put("stalls", stalls.get());
+        Map<String, Object> a = new LinkedHashMap<>();
+        actions.forEach((name, h) -> a.put(name, h.toMap()));
+        m.put("actions", a);
+        return m;
+    }
+
+    /** Plain-text table of EDT lag and every recorded action. */
+    String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-18s %8s %10s %10s %10s %10s%n", "metric", "count", "p50 ms", "p95 ms", "p99 ms", "max ms"));
+        row(sb, "edt-lag", edtLag);
+        actions.forEach((name, h) -> row(sb, name, h));
+        sb.append("stalls over ").append(STALL_MS).append(" ms: ").append(stalls.get()).append('\n');
+        return sb.toString();
+    }
+
+    private static void row(StringBuilder sb, String name, LatencyHistogram h) {
+        sb.append(String.format("%-18s %8d %10.1f %10.1f %10.1f %10.1f%n", name, h.getCount(),
+                h.percentileMicros(50) / 1e3, h.percentileMicros(95) / 1e3,
+                h.percentileMicros(99) / 1e3, h.percentileMicros(100) / 1e3));
+    }
+
+    private void probe() {
+        if (!probeInFlight.compareAndSet(false, true)) return;
+        long posted = System.nanoTime();
+        SwingUtilities.invokeLater(() -> {
+            long lag = System.nanoTime() - posted;
+            edtLag.recordNanos(lag);
+            lastLagNanos = lag;
+            if (lag > TimeUnit.MILLISECONDS.toNanos(STALL_MS)) stalls.incrementAndGet();
+            probeInFlight.set(false);
+        });
+    }
+}
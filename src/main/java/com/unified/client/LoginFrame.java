@@ -118,12 +118,22 @@ class LoginFrame extends JFrame {
             JOptionPane.showMessageDialog(this, "Please enter username and password", "Missing info", JOptionPane.WARNING_MESSAGE);
             return;
         }
-        boolean ok = controller.login(username, password);
-        if (!ok) {
-            JOptionPane.showMessageDialog(this, "Invalid username or password", "Login failed", JOptionPane.ERROR_MESSAGE);
-            return;
-        }
-        openMain();
+        // The password hash takes a noticeable fraction of a second by design; keep the EDT free meanwhile
+        loginButton.setEnabled(false);
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        EdtBridge.deliver(controller.loginAsync(username, password), ok -> {
+            loginButton.setEnabled(true);
+            setCursor(Cursor.getDefaultCursor());
+            if (!ok) {
+                JOptionPane.showMessageDialog(this, "Invalid username or password", "Login failed", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            openMain();
+        }, t -> {
+            loginButton.setEnabled(true);
+            setCursor(Cursor.getDefaultCursor());
+            JOptionPane.showMessageDialog(this, "Login failed: " + t.getMessage(), "Login failed", JOptionPane.ERROR_MESSAGE);
+        });
     }
 
     private void showRegistration() {
@@ -3,18 +3,48 @@ package com.unified.client;
 import com.unified.model.*;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.event.ListSelectionEvent;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 
 class MainFrame extends JFrame {
+    private static final int JOIN_PAGE_SIZE = 20;
+    /** Typing pause before the Join dialog queries the directory. */
+    private static final int JOIN_FILTER_DEBOUNCE_MS = 150;
+
     private final ClientController controller;
 
     private final DefaultListModel<Channel> channelModel = new DefaultListModel<>();
     private final JList<Channel> channelList = new JList<>(channelModel);
+    private final JLabel channelHeader = new JLabel("Channels");
+    private final AnnouncementInbox.Listener inboxListener = this::onInboxDelivered;
+    private final Outbox.Listener outboxListener = entry -> SwingUtilities.invokeLater(() -> onOutboxChanged(entry));
 
-    private final JTextArea chatArea = new JTextArea();
+    private final MessageListModel messageModel;
+    private final JList<Message> messageList;
+    private boolean scrollingToLatest;
+    private final UiUpdateCoordinator updates;
+    private final EdtMonitor monitor = EdtMonitor.getDefault();
+    private final JLabel perfOverlay = new JLabel();
+    private final Timer perfOverlayTimer = new Timer(1000, e -> perfOverlay.setText(monitor.summary()));
+    private final EdtBridge.Latest<List<Channel>> channelLoad = new EdtBridge.Latest<>();
+    private final EdtBridge.Latest<ClientController.MessagePage> messageLoad = new EdtBridge.Latest<>();
+    private final EdtBridge.Latest<ClientController.MessagePage> olderLoad = new EdtBridge.Latest<>();
+    private final EdtBridge.Latest<List<Message>> searchRequest = new EdtBridge.Latest<>();
     private final JTextField input = new JTextField();
     private final JButton send = new JButton("Send");
 
@@ -22,6 +52,7 @@ class MainFrame extends JFrame {
     private final JButton joinBtn = new JButton("Join Channel");
     private final JButton searchBtn = new JButton("Search");
     private final JButton exportBtn = new JButton("Export Chat");
+    private final JButton exportAllBtn = new JButton("Export All");
     private final JButton profileBtn = new JButton("Profile");
     private final JButton logoutBtn = new JButton("Logout");
     private final JButton sendFileBtn = new JButton("Send File");
@@ -30,11 +61,18 @@ class MainFrame extends JFrame {
     MainFrame(ClientController controller) {
         super("Unified - Chats");
         this.controller = controller;
+        this.messageModel = new MessageListModel(controller);
+        this.messageList = new JList<>(messageModel);
+        this.updates = new UiUpdateCoordinator(controller, channelModel, channelList, messageModel, this::onMessagesShown,
+                Integer.parseInt(System.getenv().getOrDefault("UNIFIED_UI_FPS", String.valueOf(UiUpdateCoordinator.DEFAULT_FPS))));
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setMinimumSize(new Dimension(1000, 640));
         buildUI();
         wireEvents();
         loadChannels();
+        updates.start();
+        controller.getAnnouncementInbox().addListener(inboxListener);
+        controller.getOutbox().addListener(outboxListener);
         pack();
     }
 
@@ -63,7 +101,6 @@ class MainFrame extends JFrame {
         left.setBackground(new Color(248, 248, 248));
         
         // Channel list header
-        JLabel channelHeader = new JLabel("Channels");
         channelHeader.setFont(new Font("Segoe UI", Font.BOLD, 16));
         channelHeader.setForeground(new Color(51, 98, 140));
         channelHeader.setBorder(BorderFactory.createEmptyBorder(5, 8, 10, 8));
@@ -122,16 +159,18 @@ class MainFrame extends JFrame {
         channelOps.add(createBtn);
         channelOps.add(joinBtn);
         
-        JPanel chatOps = new JPanel(new GridLayout(3, 1, 4, 4));
+        JPanel chatOps = new JPanel(new GridLayout(4, 1, 4, 4));
         chatOps.setBackground(new Color(248, 248, 248));
         chatOps.setBorder(BorderFactory.createTitledBorder(
             BorderFactory.createLineBorder(new Color(200, 200, 200)), "Chat"));
         
         styleButton(searchBtn, new Color(156, 39, 176), Color.WHITE);
         styleButton(exportBtn, new Color(255, 152, 0), Color.WHITE);
+        styleButton(exportAllBtn, new Color(230, 126, 34), Color.WHITE);
         styleButton(sendFileBtn, new Color(96, 125, 139), Color.WHITE);
         chatOps.add(searchBtn);
         chatOps.add(exportBtn);
+        chatOps.add(exportAllBtn);
         chatOps.add(sendFileBtn);
         
         JPanel userOps = new JPanel(new GridLayout(3, 1, 4, 4));
@@ -175,22 +214,46 @@ class MainFrame extends JFrame {
         chatHeader.setFont(new Font("Segoe UI", Font.BOLD, 16));
         chatHeader.setForeground(new Color(51, 98, 140));
         chatHeader.setBorder(BorderFactory.createEmptyBorder(5, 8, 10, 8));
-        right.add(chatHeader, BorderLayout.NORTH);
-
-        // Enhanced chat area
-        chatArea.setEditable(false);
-        chatArea.setFont(new Font("Segoe UI", Font.PLAIN, 13));
-        chatArea.setLineWrap(true);
-        chatArea.setWrapStyleWord(true);
-        chatArea.setBackground(new Color(250, 250, 250));
-        chatArea.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
-        
-        JScrollPane chatScroll = new JScrollPane(chatArea);
+        JPanel headerRow = new JPanel(new BorderLayout());
+        headerRow.setOpaque(false);
+        headerRow.add(chatHeader, BorderLayout.WEST);
+        // Debug overlay: Ctrl+Shift+P toggles live EDT numbers, Ctrl+Shift+R shows the full report
+        perfOverlay.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 11));
+        perfOverlay.setForeground(new Color(120, 120, 120));
+        perfOverlay.setVisible(false);
+        headerRow.add(perfOverlay, BorderLayout.EAST);
+        right.add(headerRow, BorderLayout.NORTH);
+
+        // Virtualized message list: fixed-height cells, so only visible rows are measured and painted
+        messageList.setCellRenderer(new MessageCellRenderer());
+        messageList.setFixedCellHeight(MessageCellRenderer.CELL_HEIGHT);
+        messageList.setBackground(new Color(250, 250, 250));
+        messageList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+
+        JScrollPane chatScroll = new JScrollPane(messageList);
         chatScroll.setBorder(BorderFactory.createCompoundBorder(
             BorderFactory.createLineBorder(new Color(220, 220, 220), 1),
             BorderFactory.createEmptyBorder(0, 0, 0, 0)
         ));
+        messageList.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) retryFailedSend(messageList.locationToIndex(e.getPoint()));
+            }
+        });
         chatScroll.getVerticalScrollBar().setUnitIncrement(16);
+        chatScroll.getVerticalScrollBar().addAdjustmentListener(e -> {
+            // Reaching the top pulls in the previous page and keeps the same rows in view
+            if (scrollingToLatest || e.getValueIsAdjusting() || e.getValue() > 0 || !messageModel.hasOlder()) return;
+            if (olderLoad.isPending()) return;
+            Adjustable bar = e.getAdjustable();
+            olderLoad.submit(controller.loadMessagesBeforeAsync(messageModel.getChannel(), messageModel.getFirstLoaded(),
+                    MessageListModel.PAGE_SIZE), page -> {
+                int added = messageModel.prepend(page);
+                if (added > 0) SwingUtilities.invokeLater(() ->
+                        bar.setValue(bar.getValue() + added * MessageCellRenderer.CELL_HEIGHT));
+            }, this::showLoadError);
+        });
         right.add(chatScroll, BorderLayout.CENTER);
 
         // Enhanced input area
@@ -221,6 +284,18 @@ class MainFrame extends JFrame {
     }
 
     private void wireEvents() {
+        InputMap keys = getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW);
+        ActionMap actions = getRootPane().getActionMap();
+        int mods = InputEvent.CTRL_DOWN_MASK | InputEvent.SHIFT_DOWN_MASK;
+        keys.put(KeyStroke.getKeyStroke(KeyEvent.VK_P, mods), "perfOverlay");
+        keys.put(KeyStroke.getKeyStroke(KeyEvent.VK_R, mods), "perfReport");
+        actions.put("perfOverlay", new AbstractAction() {
+            @Override public void actionPerformed(ActionEvent e) { togglePerfOverlay(); }
+        });
+        actions.put("perfReport", new AbstractAction() {
+            @Override public void actionPerformed(ActionEvent e) { showPerfReport(); }
+        });
+
         channelList.addListSelectionListener(this::onChannelSelected);
         send.addActionListener(e -> onSend());
         input.addActionListener(e -> onSend());
@@ -229,6 +304,7 @@ class MainFrame extends JFrame {
         joinBtn.addActionListener(e -> onJoinChannel());
         searchBtn.addActionListener(e -> onSearch());
         exportBtn.addActionListener(e -> onExport());
+        exportAllBtn.addActionListener(e -> onExportAll());
         profileBtn.addActionListener(e -> onProfile());
         logoutBtn.addActionListener(e -> onLogout());
         sendFileBtn.addActionListener(e -> onSendFile());
@@ -236,47 +312,77 @@ class MainFrame extends JFrame {
     }
 
     private void loadChannels() {
-        channelModel.clear();
-        List<Channel> list = controller.getUserChannels();
-        for (Channel c : list) channelModel.addElement(c);
-        if (!list.isEmpty()) channelList.setSelectedIndex(0);
+        channelLoad.submit(controller.loadUserChannelsAsync(), list -> {
+            updates.applyChannelOrder(list);
+            if (channelList.isSelectionEmpty() && !list.isEmpty()) channelList.setSelectedIndex(0);
+        }, this::showLoadError);
     }
 
     private void refreshMessages(Channel c) {
-        chatArea.setText("");
-        if (c == null) return;
-        List<Message> msgs = controller.getMessages(c);
-        User cur = controller.getCurrentUser();
-        
-        for (Message m : msgs) {
-            boolean mine = cur != null && m.getSenderId().equals(cur.getUserId());
-            String name = controller.getUserDisplayName(m.getSenderId());
-            String timestamp = m.getTimestamp().toString().replace("T", " ");
-            String content = m.getFormattedContent();
-            
-            // Format message with better visual separation
-            if (mine) {
-                chatArea.append(String.format("▶ %s (You) - %s\n", name, timestamp));
-                chatArea.append(String.format("  %s\n\n", content));
-            } else {
-                chatArea.append(String.format("◀ %s - %s\n", name, timestamp));
-                chatArea.append(String.format("  %s\n\n", content));
-            }
+        // Switching channels loads one page in the background; staying on a channel only appends what is new
+        if (messageModel.getChannel() != c) {
+            showChannel(c, System.nanoTime());
+            return;
         }
-        
+        onMessagesShown(c, messageModel.appendNew());
+    }
+
+    private void showChannel(Channel c, long startNanos) {
+        olderLoad.cancel();
+        messageModel.clear();
+        if (c == null) {
+            messageLoad.cancel();
+            return;
+        }
+        messageLoad.submit(controller.loadLatestMessagesAsync(c, MessageListModel.PAGE_SIZE), page -> {
+            messageModel.setPage(page);
+            messageModel.appendNew();   // anything sent while the page was loading
+            onMessagesShown(c, messageModel.getSize());
+            monitor.record("channel-switch", startNanos);
+        }, this::showLoadError);
+    }
+
+    private void togglePerfOverlay() {
+        boolean show = !perfOverlay.isVisible();
+        perfOverlay.setText(monitor.summary());
+        perfOverlay.setVisible(show);
+        if (show) perfOverlayTimer.start(); else perfOverlayTimer.stop();
+    }
+
+    private void showPerfReport() {
+        JTextArea area = new JTextArea(monitor.report());
+        area.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        area.setEditable(false);
+        JOptionPane.showMessageDialog(this, new JScrollPane(area), "Client performance", JOptionPane.PLAIN_MESSAGE);
+    }
+
+    private void showLoadError(Throwable t) {
+        JOptionPane.showMessageDialog(this, "Loading failed: " + t.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+    }
+
+    private void onMessagesShown(Channel c, int added) {
         controller.markAllRead(c);
         channelList.repaint();
-        
+        updateAnnouncementBadge();
+
         // Auto-scroll to bottom
-        SwingUtilities.invokeLater(() -> {
-            chatArea.setCaretPosition(chatArea.getDocument().getLength());
-        });
+        if (added > 0) {
+            scrollingToLatest = true;
+            SwingUtilities.invokeLater(() -> {
+                messageList.ensureIndexIsVisible(messageModel.getSize() - 1);
+                scrollingToLatest = false;
+            });
+        }
     }
 
     private void onChannelSelected(ListSelectionEvent e) {
-        if (e.getValueIsAdjusting()) return;
+        if (e.getValueIsAdjusting() || updates.isApplying()) return;
         Channel c = channelList.getSelectedValue();
-        refreshMessages(c);
+        if (messageModel.getChannel() != c) {
+            showChannel(c, System.nanoTime());
+        } else {
+            refreshMessages(c);
+        }
         input.setEnabled(controller.canSendIn(c));
         send.setEnabled(controller.canSendIn(c));
     }
@@ -290,26 +396,49 @@ class MainFrame extends JFrame {
             JOptionPane.showMessageDialog(this, "You don't have permission to send in this channel", "Info", JOptionPane.WARNING_MESSAGE);
             return;
         }
-        boolean ok = controller.sendTextMessage(c, text);
-        if (ok) {
+        // Shown at once as pending; the outbox listener swaps in the stored copy or marks it failed
+        Outbox.Entry entry = controller.sendTextMessageAsync(c, text);
+        if (entry != null) {
             input.setText("");
-            refreshMessages(c);
+            showPending(entry);
+            monitor.record("send-echo", entry.getSubmittedNanos());
         }
     }
 
+    private void showPending(Outbox.Entry entry) {
+        messageModel.addPending(entry);
+        scrollingToLatest = true;
+        SwingUtilities.invokeLater(() -> {
+            messageList.ensureIndexIsVisible(messageModel.getSize() - 1);
+            scrollingToLatest = false;
+        });
+    }
+
+    private void onOutboxChanged(Outbox.Entry entry) {
+        if (entry.getState() == Outbox.State.SENT) monitor.record("send-ack", entry.getSubmittedNanos());
+        if (entry.getChannel() != messageModel.getChannel()) return;
+        messageModel.outboxChanged(entry);
+        if (entry.getState() == Outbox.State.SENT) onMessagesShown(entry.getChannel(), 0);
+    }
+
+    private void retryFailedSend(int row) {
+        Outbox.Entry entry = row < 0 ? null : messageModel.getPendingAt(row);
+        if (entry != null && controller.retrySend(entry)) messageModel.outboxChanged(entry);
+    }
+
     private void onCreateChannel() {
         String[] opts = {"Direct Message", "Group Chat", "Course Channel"};
         int idx = JOptionPane.showOptionDialog(this, "Select channel type", "New Channel",
                 JOptionPane.DEFAULT_OPTION, JOptionPane.PLAIN_MESSAGE, null, opts, opts[0]);
         if (idx == 0) {
-            String other = JOptionPane.showInputDialog(this, "Enter the other username:");
+            String other = promptForUsername();
             if (other == null || other.trim().isEmpty()) return;
             Channel ch = controller.createDirectMessage(other.trim());
             if (ch == null) {
                 JOptionPane.showMessageDialog(this, "User not found", "Failed", JOptionPane.ERROR_MESSAGE);
                 return;
             }
-            channelModel.addElement(ch);
+            if (!channelModel.contains(ch)) channelModel.addElement(ch);
             channelList.setSelectedValue(ch, true);
         } else if (idx == 1) {
             JTextField name = new JTextField();
@@ -352,14 +481,100 @@ class MainFrame extends JFrame {
         }
     }
 
+    private String promptForUsername() {
+        JTextField field = new JTextField(24);
+        DefaultListModel<User> suggestions = new DefaultListModel<>();
+        JList<User> list = new JList<>(suggestions);
+        list.setVisibleRowCount(6);
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        list.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> l, Object value, int index, boolean isSelected, boolean cellHasFocus) {
+                super.getListCellRendererComponent(l, value, index, isSelected, cellHasFocus);
+                User u = (User) value;
+                setText(u.getUsername() + "  ·  " + controller.getUserDisplayName(u.getUserId()));
+                return this;
+            }
+        });
+        field.getDocument().addDocumentListener(new DocumentListener() {
+            private void update() {
+                suggestions.clear();
+                for (User u : controller.suggestUsers(field.getText(), 8)) suggestions.addElement(u);
+            }
+            @Override public void insertUpdate(DocumentEvent e) { update(); }
+            @Override public void removeUpdate(DocumentEvent e) { update(); }
+            @Override public void changedUpdate(DocumentEvent e) { update(); }
+        });
+        JPanel p = new JPanel(new BorderLayout(6, 6));
+        JPanel north = new JPanel(new BorderLayout(4, 4));
+        north.add(new JLabel("Enter the other username:"), BorderLayout.NORTH);
+        north.add(field, BorderLayout.CENTER);
+        p.add(north, BorderLayout.NORTH);
+        p.add(new JScrollPane(list), BorderLayout.CENTER);
+        int res = JOptionPane.showConfirmDialog(this, p, "New Direct Message", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (res != JOptionPane.OK_OPTION) return null;
+        User picked = list.getSelectedValue();
+        return picked != null ? picked.getUsername() : field.getText().trim();
+    }
+
     private void onJoinChannel() {
-        List<Channel> avail = controller.getAvailableChannels();
-        if (avail.isEmpty()) {
-            JOptionPane.showMessageDialog(this, "No channels available", "Info", JOptionPane.INFORMATION_MESSAGE);
-            return;
-        }
-        Channel sel = (Channel) JOptionPane.showInputDialog(this, "Select a channel to join:", "Join Channel",
-                JOptionPane.PLAIN_MESSAGE, null, avail.toArray(), avail.get(0));
+        JTextField filter = new JTextField(24);
+        DefaultListModel<Channel> results = new DefaultListModel<>();
+        JList<Channel> list = new JList<>(results);
+        list.setVisibleRowCount(JOIN_PAGE_SIZE);
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        list.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> l, Object value, int index, boolean isSelected, boolean cellHasFocus) {
+                super.getListCellRendererComponent(l, value, index, isSelected, cellHasFocus);
+                Channel c = (Channel) value;
+                setText(controller.getChannelDisplayName(c) + "  ·  " + c.getParticipantCount() + " members");
+                return this;
+            }
+        });
+        JButton more = new JButton("Load more");
+        JLabel status = new JLabel(" ");
+        int[] nextOffset = {0};
+        // Directory lookups run on the loader; a newer keystroke or page request supersedes the pending one
+        EdtBridge.Latest<ChannelDirectory.Page> discovery = new EdtBridge.Latest<>();
+        Runnable loadPage = () -> {
+            boolean first = nextOffset[0] == 0;
+            more.setEnabled(false);
+            status.setText("Searching…");
+            discovery.submit(controller.discoverChannelsAsync(filter.getText(), nextOffset[0], JOIN_PAGE_SIZE), page -> {
+                for (Channel c : page.getChannels()) results.addElement(c);
+                nextOffset[0] = page.getNextOffset();
+                more.setEnabled(page.hasMore());
+                status.setText(results.isEmpty() ? "No channels available" : " ");
+                if (first && !results.isEmpty()) list.setSelectedIndex(0);
+            }, t -> status.setText("Search failed: " + t.getMessage()));
+        };
+        Runnable reload = () -> {
+            results.clear();
+            nextOffset[0] = 0;
+            loadPage.run();
+        };
+        Timer debounce = new Timer(JOIN_FILTER_DEBOUNCE_MS, e -> reload.run());
+        debounce.setRepeats(false);
+        more.addActionListener(e -> loadPage.run());
+        filter.getDocument().addDocumentListener(new DocumentListener() {
+            @Override public void insertUpdate(DocumentEvent e) { debounce.restart(); }
+            @Override public void removeUpdate(DocumentEvent e) { debounce.restart(); }
+            @Override public void changedUpdate(DocumentEvent e) { debounce.restart(); }
+        });
+        reload.run();
+        JPanel south = new JPanel(new BorderLayout(6, 0));
+        south.add(status, BorderLayout.CENTER);
+        south.add(more, BorderLayout.EAST);
+        JPanel p = new JPanel(new BorderLayout(6, 6));
+        p.add(filter, BorderLayout.NORTH);
+        p.add(new JScrollPane(list), BorderLayout.CENTER);
+        p.add(south, BorderLayout.SOUTH);
+        int res = JOptionPane.showConfirmDialog(this, p, "Join Channel", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        debounce.stop();
+        discovery.cancel();
+        if (res != JOptionPane.OK_OPTION) return;
+        Channel sel = list.getSelectedValue();
         if (sel == null) return;
         if (controller.joinChannel(sel)) {
             if (!channelModel.contains(sel)) channelModel.addElement(sel);
@@ -370,41 +585,122 @@ class MainFrame extends JFrame {
     private void onSearch() {
         String kw = JOptionPane.showInputDialog(this, "Enter keyword:");
         if (kw == null || kw.trim().isEmpty()) return;
-        List<Message> rs = controller.searchMessages(kw.trim());
-        if (rs.isEmpty()) {
-            JOptionPane.showMessageDialog(this, "No messages found", "Search Results", JOptionPane.INFORMATION_MESSAGE);
-            return;
-        }
         JTextArea area = new JTextArea(20, 60);
         area.setEditable(false);
-        for (Message m : rs) {
-            String channelName = controller.getChannelDisplayName(findChannelById(m.getChannelId()));
-            String name = controller.getUserDisplayName(m.getSenderId());
-            area.append(String.format("[%s] (%s) %s: %s\n", m.getTimestamp(), channelName, name, m.getFormattedContent()));
-        }
-        JOptionPane.showMessageDialog(this, new JScrollPane(area), "Search Results", JOptionPane.PLAIN_MESSAGE);
-    }
+        JDialog dlg = new JDialog(this, "Searching for \"" + kw.trim() + "\"…", false);
+        dlg.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+        dlg.add(new JScrollPane(area));
+        dlg.pack();
+        dlg.setLocationRelativeTo(this);
 
-    private Channel findChannelById(String id) {
-        for (int i = 0; i < channelModel.size(); i++) {
-            Channel c = channelModel.get(i);
-            if (c.getChannelId().equals(id)) return c;
-        }
-        return null;
+        // Hits stream in channel by channel; closing the window stops the search
+        long searchStart = System.nanoTime();
+        var search = controller.searchMessagesAsync(kw.trim(), hits -> SwingUtilities.invokeLater(() -> {
+            if (!dlg.isDisplayable()) return;
+            for (Message m : hits) {
+                Channel ch = controller.getChannel(m.getChannelId());
+                if (ch == null) continue;   // removed since the search started
+                String channelName = controller.getChannelDisplayName(ch);
+                String name = controller.getUserDisplayName(m.getSenderId());
+                area.append(String.format("[%s] (%s) %s: %s\n", m.getTimestamp(), channelName, name, m.getFormattedContent()));
+            }
+        }));
+        dlg.addWindowListener(new WindowAdapter() {
+            @Override public void windowClosed(WindowEvent e) { search.cancel(false); }
+        });
+        searchRequest.submit(search,
+                rs -> {
+                    monitor.record("search", searchStart);
+                    dlg.setTitle(rs.isEmpty() ? "No messages found" : "Search Results (" + rs.size() + ")");
+                },
+                t -> dlg.setTitle("Search failed: " + t.getMessage()));
+        dlg.setVisible(true);
     }
 
     private void onExport() {
         Channel c = channelList.getSelectedValue();
         if (c == null) return;
         JFileChooser fc = new JFileChooser();
+        fc.setAcceptAllFileFilterUsed(false);
+        fc.addChoosableFileFilter(new FileNameExtensionFilter("Plain text (*.txt)", "txt"));
+        fc.addChoosableFileFilter(new FileNameExtensionFilter("JSON Lines (*.jsonl)", "jsonl"));
+        fc.addChoosableFileFilter(new FileNameExtensionFilter("CSV (*.csv)", "csv"));
         fc.setSelectedFile(new File("chat_" + c.getChannelId() + ".txt"));
         int res = fc.showSaveDialog(this);
         if (res == JFileChooser.APPROVE_OPTION) {
-            boolean ok = controller.exportChatHistory(c, fc.getSelectedFile());
-            JOptionPane.showMessageDialog(this, ok ? "Exported" : "Export failed", "Export Chat", ok ? JOptionPane.INFORMATION_MESSAGE : JOptionPane.ERROR_MESSAGE);
+            File target = fc.getSelectedFile();
+            String ext = ((FileNameExtensionFilter) fc.getFileFilter()).getExtensions()[0];
+            if (!target.getName().toLowerCase().endsWith("." + ext)) {
+                String name = target.getName();
+                int dot = name.lastIndexOf('.');
+                target = new File(target.getParentFile(), (dot > 0 ? name.substring(0, dot) : name) + "." + ext);
+            }
+            exportBtn.setEnabled(false);
+            EdtBridge.deliver(controller.exportChatHistoryAsync(c, target), ok -> {
+                exportBtn.setEnabled(true);
+                JOptionPane.showMessageDialog(this, ok ? "Exported" : "Export failed", "Export Chat", ok ? JOptionPane.INFORMATION_MESSAGE : JOptionPane.ERROR_MESSAGE);
+            }, t -> {
+                exportBtn.setEnabled(true);
+                showLoadError(t);
+            });
         }
     }
 
+    private void onExportAll() {
+        if (channelModel.isEmpty()) return;
+        String[] formats = {"Plain text", "JSON Lines", "CSV"};
+        int fmt = JOptionPane.showOptionDialog(this, "Export format for each channel", "Export All Chats",
+                JOptionPane.DEFAULT_OPTION, JOptionPane.PLAIN_MESSAGE, null, formats, formats[0]);
+        if (fmt < 0) return;
+        JFileChooser fc = new JFileChooser();
+        fc.setFileFilter(new FileNameExtensionFilter("ZIP archive (*.zip)", "zip"));
+        fc.setSelectedFile(new File("unified_chats.zip"));
+        if (fc.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        File target = fc.getSelectedFile();
+
+        ChatArchiveExporter exporter = controller.newArchiveExport(new ExportOptions(ExportOptions.Format.values()[fmt]));
+        ProgressMonitor monitor = new ProgressMonitor(this, "Exporting chats to " + target.getName(), null, 0, channelModel.size());
+        monitor.setMillisToDecideToPopup(200);
+        exportAllBtn.setEnabled(false);
+
+        new SwingWorker<Integer, Integer>() {
+            @Override
+            protected Integer doInBackground() throws Exception {
+                return exporter.exportTo(target.toPath(), (done, total, ch) -> publish(done));
+            }
+
+            @Override
+            protected void process(List<Integer> chunks) {
+                int done = chunks.get(chunks.size() - 1);
+                monitor.setProgress(done);
+                monitor.setNote(done + " channels exported");
+            }
+
+            @Override
+            protected void done() {
+                monitor.close();
+                exportAllBtn.setEnabled(true);
+                try {
+                    int n = get();
+                    JOptionPane.showMessageDialog(MainFrame.this, "Exported " + n + " channels", "Export All Chats", JOptionPane.INFORMATION_MESSAGE);
+                } catch (CancellationException | InterruptedException ex) {
+                    // cancelled by the user; nothing to report
+                } catch (ExecutionException ex) {
+                    if (ex.getCause() instanceof CancellationException) return;
+                    JOptionPane.showMessageDialog(MainFrame.this, "Export failed: " + ex.getCause().getMessage(), "Export All Chats", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+
+        // ProgressMonitor only reports cancellation when polled, so poll it until the export finishes.
+        Timer poll = new Timer(200, null);
+        poll.addActionListener(e -> {
+            if (monitor.isCanceled()) exporter.cancel();
+            if (monitor.isCanceled() || exportAllBtn.isEnabled()) poll.stop();
+        });
+        poll.start();
+    }
+
     private void onProfile() {
         User u = controller.getCurrentUser();
         if (u == null) return;
@@ -425,7 +721,27 @@ class MainFrame extends JFrame {
         JOptionPane.showMessageDialog(this, "Saved", "Profile", JOptionPane.INFORMATION_MESSAGE);
     }
 
+    private void onInboxDelivered(String userId, AnnouncementInbox.Entry entry) {
+        User cur = controller.getCurrentUser();
+        if (cur != null && cur.getUserId().equals(userId)) SwingUtilities.invokeLater(this::onAnnouncementDelivered);
+    }
+
+    private void onAnnouncementDelivered() {
+        updateAnnouncementBadge();
+        channelList.repaint();
+        Toolkit.getDefaultToolkit().beep();
+    }
+
+    private void updateAnnouncementBadge() {
+        int unread = controller.getUnreadAnnouncementCount();
+        channelHeader.setText(unread > 0 ? "Channels  📢 " + unread : "Channels");
+    }
+
     private void onLogout() {
+        controller.getAnnouncementInbox().removeListener(inboxListener);
+        controller.getOutbox().removeListener(outboxListener);
+        updates.stop();
+        perfOverlayTimer.stop();
         controller.logout();
         SwingUtilities.invokeLater(() -> {
             dispose();
@@ -444,8 +760,8 @@ class MainFrame extends JFrame {
         File f = fc.getSelectedFile();
         String type = JOptionPane.showInputDialog(this, "MIME type:", "application/octet-stream");
         if (type == null || type.isBlank()) type = "application/octet-stream";
-        boolean ok = controller.sendFileMessage(c, f.getName(), f.toURI().toString(), f.length(), type);
-        if (ok) refreshMessages(c);
+        Outbox.Entry entry = controller.sendFileMessageAsync(c, f.getName(), f.toURI().toString(), f.length(), type);
+        if (entry != null) showPending(entry);
     }
 
     private void onAnnounce() {
@@ -466,9 +782,37 @@ class MainFrame extends JFrame {
         south.add(new JLabel("Type:"));
         south.add(type);
         p.add(south, BorderLayout.SOUTH);
+        DefaultListModel<CourseChannel> otherModel = new DefaultListModel<>();
+        for (Channel other : controller.getUserChannels()) {
+            if (other instanceof CourseChannel && other != cc && controller.canSendIn(other)) otherModel.addElement((CourseChannel) other);
+        }
+        JList<CourseChannel> others = new JList<>(otherModel);
+        others.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected, boolean cellHasFocus) {
+                super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+                setText(controller.getChannelDisplayName((Channel) value));
+                return this;
+            }
+        });
+        if (!otherModel.isEmpty()) {
+            others.setVisibleRowCount(Math.min(4, otherModel.size()));
+            JPanel east = new JPanel(new BorderLayout(4, 4));
+            east.add(new JLabel("Also post to:"), BorderLayout.NORTH);
+            east.add(new JScrollPane(others), BorderLayout.CENTER);
+            p.add(east, BorderLayout.EAST);
+        }
         int res = JOptionPane.showConfirmDialog(this, p, "Announcement", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
         if (res != JOptionPane.OK_OPTION) return;
-        boolean ok = controller.sendAnnouncement(cc, content.getText().trim(), important.isSelected(), (String) type.getSelectedItem());
+        boolean ok;
+        if (others.getSelectedValuesList().isEmpty()) {
+            ok = controller.sendAnnouncement(cc, content.getText().trim(), important.isSelected(), (String) type.getSelectedItem());
+        } else {
+            List<CourseChannel> sections = new ArrayList<>();
+            sections.add(cc);
+            sections.addAll(others.getSelectedValuesList());
+            ok = controller.crossPostAnnouncement(sections, content.getText().trim(), important.isSelected(), (String) type.getSelectedItem()) > 0;
+        }
         if (ok) refreshMessages(cc);
     }
 }
@@ -0,0 +1,57 @@
+package com.unified.client;
+
+import com.unified.model.Message;
+
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * Two-line, fixed-height renderer for the message list: sender and time, then the content.
+ * One component is reused for every row, only rows in the viewport are ever painted, and their
+ * text comes from the model's {@link MessageRenderCache}.
+ */
+class MessageCellRenderer extends JPanel implements ListCellRenderer<Message> {
+    private static final long serialVersionUID = 1L;
+
+    static final int CELL_HEIGHT = 46;
+
+    private static final Color MINE = new Color(51, 98, 140);
+    private static final Color OTHERS = new Color(90, 90, 90);
+    private static final Color PENDING = new Color(150, 150, 150);
+    private static final Color FAILED = new Color(169, 46, 34);
+
+    private final JLabel header = new JLabel();
+    private final JLabel body = new JLabel();
+
+    MessageCellRenderer() {
+        super(new BorderLayout(0, 2));
+        setBorder(BorderFactory.createEmptyBorder(4, 10, 4, 10));
+        header.setFont(new Font("Segoe UI", Font.BOLD, 12));
+        body.setFont(new Font("Segoe UI", Font.PLAIN, 13));
+        add(header, BorderLayout.NORTH);
+        add(body, BorderLayout.CENTER);
+    }
+
+    @Override
+    public Component getListCellRendererComponent(JList<? extends Message> list, Message m, int index,
+                                                  boolean isSelected, boolean cellHasFocus) {
+        MessageListModel model = (MessageListModel) list.getModel();
+        MessageRenderCache.Lines lines = model.linesAt(index);
+        Outbox.Entry outgoing = model.getPendingAt(index);
+        if (outgoing == null) {
+            header.setText(lines.header);
+            header.setForeground(lines.mine ? MINE : OTHERS);
+        } else if (outgoing.getState() == Outbox.State.FAILED) {
+            header.setText("▶ " + lines.senderName + " (You) - not sent: " + outgoing.getError() + " · double-click to retry");
+            header.setForeground(FAILED);
+        } else {
+            header.setText("▶ " + lines.senderName + " (You) - sending…");
+            header.setForeground(PENDING);
+        }
+        body.setText(lines.body);
+        body.setForeground(isSelected ? list.getSelectionForeground() : list.getForeground());
+        setToolTipText(lines.body);
+        setBackground(isSelected ? list.getSelectionBackground() : list.getBackground());
+        return this;
+    }
+}
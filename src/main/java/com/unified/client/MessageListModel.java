@@ -0,0 +1,188 @@
+package com.unified.client;
+
+import com.unified.model.Channel;
+import com.unified.model.Message;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * List model over the tail of one channel's history.
+ * Holds a window of messages ending at the newest one; new messages are appended incrementally
+ * and older pages, read in the background by the controller, are prepended on demand, so a switch
+ * or a send never re-reads the whole channel.
+ */
+class MessageListModel extends AbstractListModel<Message> {
+    private static final long serialVersionUID = 1L;
+
+    static final int PAGE_SIZE = 200;
+
+    private final ClientController controller;
+    private final MessageRenderCache renderCache;
+    private Channel channel;
+    private int firstLoaded;          // channel position of loaded.get(0)
+    private final List<Message> loaded = new ArrayList<>();
+    private final List<Outbox.Entry> pending = new ArrayList<>();   // optimistic rows shown after 'loaded'
+
+    MessageListModel(ClientController controller) {
+        this.controller = controller;
+        this.renderCache = new MessageRenderCache(controller);
+    }
+
+    @Override
+    public int getSize() {
+        return loaded.size() + pending.size();
+    }
+
+    @Override
+    public Message getElementAt(int index) {
+        return index < loaded.size() ? loaded.get(index) : pending.get(index - loaded.size()).getMessage();
+    }
+
+    /** Display lines for a row, formatted once per message while it stays in the view. */
+    MessageRenderCache.Lines linesAt(int index) {
+        return renderCache.get(getElementAt(index));
+    }
+
+    /** The outbox entry shown at a row, or null for a stored message. */
+    Outbox.Entry getPendingAt(int index) {
+        return index < loaded.size() ? null : pending.get(index - loaded.size());
+    }
+
+    Channel getChannel() {
+        return channel;
+    }
+
+    int getFirstLoaded() {
+        return firstLoaded;
+    }
+
+    /** Removes every row; the view shows nothing until the next page arrives. */
+    void clear() {
+        int old = getSize();
+        channel = null;
+        loaded.clear();
+        pending.clear();
+        renderCache.clear();
+        firstLoaded = 0;
+        if (old > 0) fireIntervalRemoved(this, 0, old - 1);
+    }
+
+    /** Replaces the window with a page, normally the latest one of a newly selected channel. */
+    void setPage(ClientController.MessagePage page) {
+        clear();
+        channel = page.channel;
+        firstLoaded = page.from;
+        loaded.addAll(page.messages);
+        Set<String> ids = idsOf(page.messages);
+        for (Outbox.Entry e : controller.getOutbox().unacknowledged(page.channel)) {
+            if (!isStoredIn(e, ids)) pending.add(e);
+        }
+        if (getSize() > 0) fireIntervalAdded(this, 0, getSize() - 1);
+    }
+
+    /** Shows a just-submitted message at the bottom until it is stored. */
+    void addPending(Outbox.Entry entry) {
+        if (entry.getChannel() != channel || pending.contains(entry)) return;
+        pending.add(entry);
+        fireIntervalAdded(this, getSize() - 1, getSize() - 1);
+    }
+
+    /** Repaints an entry's row after its state changed, or swaps it for the stored copy once acknowledged. */
+    void outboxChanged(Outbox.Entry entry) {
+        if (entry.getState() == Outbox.State.SENT) {
+            appendNew();
+            // The stored copy may have been appended earlier, before the acknowledgement arrived
+            int i = pending.indexOf(entry);
+            if (i >= 0) {
+                pending.remove(i);
+                fireIntervalRemoved(this, loaded.size() + i, loaded.size() + i);
+            }
+            return;
+        }
+        int i = pending.indexOf(entry);
+        if (i >= 0) fireContentsChanged(this, loaded.size() + i, loaded.size() + i);
+    }
+
+    /** Synchronously reloads the latest page of a channel. */
+    void setChannel(Channel c) {
+        if (c == null) {
+            clear();
+            return;
+        }
+        int count = controller.getMessageCount(c);
+        int from = Math.max(0, count - PAGE_SIZE);
+        setPage(new ClientController.MessagePage(c, from, controller.getMessages(c, from, count)));
+    }
+
+    /**
+     * Appends messages sent since the last call.
+     * @return the number of rows added
+     */
+    int appendNew() {
+        if (channel == null) return 0;
+        int count = controller.getMessageCount(channel);
+        int end = firstLoaded + loaded.size();
+        if (count < end || !stillAligned(end)) {
+            // Retention or tiering shifted positions under us; start over from the tail.
+            setChannel(channel);
+            return loaded.size();
+        }
+        if (count == end) return 0;
+        List<Message> fresh = controller.getMessages(channel, end, count);
+        int from = loaded.size();
+        loaded.addAll(fresh);
+        if (!fresh.isEmpty()) fireIntervalAdded(this, from, loaded.size() - 1);
+        dropStoredPending(fresh);
+        return fresh.size();
+    }
+
+    boolean hasOlder() {
+        return channel != null && firstLoaded > 0;
+    }
+
+    /**
+     * Prepends a page that ends right before the oldest loaded message; stale pages are ignored.
+     * @return the number of rows added at the top
+     */
+    int prepend(ClientController.MessagePage page) {
+        if (page.channel != channel || page.from + page.messages.size() != firstLoaded) return 0;
+        firstLoaded = page.from;
+        loaded.addAll(0, page.messages);
+        if (!page.messages.isEmpty()) fireIntervalAdded(this, 0, page.messages.size() - 1);
+        return page.messages.size();
+    }
+
+    /** Removes optimistic rows whose stored copy is now among the loaded messages. */
+    private void dropStoredPending(List<Message> stored) {
+        if (pending.isEmpty() || stored.isEmpty()) return;
+        Set<String> ids = idsOf(stored);
+        for (int i = pending.size() - 1; i >= 0; i--) {
+            if (isStoredIn(pending.get(i), ids)) {
+                pending.remove(i);
+                int row = loaded.size() + i;
+                fireIntervalRemoved(this, row, row);
+            }
+        }
+    }
+
+    private static Set<String> idsOf(List<Message> messages) {
+        Set<String> ids = new HashSet<>();
+        for (Message m : messages) ids.add(m.getMessageId());
+        return ids;
+    }
+
+    private static boolean isStoredIn(Outbox.Entry e, Set<String> ids) {
+        Message s = e.getStored();
+        return ids.contains(e.getKey()) || (s != null && ids.contains(s.getMessageId()));
+    }
+
+    private boolean stillAligned(int end) {
+        if (loaded.isEmpty()) return firstLoaded == 0;
+        List<Message> last = controller.getMessages(channel, end - 1, end);
+        return !last.isEmpty() && last.get(0).getMessageId().equals(loaded.get(loaded.size() - 1).getMessageId());
+    }
+}
@@ -0,0 +1,74 @@
+package com.unified.client;
+
+import com.unified.model.Message;
+import com.unified.model.User;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Pre-formatted display lines for the messages in the view, keyed by message ID.
+ * Entries are only valid for the user-directory version they were built against: when a profile
+ * changes the version moves and the whole cache is dropped, so a renamed sender is redrawn.
+ * The owning {@link MessageListModel} clears it whenever the view switches channels.
+ */
+final class MessageRenderCache {
+
+    /** Everything the renderer needs for one message. */
+    static final class Lines {
+        final boolean mine;
+        final String senderName;
+        final String header;
+        final String body;
+
+        private Lines(boolean mine, String senderName, String header, String body) {
+            this.mine = mine;
+            this.senderName = senderName;
+            this.header = header;
+            this.body = body;
+        }
+    }
+
+    private final ClientController controller;
+    private final Map<String, Lines> byId = new HashMap<>();
+    private long directoryVersion = -1;
+    private String viewerId;
+
+    MessageRenderCache(ClientController controller) {
+        this.controller = controller;
+    }
+
+    Lines get(Message m) {
+        User cur = controller.getCurrentUser();
+        String viewer = cur == null ? null : cur.getUserId();
+        long version = controller.getUserDirectory().getVersion();
+        if (version != directoryVersion || !Objects.equals(viewer, viewerId)) {
+            byId.clear();
+            directoryVersion = version;
+            viewerId = viewer;
+        }
+        Lines lines = byId.get(m.getMessageId());
+        if (lines == null) {
+            lines = format(m, viewer);
+            byId.put(m.getMessageId(), lines);
+        }
+        return lines;
+    }
+
+    void clear() {
+        byId.clear();
+    }
+
+    int size() {
+        return byId.size();
+    }
+
+    private Lines format(Message m, String viewer) {
+        boolean mine = m.getSenderId().equals(viewer);
+        String name = controller.getUserDisplayName(m.getSenderId());
+        String timestamp = m.getTimestamp().toString().replace("T", " ");
+        String header = mine ? "▶ " + name + " (You) - " + timestamp : "◀ " + name + " - " + timestamp;
+        return new Lines(mine, name, header, m.getFormattedContent());
+    }
+}
@@ -0,0 +1,22 @@
+package com.unified.client;
+
+import com.unified.model.Channel;
+import com.unified.model.Message;
+
+/**
+ * Delivers an outgoing message to wherever channel history lives.
+ * Implementations must be idempotent on the key: resending with a key that was already
+ * accepted returns the stored message instead of creating a second copy.
+ */
+public interface MessageTransport {
+
+    /**
+     * Sends a message, blocking until it is stored.
+     * @param channel        the target channel
+     * @param message        the message as composed on the client
+     * @param idempotencyKey identifies this send across retries
+     * @return the message as stored, carrying the authoritative ID and timestamp
+     * @throws Exception if the message was not stored; the caller may retry with the same key
+     */
+    Message send(Channel channel, Message message, String idempotencyKey) throws Exception;
+}
@@ -0,0 +1,132 @@
+package com.unified.client;
+
+import com.unified.model.Channel;
+import com.unified.model.Message;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Outgoing messages that are shown before they are stored.
+ * A send returns an entry immediately in state PENDING; a single sender thread then hands it to the
+ * {@link MessageTransport} in submission order, keyed by the client-generated message ID so that a
+ * retry after a lost acknowledgement cannot duplicate it. Acknowledged entries leave the outbox;
+ * failed ones stay until they are retried.
+ */
+public class Outbox {
+
+    public enum State { PENDING, SENT, FAILED }
+
+    /**
+     * Notified on the sender thread whenever an entry is acknowledged or fails.
+     */
+    public interface Listener {
+        void onStateChanged(Entry entry);
+    }
+
+    private static final AtomicLong SEQ = new AtomicLong();
+
+    private final MessageTransport transport;
+    private final Map<String, Entry> byKey = new ConcurrentHashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final ExecutorService sender = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "client-sender");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public Outbox(MessageTransport transport) {
+        this.transport = transport;
+    }
+
+    /** Queues a message for sending and returns its pending entry. */
+    public Entry submit(Channel channel, Message message) {
+        Entry entry = new Entry(channel, message);
+        byKey.put(entry.key, entry);
+        dispatch(entry);
+        return entry;
+    }
+
+    /** Sends a failed entry again under the same idempotency key. */
+    public boolean retry(Entry entry) {
+        if (entry == null || entry.state != State.FAILED) return false;
+        entry.state = State.PENDING;
+        entry.error = null;
+        dispatch(entry);
+        return true;
+    }
+
+    /** Entries of a channel that are not acknowledged yet, in submission order. */
+    public List<Entry> unacknowledged(Channel channel) {
+        List<Entry> out = new ArrayList<>();
+        for (Entry e : byKey.values()) {
+            if (e.channel == channel) out.add(e);
+        }
+        out.sort((a, b) -> Long.compare(a.seq, b.seq));
+        return out;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private void dispatch(Entry entry) {
+        sender.execute(() -> {
+            entry.attempts++;
+            try {
+                entry.stored = transport.send(entry.channel, entry.message, entry.key);
+                entry.state = State.SENT;
+                byKey.remove(entry.key);
+            } catch (Exception e) {
+                entry.error = e.getMessage() == null ? e.toString() : e.getMessage();
+                entry.state = State.FAILED;
+            }
+            for (Listener l : listeners) {
+                l.onStateChanged(entry);
+            }
+        });
+    }
+
+    /**
+     * One outgoing message and its delivery state.
+     */
+    public static final class Entry {
+        private final Channel channel;
+        private final Message message;
+        private final String key;
+        private final long seq = SEQ.getAndIncrement();
+        private final long submittedNanos = System.nanoTime();
+        private volatile State state = State.PENDING;
+        private volatile Message stored;
+        private volatile String error;
+        private volatile int attempts;
+
+        private Entry(Channel channel, Message message) {
+            this.channel = channel;
+            this.message = message;
+            this.key = message.getMessageId();
+        }
+
+        public Channel getChannel() { return channel; }
+        /** The message as composed locally; shown until the stored copy arrives. */
+        public Message getMessage() { return message; }
+        public String getKey() { return key; }
+        public State getState() { return state; }
+        /** The message as stored by the transport, or null until acknowledged. */
+        public Message getStored() { return stored; }
+        public String getError() { return error; }
+        public int getAttempts() { return attempts; }
+        /** When the entry was created, from System.nanoTime. */
+        public long getSubmittedNanos() { return submittedNanos; }
+    }
+}
@@ -0,0 +1,159 @@
+package com.unified.client;
+
+import com.unified.model.Channel;
+import com.unified.model.ChannelEvent;
+import com.unified.model.ChannelEventBus;
+import com.unified.model.User;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+
+/**
+ * Coalesces channel events into at most one UI update per frame.
+ * Events arrive on the bus thread and only mark channels dirty; a one-shot Swing timer then applies
+ * everything that accumulated during the frame on the EDT: new rows for the open channel, channels
+ * the user just joined, and an activity-ordered channel list updated by moving only the rows whose
+ * position changed. After a {@link ChannelEvent.Resync} the list is rebuilt from the controller
+ * instead, since events may have been lost.
+ */
+class UiUpdateCoordinator implements ChannelEventBus.Subscriber {
+    static final int DEFAULT_FPS = 60;
+
+    private static final Comparator<Channel> BY_ACTIVITY =
+            Comparator.comparingLong(Channel::getLastActivity).reversed();
+
+    private final ClientController controller;
+    private final DefaultListModel<Channel> channelModel;
+    private final JList<Channel> channelList;
+    private final MessageListModel messageModel;
+    private final BiConsumer<Channel, Integer> onOpenChannelUpdated;
+    private final Timer frame;
+
+    private final Set<String> dirtyChannels = ConcurrentHashMap.newKeySet();
+    private final Set<String> joinedChannels = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicBoolean listDirty = new AtomicBoolean();
+    private final AtomicBoolean resync = new AtomicBoolean();
+    private volatile String currentUserId;
+    private boolean applying;
+
+    /**
+     * @param onOpenChannelUpdated called on the EDT with the open channel and how many rows were appended to it
+     * @param fps                  maximum number of updates per second
+     */
+    UiUpdateCoordinator(ClientController controller, DefaultListModel<Channel> channelModel, JList<Channel> channelList,
+                        MessageListModel messageModel, BiConsumer<Channel, Integer> onOpenChannelUpdated, int fps) {
+        this.controller = controller;
+        this.channelModel = channelModel;
+        this.channelList = channelList;
+        this.messageModel = messageModel;
+        this.onOpenChannelUpdated = onOpenChannelUpdated;
+        this.frame = new Timer(1000 / Math.max(1, fps), e -> flush());
+        this.frame.setRepeats(false);
+    }
+
+    void start() {
+        User u = controller.getCurrentUser();
+        currentUserId = u == null ? null : u.getUserId();
+        ChannelEventBus.getDefault().subscribe(this);
+    }
+
+    void stop() {
+        ChannelEventBus.getDefault().unsubscribe(this);
+        SwingUtilities.invokeLater(frame::stop);
+    }
+
+    /** True while the coordinator itself is moving rows, so selection events can be ignored. */
+    boolean isApplying() {
+        return applying;
+    }
+
+    @Override
+    public void onEvent(ChannelEvent event) {
+        if (event instanceof ChannelEvent.MessageAppended) {
+            dirtyChannels.add(event.getChannelId());
+            listDirty.set(true);
+        } else if (event instanceof ChannelEvent.ParticipantJoined) {
+            String userId = ((ChannelEvent.ParticipantJoined) event).getUserId();
+            if (userId != null && userId.equals(currentUserId)) joinedChannels.add(event.getChannelId());
+            listDirty.set(true);
+        } else if (event instanceof ChannelEvent.ReadCursorAdvanced) {
+            listDirty.set(true);
+        } else if (event instanceof ChannelEvent.Resync) {
+            resync.set(true);
+        }
+        if (scheduled.compareAndSet(false, true)) SwingUtilities.invokeLater(frame::restart);
+    }
+
+    /**
+     * Brings the channel list into the given order with the fewest row moves, keeping the selection.
+     */
+    void applyChannelOrder(List<Channel> desired) {
+        Channel selected = channelList.getSelectedValue();
+        applying = true;
+        try {
+            Set<Channel> keep = new HashSet<>(desired);
+            for (int i = channelModel.size() - 1; i >= 0; i--) {
+                if (!keep.contains(channelModel.get(i))) channelModel.remove(i);
+            }
+            for (int i = 0; i < desired.size(); i++) {
+                Channel want = desired.get(i);
+                if (i < channelModel.size() && channelModel.get(i) == want) continue;
+                int j = channelModel.indexOf(want);
+                if (j >= 0) channelModel.remove(j);
+                channelModel.add(i, want);
+            }
+            if (selected != null && channelModel.contains(selected)) {
+                channelList.setSelectedValue(selected, false);
+            }
+        } finally {
+            applying = false;
+        }
+    }
+
+    private void flush() {
+        long start = System.nanoTime();
+        scheduled.set(false);
+
+        Set<String> dirty = drain(dirtyChannels);
+        Set<String> joined = drain(joinedChannels);
+        boolean reorder = listDirty.getAndSet(false);
+        boolean rebuild = resync.getAndSet(false);
+
+        if (rebuild) {
+            applyChannelOrder(controller.getUserChannelsByActivity());
+            channelList.repaint();
+        } else if (reorder || !joined.isEmpty()) {
+            List<Channel> desired = new ArrayList<>(channelModel.size() + joined.size());
+            for (int i = 0; i < channelModel.size(); i++) desired.add(channelModel.get(i));
+            for (String id : joined) {
+                Channel c = controller.getChannel(id);
+                if (c != null && !desired.contains(c)) desired.add(c);
+            }
+            desired.sort(BY_ACTIVITY);
+            applyChannelOrder(desired);
+            channelList.repaint();
+        }
+
+        Channel open = messageModel.getChannel();
+        if (open != null && (rebuild || dirty.contains(open.getChannelId()))) {
+            onOpenChannelUpdated.accept(open, messageModel.appendNew());
+        }
+        EdtMonitor.getDefault().record("ui-frame", start);
+    }
+
+    private static Set<String> drain(Set<String> source) {
+        Set<String> out = new HashSet<>();
+        for (String id : source) {
+            if (source.remove(id)) out.add(id);
+        }
+        return out;
+    }
+}
@@ -3,18 +3,42 @@ package com.unified.client;
 import javax.swing.*;
 import javax.swing.plaf.nimbus.NimbusLookAndFeel;
 import java.awt.*;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 
 public class UnifiedGUI {
 	public static void main(String[] args) {
+		startEdtMonitor();
 		SwingUtilities.invokeLater(() -> {
 			setModernLookAndFeel();
 			ClientController controller = new ClientController();
+			Runtime.getRuntime().addShutdownHook(new Thread(controller::close, "history-close"));
 			LoginFrame frame = new LoginFrame(controller);
 			frame.setLocationRelativeTo(null);
 			frame.setVisible(true);
 		});
 	}
 
+	/**
+	 * Samples EDT responsiveness unless UNIFIED_EDT_MONITOR=off; with UNIFIED_PERF_REPORT set to a
+	 * file path, the latency report is written there on exit.
+	 */
+	private static void startEdtMonitor() {
+		if ("off".equalsIgnoreCase(System.getenv("UNIFIED_EDT_MONITOR"))) return;
+		EdtMonitor.getDefault().start();
+		String reportPath = System.getenv("UNIFIED_PERF_REPORT");
+		if (reportPath == null || reportPath.isBlank()) return;
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			try {
+				Files.writeString(Paths.get(reportPath), EdtMonitor.getDefault().report(), StandardCharsets.UTF_8);
+			} catch (IOException e) {
+				System.err.println("Failed to write performance report: " + e);
+			}
+		}, "perf-report"));
+	}
+
 	private static void setModernLookAndFeel() {
 		try {
 			// Try to use Nimbus for a modern look
@@ -0,0 +1,256 @@
+package com.unified.model;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AnnouncementFanout class delivering course announcements to every enrolled student in the background.
+ * The recipient set is split into chunks that are written to an {@link InboxSink} in parallel on the
+ * announcement's {@link DeliveryLane}, so important announcements overtake routine ones and chat;
+ * callers get a {@link Delivery} back immediately and can watch its progress. A chunk that fails is
+ * queued on its lane again after an exponential backoff, up to {@link #MAX_ATTEMPTS} attempts.
+ */
+public class AnnouncementFanout {
+    public static final int DEFAULT_CHUNK_SIZE = 250;
+    private static final int MAX_ATTEMPTS = 3;
+    /** Delay before the first retry of a failed chunk; doubled for each further attempt, plus jitter. */
+    private static final long RETRY_BASE_MILLIS = 200;
+    /** Holds failed chunks until their backoff expires, so no lane worker sleeps. */
+    private static final ScheduledExecutorService RETRIES = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "announcement-retry");
+        t.setDaemon(true);
+        return t;
+    });
+    private static final int RECENT_DELIVERIES = 256;
+
+    private final InboxSink sink;
+    private final int chunkSize;
+    private final LaneScheduler lanes;
+    private final boolean ownsLanes;
+    private final Map<String, Delivery> recent = new LinkedHashMap<>(16, 0.75f, false) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Delivery> eldest) {
+            return size() > RECENT_DELIVERIES;
+        }
+    };
+
+    /**
+     * Constructor for a fan-out with one worker per available core.
+     * @param sink Where inbox entries are written
+     */
+    public AnnouncementFanout(InboxSink sink) {
+        this(sink, Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructor for a fan-out.
+     * @param sink Where inbox entries are written
+     * @param parallelism The maximum number of chunks written concurrently
+     * @param chunkSize The number of recipients per chunk, capped by the sink's batch size
+     */
+    public AnnouncementFanout(InboxSink sink, int parallelism, int chunkSize) {
+        this(sink, new LaneScheduler(parallelism), chunkSize, true);
+    }
+
+    /**
+     * Constructor for a fan-out sharing a scheduler with the rest of the send path.
+     * @param sink Where inbox entries are written
+     * @param lanes The scheduler chunks are queued on
+     * @param chunkSize The number of recipients per chunk, capped by the sink's batch size
+     */
+    public AnnouncementFanout(InboxSink sink, LaneScheduler lanes, int chunkSize) {
+        this(sink, lanes, chunkSize, false);
+    }
+
+    private AnnouncementFanout(InboxSink sink, LaneScheduler lanes, int chunkSize, boolean ownsLanes) {
+        this.sink = sink;
+        this.chunkSize = Math.max(1, Math.min(chunkSize, sink.maxBatchSize()));
+        this.lanes = lanes;
+        this.ownsLanes = ownsLanes;
+    }
+
+    /**
+     * Resolves who should receive an announcement posted in a course channel:
+     * the channel's participants plus every student enrolled in the course, minus the sender.
+     * @param channel The course channel
+     * @param senderId The user posting the announcement
+     * @param directory Known users, scanned for enrolled students
+     * @return The recipient IDs in a stable order
+     */
+    public static Set<String> resolveRecipients(CourseChannel channel, String senderId, Collection<? extends User> directory) {
+        Set<String> recipients = new LinkedHashSet<>(channel.getParticipantIds());
+        if (directory != null) {
+            for (User u : directory) {
+                if (u instanceof Student && ((Student) u).isEnrolledInCourse(channel.getCourseId())) {
+                    recipients.add(u.getUserId());
+                }
+            }
+        }
+        recipients.remove(senderId);
+        return recipients;
+    }
+
+    /**
+     * Starts delivering an announcement and returns immediately.
+     * @param announcement The announcement, already appended to its channel
+     * @param recipients The users to deliver to
+     * @return The delivery, which completes once every chunk has been written or has failed;
+     *         chunks rejected by a full lane count as failed
+     */
+    public Delivery deliver(AnnouncementMessage announcement, Collection<String> recipients) {
+        List<String> all = new ArrayList<>(recipients);
+        Delivery delivery = new Delivery(announcement.getMessageId(), all.size());
+        synchronized (recent) {
+            recent.put(delivery.messageId, delivery);
+        }
+        if (all.isEmpty()) {
+            delivery.done.complete(delivery);
+            return delivery;
+        }
+        DeliveryLane lane = DeliveryLane.of(announcement);
+        delivery.pendingChunks.set((all.size() + chunkSize - 1) / chunkSize);
+        for (int from = 0; from < all.size(); from += chunkSize) {
+            List<String> chunk = all.subList(from, Math.min(all.size(), from + chunkSize));
+            if (!lanes.submit(lane, () -> writeChunk(announcement, chunk, delivery, lane, 1))) {
+                delivery.failed.addAndGet(chunk.size());
+                delivery.chunkFinished();
+            }
+        }
+        return delivery;
+    }
+
+    /**
+     * Looks up a recent delivery by announcement.
+     * @param messageId The announcement's message ID
+     * @return The delivery, or null if unknown or long finished
+     */
+    public Delivery getDelivery(String messageId) {
+        synchronized (recent) {
+            return recent.get(messageId);
+        }
+    }
+
+    /**
+     * Stops the scheduler if this fan-out created it; deliveries in flight are abandoned.
+     */
+    public void shutdown() {
+        if (ownsLanes) lanes.shutdown();
+    }
+
+    private void writeChunk(AnnouncementMessage announcement, List<String> chunk, Delivery delivery,
+                            DeliveryLane lane, int attempt) {
+        try {
+            sink.deliver(announcement, chunk);
+            delivery.delivered.addAndGet(chunk.size());
+            delivery.chunkFinished();
+            return;
+        } catch (IOException | RuntimeException e) {
+            if (attempt >= MAX_ATTEMPTS) {
+                failChunk(announcement, chunk, delivery, attempt + " attempts: " + e);
+                return;
+            }
+        }
+        long backoff = RETRY_BASE_MILLIS << (attempt - 1);
+        long delay = backoff + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+        Runnable retry = () -> {
+            if (!lanes.submit(lane, () -> writeChunk(announcement, chunk, delivery, lane, attempt + 1))) {
+                failChunk(announcement, chunk, delivery, "lane full on retry " + (attempt + 1));
+            }
+        };
+        try {
+            RETRIES.schedule(retry, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            failChunk(announcement, chunk, delivery, "retry rejected: " + e);
+        }
+    }
+
+    private static void failChunk(AnnouncementMessage announcement, List<String> chunk, Delivery delivery, String why) {
+        delivery.failed.addAndGet(chunk.size());
+        delivery.chunkFinished();
+        System.err.println("Announcement " + announcement.getMessageId() + ": chunk of "
+                + chunk.size() + " failed after " + why);
+    }
+
+    /**
+     * Progress of one announcement's delivery.
+     */
+    public static final class Delivery {
+        private final String messageId;
+        private final int total;
+        private final long startedAt = System.currentTimeMillis();
+        private final AtomicInteger delivered = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private final AtomicInteger pendingChunks = new AtomicInteger();
+        private final CompletableFuture<Delivery> done = new CompletableFuture<>();
+
+        Delivery(String messageId, int total) {
+            this.messageId = messageId;
+            this.total = total;
+        }
+
+        private void chunkFinished() {
+            if (pendingChunks.decrementAndGet() == 0) done.complete(this);
+        }
+
+        public String getMessageId() {
+            return messageId;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public int getDelivered() {
+            return delivered.get();
+        }
+
+        public int getFailed() {
+            return failed.get();
+        }
+
+        public boolean isDone() {
+            return done.isDone();
+        }
+
+        /**
+         * Gets a future that completes when every chunk has been attempted.
+         * @return The completion future
+         */
+        public CompletableFuture<Delivery> whenDone() {
+            return done;
+        }
+
+        /**
+         * Gets a JSON-friendly snapshot of the delivery's progress.
+         * @return The progress fields
+         */
+        public Map<String, Object> toMap() {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("messageId", messageId);
+            m.put("total", total);
+            m.put("delivered", delivered.get());
+            m.put("failed", failed.get());
+            m.put("done", done.isDone());
+            m.put("elapsedMillis", System.currentTimeMillis() - startedAt);
+            return m;
+        }
+
+        @Override
+        public String toString() {
+            return "Delivery" + toMap();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.unified.model;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * AnnouncementInbox class keeping delivered announcements per user in memory.
+ * Backs the unread announcement badge and notifies listeners as entries arrive.
+ */
+public class AnnouncementInbox implements InboxSink {
+
+    /**
+     * Notified for every entry delivered to a user, on the delivering thread.
+     */
+    public interface Listener {
+        void onDelivered(String userId, Entry entry);
+    }
+
+    private final Map<String, List<Entry>> byUser = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> crossPosts = new ConcurrentHashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void deliver(AnnouncementMessage announcement, List<String> userIds) {
+        LocalDateTime now = LocalDateTime.now();
+        Set<String> channelIds = crossPosts.get(announcement.getMessageId());
+        for (String userId : userIds) {
+            Entry entry = new Entry(announcement, now, channelIds);
+            List<Entry> inbox = byUser.computeIfAbsent(userId, k -> new ArrayList<>());
+            synchronized (inbox) {
+                inbox.add(entry);
+            }
+            for (Listener l : listeners) {
+                l.onDelivered(userId, entry);
+            }
+        }
+    }
+
+    /**
+     * Records every channel a shared announcement was cross-posted to, so that reading any of
+     * them clears the single inbox entry. Call before delivering the announcement.
+     * @param bodyId The shared announcement's message ID
+     * @param channelIds The channels holding a pointer to it
+     */
+    public void noteCrossPost(String bodyId, Collection<String> channelIds) {
+        crossPosts.put(bodyId, Set.copyOf(channelIds));
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Gets a user's unread announcements, oldest first.
+     * @param userId The user ID
+     * @return The unread entries
+     */
+    public List<Entry> getUnread(String userId) {
+        List<Entry> out = new ArrayList<>();
+        List<Entry> inbox = byUser.get(userId);
+        if (inbox == null) return out;
+        synchronized (inbox) {
+            for (Entry e : inbox) {
+                if (!e.read) out.add(e);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Counts a user's unread announcements.
+     * @param userId The user ID
+     * @return The unread count
+     */
+    public int getUnreadCount(String userId) {
+        List<Entry> inbox = byUser.get(userId);
+        if (inbox == null) return 0;
+        int n = 0;
+        synchronized (inbox) {
+            for (Entry e : inbox) {
+                if (!e.read) n++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Marks every announcement from a channel as read for a user.
+     * @param userId The user ID
+     * @param channelId The channel whose announcements were read
+     */
+    public void markChannelRead(String userId, String channelId) {
+        List<Entry> inbox = byUser.get(userId);
+        if (inbox == null) return;
+        synchronized (inbox) {
+            for (Entry e : inbox) {
+                if (channelId.equals(e.getChannelId()) || e.isCrossPostedTo(channelId)) e.read = true;
+            }
+        }
+    }
+
+    /**
+     * One announcement in a user's inbox.
+     */
+    public static final class Entry {
+        private final AnnouncementMessage announcement;
+        private final LocalDateTime deliveredAt;
+        private final Set<String> crossPostedTo;
+        private volatile boolean read;
+
+        Entry(AnnouncementMessage announcement, LocalDateTime deliveredAt, Set<String> crossPostedTo) {
+            this.announcement = announcement;
+            this.deliveredAt = deliveredAt;
+            this.crossPostedTo = crossPostedTo;
+        }
+
+        boolean isCrossPostedTo(String channelId) {
+            return crossPostedTo != null && crossPostedTo.contains(channelId);
+        }
+
+        public AnnouncementMessage getAnnouncement() {
+            return announcement;
+        }
+
+        public String getChannelId() {
+            return announcement.getChannelId();
+        }
+
+        public LocalDateTime getDeliveredAt() {
+            return deliveredAt;
+        }
+
+        public boolean isRead() {
+            return read;
+        }
+    }
+}
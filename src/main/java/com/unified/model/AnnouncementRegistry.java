@@ -0,0 +1,85 @@
+package com.unified.model;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * AnnouncementRegistry class holding the single stored copy of each cross-posted announcement.
+ * {@link CrossPostMessage} pointers resolve their body here by message ID. When a log is attached,
+ * bodies are persisted once to it and reloaded on startup.
+ */
+public class AnnouncementRegistry {
+    private static final AnnouncementRegistry DEFAULT = new AnnouncementRegistry();
+
+    private final Map<String, AnnouncementMessage> bodies = new ConcurrentHashMap<>();
+    private SegmentedMessageLog log;
+
+    /**
+     * Gets the process-wide registry that pointers resolve against.
+     * @return The default registry
+     */
+    public static AnnouncementRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Attaches a log that stores announcement bodies, loading any bodies already in it.
+     * @param log The log backing the registry
+     */
+    public synchronized void attachStore(SegmentedMessageLog log) {
+        log.forEach(log.firstIndex(), log.endIndex(), m -> {
+            if (m instanceof AnnouncementMessage) bodies.put(m.getMessageId(), (AnnouncementMessage) m);
+        });
+        this.log = log;
+    }
+
+    /**
+     * Stores an announcement body once.
+     * @param body The announcement to share
+     * @throws IOException If the body cannot be persisted
+     */
+    public synchronized void register(AnnouncementMessage body) throws IOException {
+        if (body instanceof CrossPostMessage) {
+            throw new IllegalArgumentException("A cross-post pointer cannot be registered as a body");
+        }
+        if (bodies.containsKey(body.getMessageId())) return;
+        if (log != null) log.append(body);
+        bodies.put(body.getMessageId(), body);
+    }
+
+    /**
+     * Looks up a stored body.
+     * @param bodyId The announcement's message ID
+     * @return The announcement, or null if unknown
+     */
+    public AnnouncementMessage get(String bodyId) {
+        return bodyId == null ? null : bodies.get(bodyId);
+    }
+
+    /**
+     * Gets the number of unique announcements stored.
+     * @return The body count
+     */
+    public int size() {
+        return bodies.size();
+    }
+
+    /**
+     * Cross-posts a registered body into several course channels as pointer messages.
+     * @param body The shared announcement
+     * @param senderId The user posting
+     * @param channels The channels receiving a pointer
+     * @return The number of channels that accepted the pointer
+     * @throws IOException If the body cannot be persisted
+     */
+    public int crossPost(AnnouncementMessage body, String senderId, List<? extends Channel> channels) throws IOException {
+        register(body);
+        int posted = 0;
+        for (Channel c : channels) {
+            if (c.sendMessage(new CrossPostMessage(senderId, c.getChannelId(), body))) posted++;
+        }
+        return posted;
+    }
+}
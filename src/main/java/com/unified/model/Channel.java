@@ -1,6 +1,12 @@
 package com.unified.model;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -8,6 +14,9 @@ import java.util.stream.Collectors;
  * Holds a list of participants and messages, with functions for sending messages and managing membership.
  */
 public abstract class Channel {
+    /** With a history attached, how many of the newest messages stay in memory as well. */
+    public static final int MEMORY_TAIL = 256;
+
     private final String channelId;
     private String channelName;
     private String description;
@@ -16,6 +25,14 @@ public abstract class Channel {
     private final String creatorId;
     private final Date createdAt;
     private boolean isActive;
+    private SegmentedMessageLog messageLog;
+    private int logSkip;
+    private ColdTier coldTier;
+    private final Map<String, Integer> readCursors = new HashMap<>();
+    /** Serializes retention runs, which archive outside the channel lock. */
+    private final Object retentionLock = new Object();
+    private volatile ChannelEventBus eventBus = ChannelEventBus.getDefault();
+    private volatile long lastActivityMillis;
 
     /**
      * Constructor for creating a new channel.
@@ -32,6 +49,7 @@ public abstract class Channel {
         this.messages = new ArrayList<>();
         this.createdAt = new Date();
         this.isActive = true;
+        this.lastActivityMillis = createdAt.getTime();
         
         // Add creator as first participant
         this.participantIds.add(creatorId);
@@ -57,6 +75,7 @@ public abstract class Channel {
         this.messages = new ArrayList<>();
         this.createdAt = createdAt;
         this.isActive = isActive;
+        this.lastActivityMillis = createdAt == null ? System.currentTimeMillis() : createdAt.getTime();
     }
 
     /**
@@ -64,11 +83,18 @@ public abstract class Channel {
      * @param userId The ID of the user to add
      * @return true if added successfully, false if already a member
      */
-    public boolean addParticipant(String userId) {
+    public synchronized boolean addParticipant(String userId) {
         if (!isActive) {
             return false;
         }
-        return participantIds.add(userId);
+        if (!participantIds.add(userId)) {
+            return false;
+        }
+        ChannelEventBus bus = eventBus;
+        if (bus.hasSubscribers()) {
+            bus.publish(new ChannelEvent.ParticipantJoined(channelId, userId));
+        }
+        return true;
     }
 
     /**
@@ -76,7 +102,7 @@ public abstract class Channel {
      * @param userId The ID of the user to remove
      * @return true if removed successfully, false if not a member
      */
-    public boolean removeParticipant(String userId) {
+    public synchronized boolean removeParticipant(String userId) {
         if (userId.equals(creatorId)) {
             return false; // Cannot remove creator
         }
@@ -88,7 +114,7 @@ public abstract class Channel {
      * @param userId The user ID to check
      * @return true if user is a participant, false otherwise
      */
-    public boolean isParticipant(String userId) {
+    public synchronized boolean isParticipant(String userId) {
         return participantIds.contains(userId);
     }
 
@@ -97,41 +123,333 @@ public abstract class Channel {
      * @param message The message to send
      * @return true if message was sent successfully, false otherwise
      */
-    public boolean sendMessage(Message message) {
+    public synchronized boolean sendMessage(Message message) {
         if (!isActive || !isParticipant(message.getSenderId())) {
             return false;
         }
+        if (messageLog != null) {
+            try {
+                messageLog.append(message);
+            } catch (IOException | IllegalArgumentException e) {
+                return false;   // unwritable log, or a record larger than a segment
+            }
+        }
         messages.add(message);
+        if (messageLog != null && messages.size() >= 2 * MEMORY_TAIL) {
+            // Already on disk: keep only a bounded tail in memory
+            messages.subList(0, messages.size() - MEMORY_TAIL).clear();
+        }
+        lastActivityMillis = System.currentTimeMillis();
+        ChannelEventBus bus = eventBus;
+        if (bus.hasSubscribers()) {
+            bus.publish(new ChannelEvent.MessageAppended(channelId, message, getMessageCount() - 1));
+        }
         return true;
     }
 
+    /**
+     * Attaches a persisted message history to the channel.
+     * An empty log receives the messages currently held in memory. A log that already holds data is
+     * the channel's history as written by an earlier run: nothing is re-appended and the in-memory
+     * messages are dropped in its favour. Messages are then served from the log lazily, every message
+     * sent afterwards is written through to it, and only the newest {@link #MEMORY_TAIL} stay in memory.
+     * @param log The segmented message log backing this channel
+     * @throws IOException If the in-memory messages cannot be written to the log
+     */
+    public synchronized void attachHistory(SegmentedMessageLog log) throws IOException {
+        if (coldTier != null) {
+            throw new IllegalStateException("Channel " + channelId + " already tiers messages to cold storage");
+        }
+        if (log.size() == 0) {
+            for (Message message : messages) {
+                log.append(message);
+            }
+            if (messages.size() > MEMORY_TAIL) {
+                messages.subList(0, messages.size() - MEMORY_TAIL).clear();
+            }
+        } else {
+            messages.clear();
+            Message last = log.read(log.endIndex() - 1);
+            lastActivityMillis = Math.max(lastActivityMillis,
+                    last.getTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
+        this.messageLog = log;
+        this.logSkip = 0;
+    }
+
+    /**
+     * Closes the attached history, if any, releasing its files. Call when the channel is discarded;
+     * afterwards the channel only holds its in-memory tail.
+     * @throws IOException If the log cannot be flushed
+     */
+    public synchronized void closeHistory() throws IOException {
+        if (messageLog == null) return;
+        SegmentedMessageLog log = messageLog;
+        messageLog = null;
+        logSkip = 0;
+        log.close();
+    }
+
+    /**
+     * Gets the persisted message history attached to the channel.
+     * @return The message log, or null if the channel is memory-only
+     */
+    public SegmentedMessageLog getMessageLog() {
+        return messageLog;
+    }
+
     /**
      * Gets all messages in the channel.
+     * When a history is attached this materializes every persisted message; prefer
+     * {@link #getLastMessages(int)} or {@link #getMessages(int, int)} for display.
      * @return List of all messages
      */
     public List<Message> getMessages() {
-        return new ArrayList<>(messages);
+        return getMessages(0, getMessageCount());
+    }
+
+    /**
+     * Gets a range of messages by position, oldest first.
+     * @param from The first position (inclusive)
+     * @param to The last position (exclusive)
+     * @return List of messages in the range
+     */
+    public List<Message> getMessages(int from, int to) {
+        List<Message> out = new ArrayList<>(Math.max(0, to - from));
+        forEachMessage(from, to, out::add);
+        return out;
+    }
+
+    /**
+     * Gets the most recent messages in the channel.
+     * @param n The maximum number of messages to return
+     * @return Up to n of the latest messages, oldest first
+     */
+    public List<Message> getLastMessages(int n) {
+        int count = getMessageCount();
+        return getMessages(Math.max(0, count - n), count);
+    }
+
+    /**
+     * Visits every message in the channel in order without copying the history.
+     * @param action The action applied to each message
+     */
+    public void forEachMessage(Consumer<? super Message> action) {
+        forEachMessage(0, getMessageCount(), action);
+    }
+
+    /**
+     * Visits a range of messages in order, reading persisted messages lazily.
+     * Only the bounds are taken under the channel's lock; the action runs outside it, so a slow
+     * consumer (an export, an archive writer) does not hold up sends. Messages that retention
+     * removes while the visit is in progress may be skipped.
+     * @param from The first position (inclusive)
+     * @param to The last position (exclusive)
+     * @param action The action applied to each message
+     */
+    public void forEachMessage(int from, int to, Consumer<? super Message> action) {
+        SegmentedMessageLog log = null;
+        int logFrom = 0, logTo = 0;
+        List<ColdTier.Slice> cold = null;
+        List<Message> recent;
+        synchronized (this) {
+            from = Math.max(0, from);
+            to = Math.min(to, getMessageCount());
+            if (from >= to) return;
+            int offloaded = getOffloadedCount();
+            if (from < offloaded) {
+                if (messageLog != null) {
+                    log = messageLog;
+                    int base = messageLog.firstIndex() + logSkip;
+                    logFrom = base + from;
+                    logTo = base + Math.min(to, offloaded);
+                } else {
+                    cold = coldTier.slices(from, Math.min(to, offloaded));
+                }
+                from = offloaded;
+            }
+            recent = from < to ? new ArrayList<>(messages.subList(from - offloaded, to - offloaded)) : List.of();
+        }
+        if (log != null) log.forEach(logFrom, logTo, action);
+        if (cold != null) ColdTier.forEach(cold, action);
+        recent.forEach(action);
+    }
+
+    /**
+     * Attaches a cold tier that old in-memory messages can be moved into.
+     * Channels with a persisted history do not need one: their old messages are already on disk.
+     * @param tier The cold tier for this channel
+     */
+    public synchronized void attachColdTier(ColdTier tier) {
+        if (messageLog != null) {
+            throw new IllegalStateException("Channel " + channelId + " already has a persisted history");
+        }
+        this.coldTier = tier;
+    }
+
+    public synchronized ColdTier getColdTier() {
+        return coldTier;
+    }
+
+    /**
+     * Moves in-memory messages older than the cutoff out of memory.
+     * With a persisted history they are simply released; otherwise they are compressed into the cold tier.
+     * @param cutoff Messages strictly older than this are tiered
+     * @return The number of messages moved out of memory
+     * @throws IOException If the cold tier cannot store a segment
+     */
+    public synchronized int tierOlderThan(LocalDateTime cutoff) throws IOException {
+        if (messageLog == null && coldTier == null) return 0;
+        int n = 0;
+        while (n < messages.size() && messages.get(n).getTimestamp().isBefore(cutoff)) n++;
+        if (n == 0) return 0;
+        List<Message> old = messages.subList(0, n);
+        if (messageLog == null) {
+            coldTier.append(old);
+        }
+        old.clear();
+        return n;
+    }
+
+    /**
+     * Gets the number of messages held in an attached history or cold tier and not in memory.
+     * @return The count of offloaded messages
+     */
+    private int getOffloadedCount() {
+        if (messageLog != null) return messageLog.size() - logSkip - messages.size();
+        return coldTier == null ? 0 : coldTier.size();
+    }
+
+    /**
+     * Applies a retention policy, removing the oldest messages that are too old or beyond the count limit.
+     * In memory the expired prefix is truncated in one chunk; in an attached history whole segments
+     * are deleted once every message in them has expired.
+     * @param policy The retention policy to enforce
+     * @param archive Receives each expired message before removal when the policy archives, or null
+     * @return The number of messages removed from the channel
+     */
+    public int applyRetention(RetentionPolicy policy, Consumer<? super Message> archive) {
+        if (policy == null || !policy.isBounded()) return 0;
+        // Only retention removes from the front, so positions 0..expired stay put while the
+        // archive is written outside the channel lock.
+        synchronized (retentionLock) {
+            int expired;
+            synchronized (this) {
+                expired = countExpired(policy);
+            }
+            if (expired == 0) return 0;
+            if (archive != null && policy.getAction() == RetentionPolicy.Action.ARCHIVE) {
+                forEachMessage(0, expired, archive);
+            }
+            synchronized (this) {
+                removeOldest(expired);
+            }
+            return expired;
+        }
+    }
+
+    private int countExpired(RetentionPolicy policy) {
+        int total = getMessageCount();
+        int expired = policy.getMaxCount() > 0 ? Math.max(0, total - policy.getMaxCount()) : 0;
+
+        LocalDateTime cutoff = policy.cutoff(LocalDateTime.now());
+        if (cutoff != null) {
+            // Messages are appended in time order, so the expired ones form a prefix.
+            int lo = expired, hi = total;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (messageAt(mid).getTimestamp().isBefore(cutoff)) lo = mid + 1; else hi = mid;
+            }
+            expired = lo;
+        }
+        return expired;
+    }
+
+    private Message messageAt(int index) {
+        int offloaded = getOffloadedCount();
+        if (index < offloaded) {
+            return messageLog != null
+                    ? messageLog.read(messageLog.firstIndex() + logSkip + index)
+                    : coldTier.read(index);
+        }
+        return messages.get(index - offloaded);
+    }
+
+    private void removeOldest(int n) {
+        readCursors.replaceAll((user, cursor) -> Math.max(0, cursor - n));
+        int offloaded = getOffloadedCount();
+        int fromMemory = Math.max(0, n - offloaded);
+        if (fromMemory > 0) {
+            messages.subList(0, fromMemory).clear();
+        }
+        if (coldTier != null) {
+            try {
+                coldTier.dropOldest(Math.min(n, offloaded));
+            } catch (IOException e) {
+                // Dropped messages are hidden already; orphaned segment blobs are harmless.
+            }
+        }
+        if (messageLog != null) {
+            int first = messageLog.firstIndex();
+            logSkip += n;
+            try {
+                logSkip -= messageLog.truncateBefore(first + logSkip) - first;
+            } catch (IOException e) {
+                // The hidden prefix is still skipped; segment files are retried on the next sweep.
+            }
+        }
     }
 
     /**
      * Gets unread messages for a specific user.
+     * Only messages held in memory are considered; persisted history is a read-only snapshot.
      * @param userId The user ID to check unread messages for
      * @return List of unread messages
      */
-    public List<Message> getUnreadMessages(String userId) {
+    public synchronized List<Message> getUnreadMessages(String userId) {
         return messages.stream()
                 .filter(message -> !message.isRead() && !message.getSenderId().equals(userId))
                 .collect(Collectors.toList());
     }
 
     /**
-     * Marks all messages as read for a specific user.
+     * Marks all messages as read for a specific user and advances the user's read cursor to the end.
      * @param userId The user ID
      */
-    public void markAllMessagesAsRead(String userId) {
+    public synchronized void markAllMessagesAsRead(String userId) {
         messages.stream()
                 .filter(message -> !message.isRead() && !message.getSenderId().equals(userId))
                 .forEach(Message::markAsRead);
+        int previous = getReadCursor(userId);
+        int cursor = getMessageCount();
+        if (cursor > previous) {
+            readCursors.put(userId, cursor);
+            ChannelEventBus bus = eventBus;
+            if (bus.hasSubscribers()) {
+                bus.publish(new ChannelEvent.ReadCursorAdvanced(channelId, userId, previous, cursor));
+            }
+        }
+    }
+
+    /**
+     * Gets how many messages a user has read, counted from the start of the channel.
+     * @param userId The user ID
+     * @return The user's read cursor, or 0 if they have never read the channel
+     */
+    public synchronized int getReadCursor(String userId) {
+        return readCursors.getOrDefault(userId, 0);
+    }
+
+    /**
+     * Sets the bus this channel publishes its events to.
+     * @param eventBus The event bus, defaults to {@link ChannelEventBus#getDefault()}
+     */
+    public void setEventBus(ChannelEventBus eventBus) {
+        this.eventBus = eventBus == null ? ChannelEventBus.getDefault() : eventBus;
+    }
+
+    public ChannelEventBus getEventBus() {
+        return eventBus;
     }
 
     /**
@@ -145,25 +463,27 @@ public abstract class Channel {
         }
         
         String lowerKeyword = keyword.toLowerCase();
-        return messages.stream()
-                .filter(message -> message.getContent().toLowerCase().contains(lowerKeyword))
-                .collect(Collectors.toList());
+        List<Message> results = new ArrayList<>();
+        forEachMessage(message -> {
+            if (message.getContent().toLowerCase().contains(lowerKeyword)) {
+                results.add(message);
+            }
+        });
+        return results;
     }
 
     /**
      * Exports chat history to a string format.
+     * For large channels prefer {@link ChatHistoryExporter}, which streams to a writer instead.
      * @return The chat history as a formatted string
      */
     public String exportChatHistory() {
-        StringBuilder history = new StringBuilder();
-        history.append("=== Chat History for ").append(channelName).append(" ===\n");
-        history.append("Created: ").append(createdAt).append("\n");
-        history.append("Participants: ").append(participantIds.size()).append("\n\n");
-        
-        for (Message message : messages) {
-            history.append(message.exportToString()).append("\n");
+        StringWriter history = new StringWriter();
+        try {
+            ChatHistoryExporter.exportChatHistory(this, history, new ExportOptions(ExportOptions.Format.TEXT));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        
         return history.toString();
     }
 
@@ -194,7 +514,7 @@ public abstract class Channel {
         this.description = description;
     }
 
-    public Set<String> getParticipantIds() {
+    public synchronized Set<String> getParticipantIds() {
         return new HashSet<>(participantIds);
     }
 
@@ -214,11 +534,19 @@ public abstract class Channel {
         isActive = active;
     }
 
-    public int getMessageCount() {
-        return messages.size();
+    public synchronized int getMessageCount() {
+        return getOffloadedCount() + messages.size();
+    }
+
+    /**
+     * Gets when a message was last sent to the channel, or when it was created if it has none.
+     * @return The last activity time in epoch milliseconds
+     */
+    public long getLastActivity() {
+        return lastActivityMillis;
     }
 
-    public int getParticipantCount() {
+    public synchronized int getParticipantCount() {
         return participantIds.size();
     }
 
@@ -230,7 +558,7 @@ public abstract class Channel {
                 ", description='" + description + '\'' +
                 ", channelType='" + getChannelType() + '\'' +
                 ", participantCount=" + participantIds.size() +
-                ", messageCount=" + messages.size() +
+                ", messageCount=" + getMessageCount() +
                 ", creatorId='" + creatorId + '\'' +
                 ", createdAt=" + createdAt +
                 ", isActive=" + isActive +
@@ -0,0 +1,189 @@
+package com.unified.model;
+
+import com.unified.util.PrefixTrie;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * ChannelDirectory class indexing discoverable channels for the Join dialog.
+ * Only public group chats and course channels are indexed, so private groups and DMs cost nothing
+ * at query time. Channel names, name words and course codes go into a prefix trie. Every match is
+ * ranked by member count and then by most recent activity while the trie is walked, keeping only
+ * the best offset + limit in a bounded heap, so each page is a slice of the global ranking.
+ */
+public class ChannelDirectory {
+    /** Larger channels first, then the most recently active. */
+    public static final Comparator<Channel> RANKING =
+            Comparator.comparingInt(Channel::getParticipantCount).reversed()
+                    .thenComparing(Comparator.comparingLong(Channel::getLastActivity).reversed())
+                    .thenComparing(Channel::getChannelId);
+
+    private final Map<String, Channel> byId = new HashMap<>();
+    private final Map<String, List<String>> indexedTerms = new HashMap<>();
+    private final PrefixTrie<String> trie = new PrefixTrie<>();
+
+    /**
+     * Indexes a channel if it is discoverable, or re-indexes it if already present.
+     * @param channel The channel
+     * @return true if the channel is now indexed
+     */
+    public synchronized boolean add(Channel channel) {
+        remove(channel.getChannelId());
+        if (!isDiscoverable(channel)) return false;
+        byId.put(channel.getChannelId(), channel);
+        List<String> terms = termsOf(channel);
+        for (String term : terms) trie.put(term, channel.getChannelId());
+        indexedTerms.put(channel.getChannelId(), terms);
+        return true;
+    }
+
+    /**
+     * Indexes many channels.
+     * @param channels The channels to add
+     */
+    public synchronized void addAll(Collection<? extends Channel> channels) {
+        for (Channel c : channels) add(c);
+    }
+
+    /**
+     * Re-indexes a channel after its name or privacy changed.
+     * @param channel The updated channel
+     */
+    public synchronized void updated(Channel channel) {
+        add(channel);
+    }
+
+    /**
+     * Removes a channel from the index.
+     * @param channelId The channel ID
+     * @return The removed channel, or null if it was not indexed
+     */
+    public synchronized Channel remove(String channelId) {
+        Channel old = byId.remove(channelId);
+        List<String> terms = indexedTerms.remove(channelId);
+        if (terms != null) {
+            for (String term : terms) trie.remove(term, channelId);
+        }
+        return old;
+    }
+
+    /**
+     * Finds one page of discoverable channels matching a prefix, best ranked first.
+     * @param prefix The typed prefix; blank matches every channel
+     * @param exclude IDs of channels to leave out, such as those the user already joined
+     * @param offset How many ranked results to skip
+     * @param limit The page size
+     * @return The page
+     */
+    public synchronized Page discover(String prefix, Set<String> exclude, int offset, int limit) {
+        int skip = Math.max(0, offset);
+        int size = Math.max(1, limit);
+        int keep = skip + size + 1;   // one extra tells whether another page exists
+        String p = prefix == null ? "" : prefix.trim();
+
+        // Bounded min-heap of the best 'keep' matches: the worst kept channel sits at the head.
+        PriorityQueue<Channel> best = new PriorityQueue<>(keep, RANKING.reversed());
+        Set<String> seen = new HashSet<>();   // a channel can match through several of its terms
+        Consumer<String> consider = id -> {
+            if (!seen.add(id) || (exclude != null && exclude.contains(id))) return;
+            Channel c = byId.get(id);
+            if (c == null || !c.isActive()) return;
+            if (best.size() < keep) {
+                best.add(c);
+            } else if (RANKING.compare(c, best.peek()) < 0) {
+                best.poll();
+                best.add(c);
+            }
+        };
+        if (p.isEmpty()) {
+            byId.keySet().forEach(consider);
+        } else {
+            trie.forEachStartingWith(p, consider);
+        }
+        List<Channel> ranked = new ArrayList<>(best);
+        ranked.sort(RANKING);
+        if (skip >= ranked.size()) return new Page(new ArrayList<>(), skip, false);
+        List<Channel> page = new ArrayList<>(ranked.subList(skip, Math.min(ranked.size(), skip + size)));
+        return new Page(page, skip, ranked.size() > skip + size);
+    }
+
+    public synchronized int size() {
+        return byId.size();
+    }
+
+    /**
+     * Checks whether a channel may be listed to users who are not in it.
+     * @param channel The channel
+     * @return true for public group chats and course channels
+     */
+    public static boolean isDiscoverable(Channel channel) {
+        if (channel instanceof GroupChatChannel) return !((GroupChatChannel) channel).isPrivate();
+        return channel instanceof CourseChannel;
+    }
+
+    private static List<String> termsOf(Channel channel) {
+        List<String> terms = new ArrayList<>();
+        String name = channel.getChannelName();
+        if (name != null && !name.isBlank()) {
+            terms.add(name.trim());
+            for (String word : name.trim().split("\\s+")) {
+                if (!word.isEmpty() && !terms.contains(word)) terms.add(word);
+            }
+        }
+        if (channel instanceof CourseChannel) {
+            String code = ((CourseChannel) channel).getCourseCode();
+            if (code != null && !code.isBlank() && !terms.contains(code)) terms.add(code);
+        }
+        return terms;
+    }
+
+    /**
+     * One page of discovery results.
+     */
+    public static class Page {
+        private final List<Channel> channels;
+        private final int offset;
+        private final boolean hasMore;
+
+        /**
+         * Constructor for a result page.
+         * @param channels The channels on this page
+         * @param offset The offset of the first channel
+         * @param hasMore Whether another page follows
+         */
+        public Page(List<Channel> channels, int offset, boolean hasMore) {
+            this.channels = channels;
+            this.offset = offset;
+            this.hasMore = hasMore;
+        }
+
+        public List<Channel> getChannels() {
+            return channels;
+        }
+
+        public int getOffset() {
+            return offset;
+        }
+
+        /**
+         * Gets the offset of the next page.
+         * @return The next offset
+         */
+        public int getNextOffset() {
+            return offset + channels.size();
+        }
+
+        public boolean hasMore() {
+            return hasMore;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.unified.model;
+
+/**
+ * Abstract ChannelEvent class describing a change to a channel, published on a {@link ChannelEventBus}.
+ * Events are immutable once published. Each carries a bus-wide sequence number; events from one
+ * channel are published under the channel's lock, so their sequence numbers increase in order.
+ * If the bus had to drop events, subscribers receive a {@link Resync} after the gap and should
+ * rebuild anything they derive from events from the channels themselves.
+ */
+public abstract class ChannelEvent {
+    private final String channelId;
+    private long sequence;
+
+    /**
+     * Constructor for a channel event.
+     * @param channelId The ID of the channel that changed
+     */
+    protected ChannelEvent(String channelId) {
+        this.channelId = channelId;
+    }
+
+    public String getChannelId() {
+        return channelId;
+    }
+
+    /**
+     * Gets the position of this event in the bus's publication order.
+     * @return The sequence number, starting at 1
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    /**
+     * A message was appended to a channel.
+     */
+    public static final class MessageAppended extends ChannelEvent {
+        private final Message message;
+        private final int index;
+
+        public MessageAppended(String channelId, Message message, int index) {
+            super(channelId);
+            this.message = message;
+            this.index = index;
+        }
+
+        public Message getMessage() {
+            return message;
+        }
+
+        /**
+         * Gets the position the message was appended at.
+         * @return The message index at the time of the append
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        @Override
+        public String toString() {
+            return "MessageAppended{channelId='" + getChannelId() + "', index=" + index
+                    + ", messageId='" + message.getMessageId() + "'}";
+        }
+    }
+
+    /**
+     * A user joined a channel.
+     */
+    public static final class ParticipantJoined extends ChannelEvent {
+        private final String userId;
+
+        public ParticipantJoined(String channelId, String userId) {
+            super(channelId);
+            this.userId = userId;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        @Override
+        public String toString() {
+            return "ParticipantJoined{channelId='" + getChannelId() + "', userId='" + userId + "'}";
+        }
+    }
+
+    /**
+     * Events were dropped because the bus was full. Not tied to a channel: any channel may have
+     * changed without an event, so incremental state should be rebuilt from the source.
+     */
+    public static final class Resync extends ChannelEvent {
+        private final long dropped;
+
+        public Resync(long dropped) {
+            super(null);
+            this.dropped = dropped;
+        }
+
+        /**
+         * Gets how many events were dropped since the previous resync.
+         * @return The number of dropped events
+         */
+        public long getDropped() {
+            return dropped;
+        }
+
+        @Override
+        public String toString() {
+            return "Resync{dropped=" + dropped + "}";
+        }
+    }
+
+    /**
+     * A user's read cursor in a channel moved forward.
+     */
+    public static final class ReadCursorAdvanced extends ChannelEvent {
+        private final String userId;
+        private final int previous;
+        private final int cursor;
+
+        public ReadCursorAdvanced(String channelId, String userId, int previous, int cursor) {
+            super(channelId);
+            this.userId = userId;
+            this.previous = previous;
+            this.cursor = cursor;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        /**
+         * Gets the cursor before it advanced.
+         * @return The previous number of messages read
+         */
+        public int getPrevious() {
+            return previous;
+        }
+
+        /**
+         * Gets the new cursor.
+         * @return The number of messages the user has now read
+         */
+        public int getCursor() {
+            return cursor;
+        }
+
+        @Override
+        public String toString() {
+            return "ReadCursorAdvanced{channelId='" + getChannelId() + "', userId='" + userId
+                    + "', " + previous + "->" + cursor + "}";
+        }
+    }
+}
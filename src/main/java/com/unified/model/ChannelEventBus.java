@@ -0,0 +1,179 @@
+package com.unified.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ChannelEventBus class delivering {@link ChannelEvent}s to registered subscribers.
+ * Publishing only enqueues the event, so the write path never waits on subscribers; a single
+ * daemon thread drains the queue in batches and hands each event to every subscriber in order.
+ * When nobody is subscribed, publishing is a single volatile read and no event is allocated.
+ * If the queue overflows, the dropped events are replaced by one {@link ChannelEvent.Resync}
+ * delivered once the backlog has drained.
+ */
+public class ChannelEventBus {
+
+    /**
+     * Receives channel events on the bus's dispatch thread.
+     */
+    public interface Subscriber {
+        /**
+         * Called for every published event, in publication order.
+         * Implementations should be quick and must not block; hand heavy work off to another thread.
+         * @param event The event
+         */
+        void onEvent(ChannelEvent event);
+    }
+
+    public static final int DEFAULT_CAPACITY = 16_384;
+    private static final int DRAIN_BATCH = 256;
+    private static final Subscriber[] NONE = new Subscriber[0];
+    private static final ChannelEventBus DEFAULT = new ChannelEventBus(DEFAULT_CAPACITY);
+
+    private final BlockingQueue<ChannelEvent> queue;
+    /** Guards sequence assignment and enqueueing, so queue order is sequence order. */
+    private final Object publishLock = new Object();
+    private long sequence;
+    /** Drops since the last Resync was dispatched; guarded by publishLock. */
+    private long unreported;
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile Subscriber[] subscribers = NONE;
+    private Thread dispatcher;
+
+    /**
+     * Constructor for a bus with a bounded queue.
+     * @param capacity The maximum number of events waiting for dispatch
+     */
+    public ChannelEventBus(int capacity) {
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+    }
+
+    /**
+     * Gets the process-wide bus that channels publish to by default.
+     * @return The default bus
+     */
+    public static ChannelEventBus getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Registers a subscriber; the dispatch thread is started on first use.
+     * @param subscriber The subscriber to add
+     */
+    public synchronized void subscribe(Subscriber subscriber) {
+        Subscriber[] next = Arrays.copyOf(subscribers, subscribers.length + 1);
+        next[next.length - 1] = subscriber;
+        subscribers = next;
+        if (dispatcher == null) {
+            dispatcher = new Thread(this::dispatchLoop, "channel-event-bus");
+            dispatcher.setDaemon(true);
+            dispatcher.start();
+        }
+    }
+
+    /**
+     * Removes a subscriber.
+     * @param subscriber The subscriber to remove
+     */
+    public synchronized void unsubscribe(Subscriber subscriber) {
+        Subscriber[] current = subscribers;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == subscriber) {
+                Subscriber[] next = new Subscriber[current.length - 1];
+                System.arraycopy(current, 0, next, 0, i);
+                System.arraycopy(current, i + 1, next, i, current.length - i - 1);
+                subscribers = next;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Checks whether anyone is listening; publishers use this to skip building events.
+     * @return true if at least one subscriber is registered
+     */
+    public boolean hasSubscribers() {
+        return subscribers.length > 0;
+    }
+
+    /**
+     * Publishes an event without blocking.
+     * If the queue is full the event is dropped and counted, and subscribers get a
+     * {@link ChannelEvent.Resync} once the queue has drained.
+     * @param event The event to publish
+     * @return true if the event was queued, false if it was dropped or nobody is subscribed
+     */
+    public boolean publish(ChannelEvent event) {
+        if (subscribers.length == 0) return false;
+        synchronized (publishLock) {
+            event.setSequence(sequence + 1);
+            if (queue.offer(event)) {
+                sequence++;
+                return true;
+            }
+            unreported++;
+        }
+        dropped.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Gets the number of events dropped because the queue was full.
+     * @return The dropped event count
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Gets the number of events waiting to be dispatched.
+     * @return The queue depth
+     */
+    public int getPendingCount() {
+        return queue.size();
+    }
+
+    private void dispatchLoop() {
+        List<ChannelEvent> batch = new ArrayList<>(DRAIN_BATCH);
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, DRAIN_BATCH - 1);
+            Subscriber[] current = subscribers;
+            for (int i = 0; i < batch.size(); i++) {
+                dispatch(current, batch.get(i));
+            }
+            batch.clear();
+            ChannelEvent resync = takeResync();
+            if (resync != null) dispatch(subscribers, resync);
+        }
+    }
+
+    /** A Resync covering the drops so far, once everything queued before them has been dispatched. */
+    private ChannelEvent takeResync() {
+        synchronized (publishLock) {
+            if (unreported == 0 || !queue.isEmpty()) return null;
+            ChannelEvent resync = new ChannelEvent.Resync(unreported);
+            resync.setSequence(++sequence);
+            unreported = 0;
+            return resync;
+        }
+    }
+
+    private static void dispatch(Subscriber[] current, ChannelEvent event) {
+        for (Subscriber s : current) {
+            try {
+                s.onEvent(event);
+            } catch (RuntimeException e) {
+                System.err.println("Channel event subscriber failed on " + event + ": " + e);
+            }
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.unified.model;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * ChatArchiveExporter class exporting many channels into a single ZIP archive.
+ * Each channel is exported in parallel on a bounded pool into its own temporary file, and finished
+ * exports are streamed into the archive as they complete, so the whole run takes roughly as long
+ * as the largest channel. Progress is reported per channel and the export can be cancelled.
+ */
+public class ChatArchiveExporter {
+
+    /**
+     * Callback notified each time a channel has been added to the archive.
+     */
+    public interface ProgressListener {
+        /**
+         * Called after a channel's entry has been written.
+         * @param completed The number of channels written so far
+         * @param total The total number of channels being exported
+         * @param channel The channel that was just written
+         */
+        void onProgress(int completed, int total, Channel channel);
+    }
+
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    private final List<Channel> channels;
+    private final ExportOptions options;
+    private final int parallelism;
+    private volatile boolean cancelled;
+
+    /**
+     * Constructor for an archive export using one worker per available core.
+     * @param channels The channels to export
+     * @param options The export format and time range applied to every channel
+     */
+    public ChatArchiveExporter(List<Channel> channels, ExportOptions options) {
+        this(channels, options, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor for an archive export.
+     * @param channels The channels to export
+     * @param options The export format and time range applied to every channel
+     * @param parallelism The maximum number of channels exported concurrently
+     */
+    public ChatArchiveExporter(List<Channel> channels, ExportOptions options, int parallelism) {
+        this.channels = new ArrayList<>(channels);
+        this.options = options;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Exports every channel into a ZIP file, blocking until finished or cancelled.
+     * On failure or cancellation the partial archive is deleted.
+     * @param zipFile The archive to create
+     * @param listener The progress listener, or null
+     * @return The number of channels written
+     * @throws IOException If an export or the archive write fails
+     * @throws CancellationException If {@link #cancel()} was called
+     */
+    public int exportTo(Path zipFile, ProgressListener listener) throws IOException {
+        int total = channels.size();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(parallelism, Math.max(1, total)), r -> {
+            Thread t = new Thread(r, "chat-archive-export-" + THREAD_COUNTER.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        CompletionService<Part> completion = new ExecutorCompletionService<>(pool);
+        List<Future<Part>> futures = new ArrayList<>(total);
+        for (Channel channel : channels) {
+            futures.add(completion.submit(() -> exportPart(channel)));
+        }
+
+        int written = 0;
+        boolean ok = false;
+        try (ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(zipFile)))) {
+            for (int i = 0; i < total; i++) {
+                Part part = take(completion);
+                if (cancelled) {
+                    Files.deleteIfExists(part.file);
+                    throw new CancellationException("Archive export cancelled");
+                }
+                try {
+                    zip.putNextEntry(new ZipEntry(part.entryName));
+                    Files.copy(part.file, zip);
+                    zip.closeEntry();
+                } finally {
+                    Files.deleteIfExists(part.file);
+                }
+                written++;
+                if (listener != null) listener.onProgress(written, total, part.channel);
+            }
+            ok = true;
+        } finally {
+            pool.shutdownNow();
+            if (!ok) {
+                cancelled = true;
+                for (Future<Part> f : futures) discard(f);
+                Files.deleteIfExists(zipFile);
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Requests cancellation; running channel exports stop at their next buffer flush.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    private Part take(CompletionService<Part> completion) throws IOException {
+        try {
+            return completion.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Archive export interrupted");
+        } catch (ExecutionException e) {
+            if (cancelled) throw new CancellationException("Archive export cancelled");
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            throw new IOException("Channel export failed", cause);
+        }
+    }
+
+    private Part exportPart(Channel channel) throws IOException {
+        if (cancelled) throw new InterruptedIOException("cancelled");
+        Path tmp = Files.createTempFile("unified-export-", "." + options.getFormat().getExtension());
+        try (Writer w = new BufferedWriter(new CancellableWriter(Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)))) {
+            ChatHistoryExporter.exportChatHistory(channel, w, options);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        if (cancelled) {
+            Files.deleteIfExists(tmp);
+            throw new InterruptedIOException("cancelled");
+        }
+        return new Part(channel, tmp, entryName(channel));
+    }
+
+    private String entryName(Channel channel) {
+        String name = channel.getChannelName() == null ? "" : channel.getChannelName().replaceAll("[^A-Za-z0-9._-]+", "_");
+        return name + "_" + channel.getChannelId() + "." + options.getFormat().getExtension();
+    }
+
+    private static void discard(Future<Part> f) {
+        if (!f.isDone() || f.isCancelled()) return;
+        try {
+            Files.deleteIfExists(f.get().file);
+        } catch (Exception ignored) {
+        }
+    }
+
+    /**
+     * A finished channel export waiting to be copied into the archive.
+     */
+    private static final class Part {
+        final Channel channel;
+        final Path file;
+        final String entryName;
+
+        Part(Channel channel, Path file, String entryName) {
+            this.channel = channel;
+            this.file = file;
+            this.entryName = entryName;
+        }
+    }
+
+    /**
+     * Writer that aborts the export once cancellation has been requested.
+     */
+    private final class CancellableWriter extends FilterWriter {
+        CancellableWriter(Writer out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            check();
+            super.write(c);
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            check();
+            super.write(cbuf, off, len);
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            check();
+            super.write(str, off, len);
+        }
+
+        private void check() throws InterruptedIOException {
+            if (cancelled) throw new InterruptedIOException("cancelled");
+        }
+    }
+}
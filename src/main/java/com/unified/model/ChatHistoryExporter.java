@@ -0,0 +1,183 @@
+package com.unified.model;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * ChatHistoryExporter class streaming a channel's chat history to a writer or byte channel.
+ * Messages are written one at a time through a bounded buffer, so the full history is never
+ * held in memory as a single string.
+ */
+public final class ChatHistoryExporter {
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private ChatHistoryExporter() {}
+
+    /**
+     * Exports a channel's chat history to a byte channel as UTF-8.
+     * The byte channel is flushed but not closed.
+     * @param channel The channel to export
+     * @param out The destination byte channel
+     * @param options The export format and time range
+     * @return The number of messages written
+     * @throws IOException If writing fails
+     */
+    public static int exportChatHistory(Channel channel, WritableByteChannel out, ExportOptions options) throws IOException {
+        Writer w = Channels.newWriter(out, StandardCharsets.UTF_8.newEncoder(), BUFFER_SIZE);
+        int written = exportChatHistory(channel, w, options);
+        w.flush();
+        return written;
+    }
+
+    /**
+     * Exports a channel's chat history to a character writer.
+     * The writer is flushed but not closed.
+     * @param channel The channel to export
+     * @param out The destination writer
+     * @param options The export format and time range
+     * @return The number of messages written
+     * @throws IOException If writing fails
+     */
+    public static int exportChatHistory(Channel channel, Writer out, ExportOptions options) throws IOException {
+        Writer w = (out instanceof BufferedWriter) ? out : new BufferedWriter(out, BUFFER_SIZE);
+        writeHeader(channel, w, options.getFormat());
+
+        int[] written = {0};
+        try {
+            channel.forEachMessage(message -> {
+                if (!options.includes(message)) return;
+                try {
+                    writeMessage(message, w, options.getFormat());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                written[0]++;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        w.flush();
+        return written[0];
+    }
+
+    private static void writeHeader(Channel channel, Writer w, ExportOptions.Format format) throws IOException {
+        switch (format) {
+            case TEXT:
+                w.write("=== Chat History for " + channel.getChannelName() + " ===\n");
+                w.write("Created: " + channel.getCreatedAt() + "\n");
+                w.write("Participants: " + channel.getParticipantCount() + "\n\n");
+                break;
+            case CSV:
+                w.write("messageId,timestamp,senderId,type,content\n");
+                break;
+            case JSONL:
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Writes a single message record in the requested format.
+     * @param message The message to write
+     * @param w The destination writer
+     * @param format The output format
+     * @throws IOException If writing fails
+     */
+    public static void writeMessage(Message message, Writer w, ExportOptions.Format format) throws IOException {
+        switch (format) {
+            case JSONL:
+                writeJsonLine(message, w);
+                break;
+            case CSV:
+                writeCsvField(message.getMessageId(), w);
+                w.write(',');
+                writeCsvField(message.getTimestamp().toString(), w);
+                w.write(',');
+                writeCsvField(message.getSenderId(), w);
+                w.write(',');
+                writeCsvField(message.getMessageType(), w);
+                w.write(',');
+                writeCsvField(message.getFormattedContent(), w);
+                w.write('\n');
+                break;
+            case TEXT:
+            default:
+                w.write(message.exportToString());
+                w.write('\n');
+                break;
+        }
+    }
+
+    private static void writeJsonLine(Message message, Writer w) throws IOException {
+        w.write('{');
+        writeJsonField("messageId", message.getMessageId(), w, true);
+        writeJsonField("channelId", message.getChannelId(), w, false);
+        writeJsonField("senderId", message.getSenderId(), w, false);
+        writeJsonField("type", message.getMessageType(), w, false);
+        writeJsonField("timestamp", message.getTimestamp().toString(), w, false);
+        writeJsonField("content", message.getContent(), w, false);
+        if (message instanceof FileMessage) {
+            FileMessage f = (FileMessage) message;
+            writeJsonField("fileName", f.getFileName(), w, false);
+            writeJsonField("fileUrl", f.getFileUrl(), w, false);
+            writeJsonField("fileType", f.getFileType(), w, false);
+            w.write(",\"fileSize\":");
+            w.write(Long.toString(f.getFileSize()));
+        } else if (message instanceof AnnouncementMessage) {
+            AnnouncementMessage a = (AnnouncementMessage) message;
+            writeJsonField("courseId", a.getCourseId(), w, false);
+            writeJsonField("courseName", a.getCourseName(), w, false);
+            writeJsonField("announcementType", a.getAnnouncementType(), w, false);
+            w.write(",\"isImportant\":");
+            w.write(Boolean.toString(a.isImportant()));
+        }
+        w.write("}\n");
+    }
+
+    private static void writeJsonField(String name, String value, Writer w, boolean first) throws IOException {
+        if (!first) w.write(',');
+        w.write('"');
+        w.write(name);
+        w.write("\":");
+        if (value == null) {
+            w.write("null");
+            return;
+        }
+        w.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': w.write("\\\""); break;
+                case '\\': w.write("\\\\"); break;
+                case '\n': w.write("\\n"); break;
+                case '\r': w.write("\\r"); break;
+                case '\t': w.write("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        w.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        w.write(c);
+                    }
+            }
+        }
+        w.write('"');
+    }
+
+    private static void writeCsvField(String value, Writer w) throws IOException {
+        if (value == null) return;
+        boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        if (!quote) {
+            w.write(value);
+            return;
+        }
+        w.write('"');
+        w.write(value.replace("\"", "\"\""));
+        w.write('"');
+    }
+}
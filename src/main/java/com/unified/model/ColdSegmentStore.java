@@ -0,0 +1,61 @@
+package com.unified.model;
+
+import java.io.IOException;
+
+/**
+ * ColdSegmentStore interface for the backing storage of compressed, immutable message segments.
+ * Implementations may keep segments on the local disk or in a remote document store.
+ * Besides segments, each tier keeps one small manifest that is replaced as the tier changes.
+ */
+public interface ColdSegmentStore {
+
+    /**
+     * Stores a segment blob. Segments are immutable, so a key is written once.
+     * @param key The segment key
+     * @param blob The compressed segment bytes
+     * @throws IOException If the segment cannot be stored
+     */
+    void put(String key, byte[] blob) throws IOException;
+
+    /**
+     * Loads a segment blob.
+     * @param key The segment key
+     * @return The compressed segment bytes
+     * @throws IOException If the segment cannot be loaded
+     */
+    byte[] get(String key) throws IOException;
+
+    /**
+     * Loads a blob that may not exist, such as a tier's manifest.
+     * @param key The blob key
+     * @return The bytes, or null if nothing is stored under the key
+     * @throws IOException If the blob exists but cannot be loaded
+     */
+    byte[] find(String key) throws IOException;
+
+    /**
+     * Stores a mutable blob, such as a tier's manifest, replacing any previous value atomically.
+     * The default relies on {@link #put} overwriting, which both bundled stores do.
+     * @param key The blob key
+     * @param blob The new bytes
+     * @throws IOException If the blob cannot be stored
+     */
+    default void replace(String key, byte[] blob) throws IOException {
+        put(key, blob);
+    }
+
+    /**
+     * Deletes a segment blob.
+     * @param key The segment key
+     * @throws IOException If the segment cannot be deleted
+     */
+    void delete(String key) throws IOException;
+
+    /**
+     * Gets the largest blob this store accepts, used to size segments.
+     * @return The maximum blob size in bytes
+     */
+    default int maxBlobBytes() {
+        return Integer.MAX_VALUE;
+    }
+}
@@ -0,0 +1,377 @@
+package com.unified.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * ColdTier class holding a channel's old messages as compressed, immutable segments.
+ * Segments are Deflate-compressed batches of encoded messages kept in a {@link ColdSegmentStore};
+ * reads fault segments back in through a shared LRU cache of decoded segments.
+ * The segment list is kept in a small manifest blob next to the segments and rewritten on every
+ * change, so a ColdTier opened for the same channel after a restart finds its segments again.
+ * Segment keys carry a suffix unique to each opening, so a segment left behind by a crash before
+ * its manifest was written is never overwritten.
+ */
+public class ColdTier {
+    public static final int DEFAULT_SEGMENT_MESSAGES = 1000;
+    private static final int CACHE_SEGMENTS =
+            Integer.parseInt(System.getenv().getOrDefault("UNIFIED_COLD_CACHE_SEGMENTS", "32"));
+
+    /** Decoded segments shared by every channel, evicted least-recently-used first. */
+    private static final Map<String, List<Message>> CACHE = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, List<Message>> eldest) {
+            return size() > CACHE_SEGMENTS;
+        }
+    };
+
+    private static final int MANIFEST_VERSION = 1;
+
+    private final String channelId;
+    private final ColdSegmentStore store;
+    private final int segmentMessages;
+    private final List<SegmentRef> segments = new ArrayList<>();
+    /** Distinguishes keys written by this opening from any an earlier process left unreferenced. */
+    private final String keySuffix = Long.toString(System.currentTimeMillis(), 36);
+    private int skip;
+    private int nextSeq;
+
+    /**
+     * Constructor for a channel's cold tier with the default segment size.
+     * @param channelId The channel whose messages are tiered
+     * @param store The storage for segment blobs
+     * @throws IOException If an existing manifest cannot be read
+     */
+    public ColdTier(String channelId, ColdSegmentStore store) throws IOException {
+        this(channelId, store, DEFAULT_SEGMENT_MESSAGES);
+    }
+
+    /**
+     * Constructor for a channel's cold tier. Segments tiered for the channel by an earlier run are
+     * picked up from its manifest.
+     * @param channelId The channel whose messages are tiered
+     * @param store The storage for segment blobs
+     * @param segmentMessages The maximum number of messages per segment
+     * @throws IOException If an existing manifest cannot be read
+     */
+    public ColdTier(String channelId, ColdSegmentStore store, int segmentMessages) throws IOException {
+        this.channelId = channelId;
+        this.store = store;
+        this.segmentMessages = Math.max(1, segmentMessages);
+        readManifest();
+    }
+
+    /**
+     * Appends messages to the tier as one or more new segments. All or nothing: if any segment or the
+     * manifest cannot be stored, the segments already written by this call are deleted and the tier
+     * is unchanged.
+     * @param batch The messages to move into cold storage, oldest first
+     * @throws IOException If a segment cannot be stored
+     */
+    public synchronized void append(List<Message> batch) throws IOException {
+        List<SegmentRef> written = new ArrayList<>();
+        int base = segments.isEmpty() ? 0 : segments.get(segments.size() - 1).base + segments.get(segments.size() - 1).count;
+        try {
+            for (int from = 0; from < batch.size(); from += segmentMessages) {
+                base = writeSegment(batch.subList(from, Math.min(batch.size(), from + segmentMessages)), base, written);
+            }
+            List<SegmentRef> next = new ArrayList<>(segments);
+            next.addAll(written);
+            writeManifest(next, skip);
+        } catch (IOException | RuntimeException e) {
+            for (SegmentRef ref : written) {
+                try {
+                    store.delete(ref.key);
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);   // an orphaned blob; nothing references it
+                }
+            }
+            throw e;
+        }
+        segments.addAll(written);
+    }
+
+    /**
+     * Reads a single message, faulting its segment in if necessary.
+     * @param index The position within the tier
+     * @return The message
+     */
+    public synchronized Message read(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Cold message index " + index + " outside [0, " + size() + ")");
+        }
+        int abs = index + skip;
+        SegmentRef ref = segmentFor(abs);
+        return load(ref).get(abs - ref.base);
+    }
+
+    /**
+     * Visits a range of messages in order, loading each segment at most once.
+     * The range is resolved under the tier's lock; segments are loaded and the action runs outside it.
+     * @param from The first position (inclusive)
+     * @param to The last position (exclusive)
+     * @param action The action applied to each message
+     */
+    public void forEach(int from, int to, Consumer<? super Message> action) {
+        forEach(slices(from, to), action);
+    }
+
+    /**
+     * Resolves a range of positions to the segments holding it. The result stays valid when the
+     * positions shift later, so it can be taken under a caller's lock and read after releasing it.
+     */
+    synchronized List<Slice> slices(int from, int to) {
+        List<Slice> out = new ArrayList<>();
+        int abs = Math.max(0, from) + skip;
+        int end = Math.min(to, size()) + skip;
+        while (abs < end) {
+            SegmentRef ref = segmentFor(abs);
+            int segEnd = Math.min(end, ref.base + ref.count);
+            out.add(new Slice(this, ref, abs - ref.base, segEnd - ref.base));
+            abs = segEnd;
+        }
+        return out;
+    }
+
+    /**
+     * Visits the messages of previously resolved slices in order.
+     * A segment dropped by retention in the meantime fails to load with an UncheckedIOException.
+     */
+    static void forEach(List<Slice> slices, Consumer<? super Message> action) {
+        for (Slice slice : slices) {
+            List<Message> msgs = slice.tier.load(slice.ref);
+            for (int i = slice.from; i < slice.to; i++) {
+                action.accept(msgs.get(i));
+            }
+        }
+    }
+
+    /**
+     * Drops the oldest messages; segments are deleted once all of their messages are dropped.
+     * The messages are hidden even if the store fails; the manifest is then brought up to date by
+     * the next successful drop or append.
+     * @param n The number of messages to drop
+     * @throws IOException If the manifest cannot be written or a segment cannot be deleted
+     */
+    public synchronized void dropOldest(int n) throws IOException {
+        skip += Math.min(n, size());
+        int drop = 0, dropped = 0;
+        while (drop < segments.size() && segments.get(drop).count <= skip - dropped) {
+            dropped += segments.get(drop++).count;
+        }
+        // Manifest first: a failure after it can only orphan blobs, never leave a reference to a deleted one
+        writeManifest(segments.subList(drop, segments.size()), skip - dropped);
+        List<SegmentRef> removed = new ArrayList<>(segments.subList(0, drop));
+        segments.subList(0, drop).clear();
+        skip -= dropped;
+        for (SegmentRef r : segments) r.base -= dropped;
+        IOException failure = null;
+        for (SegmentRef ref : removed) {
+            synchronized (CACHE) {
+                CACHE.remove(ref.key);
+            }
+            try {
+                store.delete(ref.key);
+            } catch (IOException e) {
+                if (failure == null) failure = e; else failure.addSuppressed(e);
+            }
+        }
+        if (failure != null) throw failure;
+    }
+
+    /**
+     * Gets the number of messages in the tier.
+     * @return The message count
+     */
+    public synchronized int size() {
+        if (segments.isEmpty()) return 0;
+        SegmentRef last = segments.get(segments.size() - 1);
+        return last.base + last.count - skip;
+    }
+
+    /**
+     * Gets the number of stored segments.
+     * @return The segment count
+     */
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    /** Stores one segment (split if too large), adding its refs to {@code written}. @return the next base */
+    private int writeSegment(List<Message> batch, int base, List<SegmentRef> written) throws IOException {
+        byte[] blob = compress(batch);
+        if (blob.length > store.maxBlobBytes() && batch.size() > 1) {
+            int half = batch.size() / 2;
+            base = writeSegment(batch.subList(0, half), base, written);
+            return writeSegment(batch.subList(half, batch.size()), base, written);
+        }
+        String key = channelId + "/" + String.format("%08d", nextSeq++) + "-" + keySuffix;
+        store.put(key, blob);
+        written.add(new SegmentRef(key, base, batch.size()));
+        return base + batch.size();
+    }
+
+    private String manifestKey() {
+        return channelId + "/manifest";
+    }
+
+    /** Records the segment keys and sizes in order, plus the messages already dropped from the first. */
+    private void writeManifest(List<SegmentRef> refs, int skipped) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MANIFEST_VERSION);
+            out.writeInt(nextSeq);
+            out.writeInt(skipped);
+            out.writeInt(refs.size());
+            for (SegmentRef ref : refs) {
+                out.writeUTF(ref.key);
+                out.writeInt(ref.count);
+            }
+        }
+        store.replace(manifestKey(), bytes.toByteArray());
+    }
+
+    private void readManifest() throws IOException {
+        byte[] blob = store.find(manifestKey());
+        if (blob == null) return;
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(blob))) {
+            int version = in.readInt();
+            if (version != MANIFEST_VERSION) {
+                throw new IOException("Unsupported cold tier manifest version " + version + " for " + channelId);
+            }
+            nextSeq = in.readInt();
+            skip = in.readInt();
+            int n = in.readInt();
+            int base = 0;
+            for (int i = 0; i < n; i++) {
+                SegmentRef ref = new SegmentRef(in.readUTF(), base, in.readInt());
+                segments.add(ref);
+                base += ref.count;
+            }
+        }
+    }
+
+    private SegmentRef segmentFor(int abs) {
+        int lo = 0, hi = segments.size() - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (segments.get(mid).base <= abs) lo = mid; else hi = mid - 1;
+        }
+        return segments.get(lo);
+    }
+
+    private List<Message> load(SegmentRef ref) {
+        synchronized (CACHE) {
+            List<Message> cached = CACHE.get(ref.key);
+            if (cached != null) return cached;
+        }
+        List<Message> msgs;
+        try {
+            msgs = decompress(store.get(ref.key), ref.count);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load cold segment " + ref.key, e);
+        }
+        synchronized (CACHE) {
+            CACHE.put(ref.key, msgs);
+        }
+        return msgs;
+    }
+
+    private static byte[] compress(List<Message> batch) {
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        for (Message m : batch) {
+            byte[] record = MessageCodec.encode(m);
+            raw.write(record.length >>> 24);
+            raw.write(record.length >>> 16);
+            raw.write(record.length >>> 8);
+            raw.write(record.length);
+            raw.write(record, 0, record.length);
+        }
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(raw.toByteArray());
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.size() / 4 + 64);
+            byte[] buf = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buf, 0, deflater.deflate(buf));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static List<Message> decompress(byte[] blob, int count) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(blob);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(blob.length * 4);
+            byte[] buf = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buf);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated cold segment");
+                }
+                out.write(buf, 0, n);
+            }
+            ByteBuffer records = ByteBuffer.wrap(out.toByteArray());
+            List<Message> msgs = new ArrayList<>(count);
+            while (records.hasRemaining()) {
+                int len = records.getInt();
+                int next = records.position() + len;
+                msgs.add(MessageCodec.decode(records));
+                records.position(next);
+            }
+            return Collections.unmodifiableList(msgs);
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt cold segment", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /** Part of one segment, as offsets within it. */
+    static final class Slice {
+        final ColdTier tier;
+        final SegmentRef ref;
+        final int from;
+        final int to;
+
+        Slice(ColdTier tier, SegmentRef ref, int from, int to) {
+            this.tier = tier;
+            this.ref = ref;
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    /**
+     * Location of one stored segment within the tier.
+     */
+    private static final class SegmentRef {
+        final String key;
+        int base;
+        final int count;
+
+        SegmentRef(String key, int base, int count) {
+            this.key = key;
+            this.base = base;
+            this.count = count;
+        }
+    }
+}
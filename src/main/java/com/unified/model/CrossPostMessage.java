@@ -0,0 +1,93 @@
+package com.unified.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * CrossPostMessage class representing a lightweight pointer to an announcement shared by several channels.
+ * The announcement body is stored once in the {@link AnnouncementRegistry}; each course channel only
+ * holds this pointer, which reads its content and announcement fields through to the shared body.
+ */
+public class CrossPostMessage extends AnnouncementMessage {
+    private final String bodyId;
+    private transient AnnouncementMessage body;
+
+    /**
+     * Constructor for cross-posting a registered announcement into a channel.
+     * @param senderId The ID of the user cross-posting
+     * @param channelId The ID of the channel receiving the pointer
+     * @param body The shared announcement body
+     */
+    public CrossPostMessage(String senderId, String channelId, AnnouncementMessage body) {
+        super(senderId, channelId, null, null, null, false, null);
+        this.bodyId = body.getMessageId();
+        this.body = body;
+    }
+
+    /**
+     * Constructor for loading an existing pointer from storage.
+     * @param messageId The existing message ID
+     * @param senderId The sender ID
+     * @param channelId The channel ID
+     * @param timestamp The message timestamp
+     * @param isRead Whether the message has been read
+     * @param bodyId The message ID of the shared announcement body
+     */
+    public CrossPostMessage(String messageId, String senderId, String channelId, LocalDateTime timestamp,
+                            boolean isRead, String bodyId) {
+        super(messageId, senderId, channelId, null, timestamp, isRead, null, null, false, null);
+        this.bodyId = bodyId;
+    }
+
+    /**
+     * Gets the shared announcement this pointer refers to.
+     * @return The body, or null if it is not in the registry
+     */
+    public AnnouncementMessage getBody() {
+        AnnouncementMessage b = body;
+        if (b == null) {
+            b = AnnouncementRegistry.getDefault().get(bodyId);
+            body = b;
+        }
+        return b;
+    }
+
+    public String getBodyId() {
+        return bodyId;
+    }
+
+    @Override
+    public String getContent() {
+        AnnouncementMessage b = getBody();
+        return b == null ? "[announcement unavailable]" : b.getContent();
+    }
+
+    @Override
+    public String getFormattedContent() {
+        AnnouncementMessage b = getBody();
+        return b == null ? getContent() : b.getFormattedContent();
+    }
+
+    @Override
+    public String getCourseId() {
+        AnnouncementMessage b = getBody();
+        return b == null ? null : b.getCourseId();
+    }
+
+    @Override
+    public String getCourseName() {
+        AnnouncementMessage b = getBody();
+        return b == null ? null : b.getCourseName();
+    }
+
+    @Override
+    public boolean isImportant() {
+        AnnouncementMessage b = getBody();
+        return b != null && b.isImportant();
+    }
+
+    @Override
+    public String getAnnouncementType() {
+        AnnouncementMessage b = getBody();
+        return b == null ? null : b.getAnnouncementType();
+    }
+}
@@ -0,0 +1,57 @@
+package com.unified.model;
+
+/**
+ * DeliveryLane enum ranking send and fan-out work by urgency.
+ * Each lane has a weight: when all lanes are busy, a lane gets roughly weight / (sum of weights) of
+ * the workers' turns, so an exam-room change overtakes a chat backlog without starving chat entirely.
+ */
+public enum DeliveryLane {
+    IMPORTANT_ANNOUNCEMENT(8, 1024),
+    ANNOUNCEMENT(4, 2048),
+    CHAT(1, 8192);
+
+    private final int weight;
+    private final int capacity;
+
+    DeliveryLane(int weight, int capacity) {
+        this.weight = weight;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Picks the lane for a message.
+     * @param message The message being sent or fanned out
+     * @return The message's lane
+     */
+    public static DeliveryLane of(Message message) {
+        if (message instanceof AnnouncementMessage) {
+            return ((AnnouncementMessage) message).isImportant() ? IMPORTANT_ANNOUNCEMENT : ANNOUNCEMENT;
+        }
+        return CHAT;
+    }
+
+    /**
+     * Picks the lane for a stored message type.
+     * @param type The message type, e.g. "text" or "announcement"
+     * @param important Whether an announcement is flagged important
+     * @return The lane
+     */
+    public static DeliveryLane of(String type, boolean important) {
+        if ("announcement".equalsIgnoreCase(type)) {
+            return important ? IMPORTANT_ANNOUNCEMENT : ANNOUNCEMENT;
+        }
+        return CHAT;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    /**
+     * Gets the default queue bound for the lane.
+     * @return The maximum number of queued tasks
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+}
@@ -13,18 +13,39 @@ public class DirectMessageChannel extends Channel {
 
     /**
      * Constructor for creating a new direct message channel.
+     * The channel ID is the pair's canonical key, so both users always resolve to the same channel.
      * @param user1Id The ID of the first user
      * @param user2Id The ID of the second user
      */
     public DirectMessageChannel(String user1Id, String user2Id) {
-        super("DM_" + user1Id + "_" + user2Id, 
-              "Direct message between users", 
-              user1Id);
+        super(pairKey(user1Id, user2Id),
+              "DM_" + user1Id + "_" + user2Id,
+              "Direct message between users",
+              user1Id,
+              Set.of(user1Id, user2Id),
+              new Date(),
+              true);
         this.user1Id = user1Id;
         this.user2Id = user2Id;
-        
-        // Add both users as participants
-        addParticipant(user2Id);
+    }
+
+    /**
+     * Gets the canonical key of an unordered pair of users.
+     * The key is the same whichever user is passed first and is safe to use as a document ID.
+     * @param userA The ID of one user
+     * @param userB The ID of the other user
+     * @return The pair key, "dm_" followed by both IDs in sorted order
+     */
+    public static String pairKey(String userA, String userB) {
+        return userA.compareTo(userB) <= 0 ? "dm_" + userA + "_" + userB : "dm_" + userB + "_" + userA;
+    }
+
+    /**
+     * Gets this channel's canonical pair key.
+     * @return The pair key of the two users
+     */
+    public String getPairKey() {
+        return pairKey(user1Id, user2Id);
     }
 
     /**
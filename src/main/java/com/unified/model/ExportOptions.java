@@ -0,0 +1,90 @@
+package com.unified.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * ExportOptions class describing how a chat history export is written.
+ * Holds the output format and an optional time range used to filter messages.
+ */
+public class ExportOptions {
+
+    /**
+     * Output formats supported by chat history export.
+     */
+    public enum Format {
+        TEXT("txt"),
+        JSONL("jsonl"),
+        CSV("csv");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        /**
+         * Picks the format matching a file name's extension.
+         * @param fileName The target file name
+         * @return The matching format, or TEXT if the extension is not recognized
+         */
+        public static Format fromFileName(String fileName) {
+            String lower = fileName == null ? "" : fileName.toLowerCase();
+            for (Format f : values()) {
+                if (lower.endsWith("." + f.extension)) return f;
+            }
+            return TEXT;
+        }
+    }
+
+    private final Format format;
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+
+    /**
+     * Constructor for exporting every message in the given format.
+     * @param format The output format
+     */
+    public ExportOptions(Format format) {
+        this(format, null, null);
+    }
+
+    /**
+     * Constructor for exporting messages within a time range.
+     * @param format The output format
+     * @param from The earliest timestamp to include (inclusive), or null for no lower bound
+     * @param to The latest timestamp to include (exclusive), or null for no upper bound
+     */
+    public ExportOptions(Format format, LocalDateTime from, LocalDateTime to) {
+        this.format = format == null ? Format.TEXT : format;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Checks whether a message falls inside the configured time range.
+     * @param message The message to check
+     * @return true if the message should be exported, false otherwise
+     */
+    public boolean includes(Message message) {
+        LocalDateTime ts = message.getTimestamp();
+        if (from != null && ts.isBefore(from)) return false;
+        return to == null || ts.isBefore(to);
+    }
+
+    // Getters
+    public Format getFormat() {
+        return format;
+    }
+
+    public LocalDateTime getFrom() {
+        return from;
+    }
+
+    public LocalDateTime getTo() {
+        return to;
+    }
+}
@@ -9,6 +9,7 @@ public class FileMessage extends Message {
     private String fileUrl;
     private long fileSize;
     private String fileType;
+    private transient String formattedContent;   // built on first use, cleared by the setters
 
     /**
      * Constructor for creating a new file message.
@@ -58,10 +59,12 @@ public class FileMessage extends Message {
 
     @Override
     public String getFormattedContent() {
-        return String.format("📎 %s (%s, %s)", 
-                fileName, 
-                formatFileSize(fileSize), 
-                fileType);
+        String formatted = formattedContent;
+        if (formatted == null) {
+            formatted = "📎 " + fileName + " (" + formatFileSize(fileSize) + ", " + fileType + ")";
+            formattedContent = formatted;
+        }
+        return formatted;
     }
 
     /**
@@ -88,6 +91,7 @@ public class FileMessage extends Message {
 
     public void setFileName(String fileName) {
         this.fileName = fileName;
+        this.formattedContent = null;
     }
 
     public String getFileUrl() {
@@ -104,6 +108,7 @@ public class FileMessage extends Message {
 
     public void setFileSize(long fileSize) {
         this.fileSize = fileSize;
+        this.formattedContent = null;
     }
 
     public String getFileType() {
@@ -112,6 +117,7 @@ public class FileMessage extends Message {
 
     public void setFileType(String fileType) {
         this.fileType = fileType;
+        this.formattedContent = null;
     }
 
     @Override
@@ -52,7 +52,7 @@ public class GroupChatChannel extends Channel {
     }
 
     @Override
-    public boolean addParticipant(String userId) {
+    public synchronized boolean addParticipant(String userId) {
         if (getParticipantCount() >= maxParticipants) {
             return false; // Group is full
         }
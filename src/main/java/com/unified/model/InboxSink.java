@@ -0,0 +1,28 @@
+package com.unified.model;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Destination for per-user announcement deliveries.
+ * Implementations write one inbox entry (or read-state update) per recipient and should do so
+ * for the whole batch in as few round trips as their storage allows.
+ */
+public interface InboxSink {
+
+    /**
+     * Delivers an announcement to a batch of recipients.
+     * @param announcement The announcement being delivered
+     * @param userIds The recipients in this batch, at most {@link #maxBatchSize()} of them
+     * @throws IOException If the batch could not be written
+     */
+    void deliver(AnnouncementMessage announcement, List<String> userIds) throws IOException;
+
+    /**
+     * Gets the largest batch this sink accepts in one call.
+     * @return The maximum number of recipients per {@link #deliver} call
+     */
+    default int maxBatchSize() {
+        return 500;
+    }
+}
@@ -0,0 +1,182 @@
+package com.unified.model;
+
+import com.unified.util.LatencyHistogram;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * LaneScheduler class running send and fan-out work from per-priority bounded queues.
+ * Workers pick lanes by weighted round robin: each lane may run up to its weight in tasks per round,
+ * higher-priority lanes first, and a new round starts once no lane with turns left has work.
+ * Queue wait and run time are recorded per lane.
+ */
+public class LaneScheduler {
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    private final Map<DeliveryLane, Lane> lanes = new EnumMap<>(DeliveryLane.class);
+    private final DeliveryLane[] order = DeliveryLane.values();
+    private final Thread[] workers;
+    private int queued;
+    private volatile boolean shutdown;
+
+    /**
+     * Constructor for a scheduler with each lane's default capacity.
+     * @param workerCount The number of worker threads
+     */
+    public LaneScheduler(int workerCount) {
+        this(workerCount, null);
+    }
+
+    /**
+     * Constructor for a scheduler.
+     * @param workerCount The number of worker threads
+     * @param capacities Queue bound per lane; missing lanes use {@link DeliveryLane#getCapacity()}
+     */
+    public LaneScheduler(int workerCount, Map<DeliveryLane, Integer> capacities) {
+        for (DeliveryLane lane : order) {
+            int capacity = capacities != null && capacities.containsKey(lane) ? capacities.get(lane) : lane.getCapacity();
+            lanes.put(lane, new Lane(lane, Math.max(1, capacity)));
+        }
+        workers = new Thread[Math.max(1, workerCount)];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Thread(this::workLoop, "delivery-lane-" + THREAD_COUNTER.incrementAndGet());
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * Queues a task on a lane without blocking.
+     * @param lane The lane to run on
+     * @param task The task
+     * @return true if queued, false if the lane is full or the scheduler is shut down
+     */
+    public boolean submit(DeliveryLane lane, Runnable task) {
+        Lane l = lanes.get(lane);
+        synchronized (this) {
+            if (shutdown || l.queue.size() >= l.capacity) {
+                l.rejected++;
+                return false;
+            }
+            l.queue.addLast(new Task(task, System.nanoTime()));
+            l.submitted++;
+            queued++;
+            notify();
+        }
+        return true;
+    }
+
+    /**
+     * Gets the number of tasks waiting in a lane.
+     * @param lane The lane
+     * @return The queue depth
+     */
+    public synchronized int getQueued(DeliveryLane lane) {
+        return lanes.get(lane).queue.size();
+    }
+
+    /**
+     * Stops the workers; queued tasks are discarded.
+     */
+    public void shutdown() {
+        synchronized (this) {
+            shutdown = true;
+            notifyAll();
+        }
+        for (Thread t : workers) t.interrupt();
+    }
+
+    /**
+     * Gets per-lane queue depth, counters and latency summaries.
+     * @return The metrics, keyed by lane name
+     */
+    public synchronized Map<String, Object> metrics() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        for (Lane l : lanes.values()) {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("weight", l.lane.getWeight());
+            m.put("capacity", l.capacity);
+            m.put("queued", l.queue.size());
+            m.put("submitted", l.submitted);
+            m.put("rejected", l.rejected);
+            m.put("wait", l.wait.toMap());
+            m.put("run", l.run.toMap());
+            out.put(l.lane.name(), m);
+        }
+        return out;
+    }
+
+    private void workLoop() {
+        while (true) {
+            Lane lane;
+            Task task;
+            synchronized (this) {
+                while (queued == 0 && !shutdown) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        if (shutdown) return;
+                    }
+                }
+                if (shutdown) return;
+                lane = nextLane();
+                task = lane.queue.pollFirst();
+                queued--;
+            }
+            long start = System.nanoTime();
+            lane.wait.recordNanos(start - task.enqueuedAt);
+            try {
+                task.runnable.run();
+            } catch (RuntimeException e) {
+                System.err.println("Delivery task failed on lane " + lane.lane + ": " + e);
+            } finally {
+                lane.run.recordNanos(System.nanoTime() - start);
+            }
+        }
+    }
+
+    /** Called with the lock held and at least one task queued. */
+    private Lane nextLane() {
+        for (int round = 0; round < 2; round++) {
+            for (DeliveryLane d : order) {
+                Lane l = lanes.get(d);
+                if (l.credits > 0 && !l.queue.isEmpty()) {
+                    l.credits--;
+                    return l;
+                }
+            }
+            for (Lane l : lanes.values()) l.credits = l.lane.getWeight();
+        }
+        throw new IllegalStateException("No queued task");
+    }
+
+    private static final class Lane {
+        final DeliveryLane lane;
+        final int capacity;
+        final ArrayDeque<Task> queue = new ArrayDeque<>();
+        final LatencyHistogram wait = new LatencyHistogram();
+        final LatencyHistogram run = new LatencyHistogram();
+        int credits;
+        long submitted, rejected;
+
+        Lane(DeliveryLane lane, int capacity) {
+            this.lane = lane;
+            this.capacity = capacity;
+            this.credits = lane.getWeight();
+        }
+    }
+
+    private static final class Task {
+        final Runnable runnable;
+        final long enqueuedAt;
+
+        Task(Runnable runnable, long enqueuedAt) {
+            this.runnable = runnable;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+}
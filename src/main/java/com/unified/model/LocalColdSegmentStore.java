@@ -0,0 +1,54 @@
+package com.unified.model;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * LocalColdSegmentStore class keeping compressed message segments as files in a local directory.
+ */
+public class LocalColdSegmentStore implements ColdSegmentStore {
+    private final Path directory;
+
+    /**
+     * Constructor for a local segment store.
+     * @param directory The directory holding segment files
+     */
+    public LocalColdSegmentStore(Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public void put(String key, byte[] blob) throws IOException {
+        Path file = resolve(key);
+        Files.createDirectories(file.getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(tmp, blob);
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public byte[] get(String key) throws IOException {
+        return Files.readAllBytes(resolve(key));
+    }
+
+    @Override
+    public byte[] find(String key) throws IOException {
+        try {
+            return Files.readAllBytes(resolve(key));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(resolve(key));
+    }
+
+    private Path resolve(String key) {
+        return directory.resolve(key + ".seg.z");
+    }
+}
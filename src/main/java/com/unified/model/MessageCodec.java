@@ -0,0 +1,144 @@
+package com.unified.model;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * MessageCodec class converting messages to and from a compact binary record.
+ * Used by the on-disk message history so that messages can be stored and materialized lazily.
+ */
+public final class MessageCodec {
+    private static final byte TYPE_TEXT = 1;
+    private static final byte TYPE_FILE = 2;
+    private static final byte TYPE_ANNOUNCEMENT = 3;
+    private static final byte TYPE_CROSS_POST = 4;
+
+    private MessageCodec() {}
+
+    /**
+     * Encodes a message into a binary record.
+     * @param message The message to encode
+     * @return The encoded record bytes
+     */
+    public static byte[] encode(Message message) {
+        byte type = typeOf(message);
+        byte[][] strings = stringsOf(message, type);
+
+        int size = 1 + 8 + 4 + 1;
+        for (byte[] s : strings) {
+            size += 4 + (s == null ? 0 : s.length);
+        }
+        if (type == TYPE_FILE) size += 8;
+        if (type == TYPE_ANNOUNCEMENT) size += 1;
+
+        ByteBuffer buf = ByteBuffer.allocate(size);
+        buf.put(type);
+        LocalDateTime ts = message.getTimestamp();
+        buf.putLong(ts.toEpochSecond(ZoneOffset.UTC));
+        buf.putInt(ts.getNano());
+        buf.put((byte) (message.isRead() ? 1 : 0));
+        for (byte[] s : strings) {
+            putString(buf, s);
+        }
+        if (type == TYPE_FILE) {
+            buf.putLong(((FileMessage) message).getFileSize());
+        } else if (type == TYPE_ANNOUNCEMENT) {
+            buf.put((byte) (((AnnouncementMessage) message).isImportant() ? 1 : 0));
+        }
+        return buf.array();
+    }
+
+    /**
+     * Decodes a message from a binary record.
+     * Reads from the buffer's current position and advances it past the record.
+     * @param buf The buffer positioned at the start of a record
+     * @return The decoded message
+     */
+    public static Message decode(ByteBuffer buf) {
+        byte type = buf.get();
+        LocalDateTime timestamp = LocalDateTime.ofEpochSecond(buf.getLong(), buf.getInt(), ZoneOffset.UTC);
+        boolean isRead = buf.get() != 0;
+        String messageId = getString(buf);
+        String senderId = getString(buf);
+        String channelId = getString(buf);
+        String content = getString(buf);
+
+        switch (type) {
+            case TYPE_TEXT:
+                return new TextMessage(messageId, senderId, channelId, content, timestamp, isRead);
+            case TYPE_FILE: {
+                String fileName = getString(buf);
+                String fileUrl = getString(buf);
+                String fileType = getString(buf);
+                long fileSize = buf.getLong();
+                return new FileMessage(messageId, senderId, channelId, content, timestamp, isRead,
+                        fileName, fileUrl, fileSize, fileType);
+            }
+            case TYPE_ANNOUNCEMENT: {
+                String courseId = getString(buf);
+                String courseName = getString(buf);
+                String announcementType = getString(buf);
+                boolean isImportant = buf.get() != 0;
+                return new AnnouncementMessage(messageId, senderId, channelId, content, timestamp, isRead,
+                        courseId, courseName, isImportant, announcementType);
+            }
+            case TYPE_CROSS_POST:
+                return new CrossPostMessage(messageId, senderId, channelId, timestamp, isRead, getString(buf));
+            default:
+                throw new IllegalArgumentException("Unknown message record type: " + type);
+        }
+    }
+
+    private static byte typeOf(Message message) {
+        if (message instanceof FileMessage) return TYPE_FILE;
+        if (message instanceof CrossPostMessage) return TYPE_CROSS_POST;
+        if (message instanceof AnnouncementMessage) return TYPE_ANNOUNCEMENT;
+        if (message instanceof TextMessage) return TYPE_TEXT;
+        throw new IllegalArgumentException("Unsupported message type: " + message.getMessageType());
+    }
+
+    private static byte[][] stringsOf(Message message, byte type) {
+        byte[] id = utf8(message.getMessageId());
+        byte[] sender = utf8(message.getSenderId());
+        byte[] channel = utf8(message.getChannelId());
+        if (type == TYPE_CROSS_POST) {
+            // Only the pointer is stored; the body lives once in the AnnouncementRegistry.
+            return new byte[][] {id, sender, channel, null, utf8(((CrossPostMessage) message).getBodyId())};
+        }
+        byte[] content = utf8(message.getContent());
+        if (type == TYPE_FILE) {
+            FileMessage f = (FileMessage) message;
+            return new byte[][] {id, sender, channel, content,
+                    utf8(f.getFileName()), utf8(f.getFileUrl()), utf8(f.getFileType())};
+        }
+        if (type == TYPE_ANNOUNCEMENT) {
+            AnnouncementMessage a = (AnnouncementMessage) message;
+            return new byte[][] {id, sender, channel, content,
+                    utf8(a.getCourseId()), utf8(a.getCourseName()), utf8(a.getAnnouncementType())};
+        }
+        return new byte[][] {id, sender, channel, content};
+    }
+
+    private static byte[] utf8(String s) {
+        return s == null ? null : s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void putString(ByteBuffer buf, byte[] s) {
+        if (s == null) {
+            buf.putInt(-1);
+            return;
+        }
+        buf.putInt(s.length);
+        buf.put(s);
+    }
+
+    private static String getString(ByteBuffer buf) {
+        int len = buf.getInt();
+        if (len < 0) return null;
+        byte[] bytes = new byte[len];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
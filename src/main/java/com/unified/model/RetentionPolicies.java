@@ -0,0 +1,85 @@
+package com.unified.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * RetentionPolicies class holding the retention policy configured for each channel type.
+ * Channel types without a policy keep their messages forever.
+ */
+public class RetentionPolicies {
+    private static final String ENV_PREFIX = "UNIFIED_RETENTION_";
+    private static final String[] CHANNEL_TYPES = {"DIRECT_MESSAGE", "GROUP_CHAT", "COURSE"};
+
+    private final Map<String, RetentionPolicy> byType = new LinkedHashMap<>();
+
+    /**
+     * Loads policies from environment variables named {@code UNIFIED_RETENTION_<CHANNEL_TYPE>},
+     * e.g. {@code UNIFIED_RETENTION_DIRECT_MESSAGE=maxAgeDays=365,action=DELETE}.
+     * @return The configured policies
+     */
+    public static RetentionPolicies fromEnvironment() {
+        RetentionPolicies policies = new RetentionPolicies();
+        for (String type : CHANNEL_TYPES) {
+            String spec = System.getenv(ENV_PREFIX + type);
+            if (spec != null && !spec.isBlank()) {
+                policies.set(type, RetentionPolicy.parse(spec));
+            }
+        }
+        return policies;
+    }
+
+    /**
+     * Sets the policy for a channel type.
+     * @param channelType The channel type, as returned by {@link Channel#getChannelType()}
+     * @param policy The policy to apply
+     */
+    public void set(String channelType, RetentionPolicy policy) {
+        byType.put(normalizeType(channelType), policy);
+    }
+
+    /**
+     * Gets the policy for a channel.
+     * @param channel The channel
+     * @return The channel type's policy, or {@link RetentionPolicy#KEEP_ALL}
+     */
+    public RetentionPolicy forChannel(Channel channel) {
+        return forType(channel.getChannelType());
+    }
+
+    /**
+     * Gets the policy for a channel type.
+     * Accepts both model types (DIRECT_MESSAGE, GROUP_CHAT) and stored types (DIRECT, GROUP).
+     * @param channelType The channel type
+     * @return The type's policy, or {@link RetentionPolicy#KEEP_ALL}
+     */
+    public RetentionPolicy forType(String channelType) {
+        return byType.getOrDefault(normalizeType(channelType), RetentionPolicy.KEEP_ALL);
+    }
+
+    /**
+     * Checks whether any channel type has a bounded policy.
+     * @return true if at least one policy can expire messages
+     */
+    public boolean isEmpty() {
+        return byType.values().stream().noneMatch(RetentionPolicy::isBounded);
+    }
+
+    private static String normalizeType(String channelType) {
+        if (channelType == null) return "";
+        String t = channelType.toUpperCase();
+        switch (t) {
+            case "DIRECT":
+                return "DIRECT_MESSAGE";
+            case "GROUP":
+                return "GROUP_CHAT";
+            default:
+                return t;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RetentionPolicies" + byType;
+    }
+}
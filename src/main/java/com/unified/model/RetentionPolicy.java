@@ -0,0 +1,113 @@
+package com.unified.model;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * RetentionPolicy class describing how long a channel keeps its messages.
+ * Messages older than the maximum age, or beyond the maximum count, are either archived or deleted.
+ */
+public class RetentionPolicy {
+
+    /**
+     * What happens to messages that fall outside the policy.
+     */
+    public enum Action {
+        ARCHIVE,
+        DELETE
+    }
+
+    /** Policy that keeps every message forever. */
+    public static final RetentionPolicy KEEP_ALL = new RetentionPolicy(null, 0, Action.ARCHIVE);
+
+    private final Duration maxAge;
+    private final int maxCount;
+    private final Action action;
+
+    /**
+     * Constructor for a retention policy.
+     * @param maxAge The maximum message age, or null for no age limit
+     * @param maxCount The maximum number of messages kept, or 0 for no count limit
+     * @param action Whether expired messages are archived or deleted
+     */
+    public RetentionPolicy(Duration maxAge, int maxCount, Action action) {
+        this.maxAge = maxAge;
+        this.maxCount = Math.max(0, maxCount);
+        this.action = action == null ? Action.ARCHIVE : action;
+    }
+
+    /**
+     * Parses a policy from a comma-separated specification such as
+     * {@code maxAgeDays=365,maxCount=50000,action=DELETE}.
+     * @param spec The policy specification
+     * @return The parsed policy
+     * @throws IllegalArgumentException If the specification is malformed
+     */
+    public static RetentionPolicy parse(String spec) {
+        Duration maxAge = null;
+        int maxCount = 0;
+        Action action = Action.ARCHIVE;
+        for (String part : spec.split(",")) {
+            String[] kv = part.trim().split("=", 2);
+            if (kv.length != 2) throw new IllegalArgumentException("Invalid retention setting: " + part);
+            String key = kv[0].trim();
+            String value = kv[1].trim();
+            switch (key) {
+                case "maxAgeDays":
+                    maxAge = Duration.ofDays(Long.parseLong(value));
+                    break;
+                case "maxAgeHours":
+                    maxAge = Duration.ofHours(Long.parseLong(value));
+                    break;
+                case "maxCount":
+                    maxCount = Integer.parseInt(value);
+                    break;
+                case "action":
+                    action = Action.valueOf(value.toUpperCase());
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown retention setting: " + key);
+            }
+        }
+        return new RetentionPolicy(maxAge, maxCount, action);
+    }
+
+    /**
+     * Checks whether this policy can ever expire a message.
+     * @return true if an age or count limit is set, false otherwise
+     */
+    public boolean isBounded() {
+        return maxAge != null || maxCount > 0;
+    }
+
+    /**
+     * Gets the cutoff before which messages are expired.
+     * @param now The current time
+     * @return The cutoff timestamp, or null if there is no age limit
+     */
+    public LocalDateTime cutoff(LocalDateTime now) {
+        return maxAge == null ? null : now.minus(maxAge);
+    }
+
+    // Getters
+    public Duration getMaxAge() {
+        return maxAge;
+    }
+
+    public int getMaxCount() {
+        return maxCount;
+    }
+
+    public Action getAction() {
+        return action;
+    }
+
+    @Override
+    public String toString() {
+        return "RetentionPolicy{" +
+                "maxAge=" + maxAge +
+                ", maxCount=" + maxCount +
+                ", action=" + action +
+                '}';
+    }
+}
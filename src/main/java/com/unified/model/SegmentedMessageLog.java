@@ -0,0 +1,389 @@
+package com.unified.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * SegmentedMessageLog class storing a channel's message history in fixed-size, memory-mapped segment files.
+ * Each segment keeps a sparse offset index so that reads only touch the pages holding the requested messages.
+ * Messages are materialized lazily on read; nothing is loaded when the log is opened.
+ */
+public class SegmentedMessageLog implements Closeable {
+    public static final int DEFAULT_SEGMENT_BYTES = 4 * 1024 * 1024;
+    private static final int INDEX_INTERVAL = 32;
+    private static final int READ_BATCH = 256;
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String INDEX_SUFFIX = ".idx";
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final List<Segment> segments = new ArrayList<>();
+    private boolean closed;
+
+    /**
+     * Opens (or creates) a message log with the default segment size.
+     * @param directory The directory holding this channel's segment files
+     * @throws IOException If the segment files cannot be opened
+     */
+    public SegmentedMessageLog(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_BYTES);
+    }
+
+    /**
+     * Opens (or creates) a message log.
+     * Only the sparse indexes and the tail of the active segment are read.
+     * @param directory The directory holding this channel's segment files
+     * @param segmentBytes The fixed size of each segment file in bytes
+     * @throws IOException If the segment files cannot be opened
+     */
+    public SegmentedMessageLog(Path directory, int segmentBytes) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(directory);
+
+        List<Integer> bases = new ArrayList<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path p : ds) {
+                String name = p.getFileName().toString();
+                bases.add(Integer.parseInt(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+            }
+        }
+        bases.sort(null);
+
+        for (int i = 0; i < bases.size(); i++) {
+            Segment s = new Segment(bases.get(i));
+            s.loadIndex();
+            if (i + 1 < bases.size()) {
+                s.count = bases.get(i + 1) - s.base;
+            } else {
+                s.recoverTail();
+            }
+            segments.add(s);
+        }
+        if (segments.isEmpty()) {
+            segments.add(newSegment(0));
+        } else {
+            active().openForAppend();
+        }
+    }
+
+    /**
+     * Appends a message to the end of the log.
+     * @param message The message to append
+     * @return The index of the appended message
+     * @throws IOException If the record cannot be written
+     */
+    public synchronized int append(Message message) throws IOException {
+        if (closed) throw new IOException("Message log " + directory + " is closed");
+        byte[] record = MessageCodec.encode(message);
+        if (record.length + 4 > segmentBytes - 4) {
+            throw new IllegalArgumentException("Message too large for segment: " + record.length + " bytes");
+        }
+        Segment s = active();
+        if (s.writePos + 4 + record.length > segmentBytes - 4) {
+            s.seal();
+            s = newSegment(s.base + s.count);
+            segments.add(s);
+        }
+        s.append(record);
+        return s.base + s.count - 1;
+    }
+
+    /**
+     * Reads a single message.
+     * @param index The absolute message index
+     * @return The materialized message
+     */
+    public synchronized Message read(int index) {
+        checkIndex(index);
+        Segment s = segmentFor(index);
+        ByteBuffer buf = s.view();
+        buf.position(s.seek(buf, index - s.base));
+        buf.getInt();
+        return MessageCodec.decode(buf);
+    }
+
+    /**
+     * Reads a contiguous range of messages.
+     * @param from The first absolute index (inclusive)
+     * @param to The last absolute index (exclusive)
+     * @return The materialized messages in order
+     */
+    public synchronized List<Message> read(int from, int to) {
+        from = Math.max(from, firstIndex());
+        to = Math.min(to, endIndex());
+        List<Message> out = new ArrayList<>(Math.max(0, to - from));
+        decode(from, to, out);
+        return out;
+    }
+
+    /**
+     * Reads the most recent messages.
+     * @param n The maximum number of messages to return
+     * @return Up to n of the latest messages, oldest first
+     */
+    public synchronized List<Message> lastN(int n) {
+        int end = endIndex();
+        return read(Math.max(firstIndex(), end - n), end);
+    }
+
+    /**
+     * Visits a range of messages in order without retaining them.
+     * Records are decoded in batches of {@link #READ_BATCH} under the log's lock and handed to the
+     * action outside it, so a slow consumer never holds up appends.
+     * @param from The first absolute index (inclusive)
+     * @param to The last absolute index (exclusive)
+     * @param action The action applied to each message
+     */
+    public void forEach(int from, int to, Consumer<? super Message> action) {
+        List<Message> batch = new ArrayList<>(Math.min(READ_BATCH, Math.max(0, to - from)));
+        int index = from;
+        while (true) {
+            batch.clear();
+            synchronized (this) {
+                int start = Math.max(index, firstIndex());
+                int end = Math.min(to, endIndex());
+                if (start >= end) return;
+                index = Math.min(end, start + READ_BATCH);
+                decode(start, index, batch);
+            }
+            for (Message m : batch) action.accept(m);
+        }
+    }
+
+    private void decode(int from, int to, List<Message> out) {
+        int index = from;
+        while (index < to) {
+            Segment s = segmentFor(index);
+            ByteBuffer buf = s.view();
+            buf.position(s.seek(buf, index - s.base));
+            int segEnd = Math.min(to, s.base + s.count);
+            for (; index < segEnd; index++) {
+                int len = buf.getInt();
+                int next = buf.position() + len;
+                out.add(MessageCodec.decode(buf));
+                buf.position(next);
+            }
+        }
+    }
+
+    /**
+     * Deletes every sealed segment whose messages all precede the given index.
+     * Deletion happens at segment granularity, so some earlier messages may remain.
+     * @param index The absolute index of the oldest message that must be kept
+     * @return The new first index of the log
+     * @throws IOException If a segment file cannot be deleted
+     */
+    public synchronized int truncateBefore(int index) throws IOException {
+        while (segments.size() > 1) {
+            Segment s = segments.get(0);
+            if (s.base + s.count > index) break;
+            s.map = null;
+            Files.deleteIfExists(s.segPath);
+            Files.deleteIfExists(s.idxPath);
+            segments.remove(0);
+        }
+        return firstIndex();
+    }
+
+    /**
+     * Gets the index of the oldest message still held by the log.
+     * @return The first absolute index
+     */
+    public synchronized int firstIndex() {
+        return segments.get(0).base;
+    }
+
+    /**
+     * Gets the index one past the newest message.
+     * @return The end absolute index
+     */
+    public synchronized int endIndex() {
+        Segment s = active();
+        return s.base + s.count;
+    }
+
+    /**
+     * Gets the number of messages held by the log.
+     * @return The message count
+     */
+    public synchronized int size() {
+        return endIndex() - firstIndex();
+    }
+
+    /**
+     * Forces written records to the storage device.
+     */
+    public synchronized void flush() {
+        active().map.force();
+    }
+
+    /**
+     * Flushes the active segment and releases the index file and every mapping.
+     * The mapped pages are returned to the OS once the buffers are collected.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        Segment s = active();
+        if (s.map != null) s.map.force();
+        s.closeIndex();
+        for (Segment seg : segments) seg.map = null;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    private Segment newSegment(int base) throws IOException {
+        Segment s = new Segment(base);
+        s.openForAppend();
+        return s;
+    }
+
+    private Segment active() {
+        return segments.get(segments.size() - 1);
+    }
+
+    private Segment segmentFor(int index) {
+        int lo = 0, hi = segments.size() - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (segments.get(mid).base <= index) lo = mid; else hi = mid - 1;
+        }
+        return segments.get(lo);
+    }
+
+    private void checkIndex(int index) {
+        if (index < firstIndex() || index >= endIndex()) {
+            throw new IndexOutOfBoundsException("Message index " + index + " outside [" + firstIndex() + ", " + endIndex() + ")");
+        }
+    }
+
+    /**
+     * A single fixed-size segment file plus its sparse index of (record, position) pairs.
+     */
+    private final class Segment {
+        final int base;
+        final Path segPath;
+        final Path idxPath;
+        int count;
+        int writePos;
+        MappedByteBuffer map;
+        FileChannel idxChannel;
+        int[] idxRecords = new int[16];
+        int[] idxPositions = new int[16];
+        int idxSize;
+
+        Segment(int base) {
+            this.base = base;
+            String name = String.format("%010d", base);
+            this.segPath = directory.resolve(name + SEGMENT_SUFFIX);
+            this.idxPath = directory.resolve(name + INDEX_SUFFIX);
+        }
+
+        void loadIndex() throws IOException {
+            if (!Files.exists(idxPath)) return;
+            ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(idxPath));
+            while (buf.remaining() >= 8) {
+                addIndexEntry(buf.getInt(), buf.getInt());
+            }
+        }
+
+        /** Finds the record count and write position of the active segment by scanning from its last index entry. */
+        void recoverTail() throws IOException {
+            ByteBuffer buf = view();
+            int record = idxSize == 0 ? 0 : idxRecords[idxSize - 1];
+            int pos = idxSize == 0 ? 0 : idxPositions[idxSize - 1];
+            while (pos + 4 <= buf.limit()) {
+                int len = buf.getInt(pos);
+                if (len <= 0 || pos + 4 + len > buf.limit()) break;
+                pos += 4 + len;
+                record++;
+            }
+            count = record;
+            writePos = pos;
+        }
+
+        void openForAppend() throws IOException {
+            try (FileChannel ch = FileChannel.open(segPath, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                map = ch.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+            }
+            idxChannel = FileChannel.open(idxPath, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+
+        void append(byte[] record) throws IOException {
+            if (count % INDEX_INTERVAL == 0) {
+                ByteBuffer entry = ByteBuffer.allocate(8).putInt(count).putInt(writePos);
+                entry.flip();
+                idxChannel.write(entry);
+                addIndexEntry(count, writePos);
+            }
+            map.put(writePos + 4, record);
+            map.putInt(writePos, record.length);
+            writePos += 4 + record.length;
+            count++;
+        }
+
+        void seal() throws IOException {
+            map.force();
+            closeIndex();
+        }
+
+        void closeIndex() throws IOException {
+            if (idxChannel != null) {
+                idxChannel.close();
+                idxChannel = null;
+            }
+        }
+
+        /** Returns an independent view of the mapped file, mapping sealed segments read-only on first use. */
+        ByteBuffer view() {
+            if (map == null) {
+                try (FileChannel ch = FileChannel.open(segPath, StandardOpenOption.READ)) {
+                    map = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+                } catch (IOException e) {
+                    throw new IllegalStateException("Cannot map segment " + segPath, e);
+                }
+            }
+            return map.duplicate();
+        }
+
+        /** Returns the byte position of a record, starting from the nearest sparse index entry. */
+        int seek(ByteBuffer buf, int record) {
+            int i = Arrays.binarySearch(idxRecords, 0, idxSize, record);
+            if (i < 0) i = -i - 2;
+            int r = i < 0 ? 0 : idxRecords[i];
+            int pos = i < 0 ? 0 : idxPositions[i];
+            while (r < record) {
+                pos += 4 + buf.getInt(pos);
+                r++;
+            }
+            return pos;
+        }
+
+        private void addIndexEntry(int record, int position) {
+            if (idxSize == idxRecords.length) {
+                idxRecords = Arrays.copyOf(idxRecords, idxSize * 2);
+                idxPositions = Arrays.copyOf(idxPositions, idxSize * 2);
+            }
+            idxRecords[idxSize] = record;
+            idxPositions[idxSize] = position;
+            idxSize++;
+        }
+    }
+}
@@ -64,6 +64,34 @@ public abstract class User {
         return PasswordManager.verifyPassword(password, this.hashedPassword);
     }
 
+    /**
+     * Re-hashes the password at the current cost if the stored hash is outdated.
+     * Call only after the password has been verified.
+     * @param password The verified plain text password
+     * @return true if the stored hash was replaced and should be persisted
+     */
+    public boolean rehashPasswordIfNeeded(String password) {
+        if (!PasswordManager.needsRehash(this.hashedPassword)) return false;
+        this.hashedPassword = PasswordManager.hashPassword(password);
+        return true;
+    }
+
+    /**
+     * Gets the stored password hash.
+     * @return The hash, in the format produced by PasswordManager
+     */
+    public String getHashedPassword() {
+        return hashedPassword;
+    }
+
+    /**
+     * Replaces the stored password hash.
+     * @param hashedPassword The new hash
+     */
+    public void setHashedPassword(String hashedPassword) {
+        this.hashedPassword = hashedPassword;
+    }
+
     /**
      * Adds a channel to the user's list of channels.
      * @param channelId The ID of the channel to add
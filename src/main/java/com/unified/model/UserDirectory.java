@@ -0,0 +1,161 @@
+package com.unified.model;
+
+import com.unified.util.PrefixTrie;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * UserDirectory class indexing users for constant-time lookups.
+ * Keeps hash indexes on user ID, username and lower-cased username, a prefix trie over usernames
+ * and full-name words for autocomplete, and a cache of display names that is refreshed whenever
+ * a user's profile is updated. The version counter changes on every modification.
+ */
+public class UserDirectory {
+    private final Map<String, User> byId = new HashMap<>();
+    private final Map<String, User> byUsername = new HashMap<>();
+    private final Map<String, User> byUsernameLower = new HashMap<>();
+    private final Map<String, String> displayNames = new HashMap<>();
+    private final Map<String, List<String>> indexedTerms = new HashMap<>();
+    private final PrefixTrie<String> trie = new PrefixTrie<>();
+    private long version;
+
+    /**
+     * Adds a user, or re-indexes them if already present.
+     * @param user The user to add
+     */
+    public synchronized void add(User user) {
+        remove(user.getUserId());
+        byId.put(user.getUserId(), user);
+        byUsername.put(user.getUsername(), user);
+        byUsernameLower.put(user.getUsername().toLowerCase(), user);
+        List<String> terms = termsOf(user);
+        for (String term : terms) trie.put(term, user.getUserId());
+        indexedTerms.put(user.getUserId(), terms);
+        version++;
+    }
+
+    /**
+     * Adds many users.
+     * @param users The users to add
+     */
+    public synchronized void addAll(Collection<? extends User> users) {
+        for (User u : users) add(u);
+    }
+
+    /**
+     * Removes a user from every index.
+     * @param userId The user ID
+     * @return The removed user, or null if unknown
+     */
+    public synchronized User remove(String userId) {
+        User old = byId.remove(userId);
+        if (old == null) return null;
+        byUsername.remove(old.getUsername(), old);
+        byUsernameLower.remove(old.getUsername().toLowerCase(), old);
+        displayNames.remove(userId);
+        List<String> terms = indexedTerms.remove(userId);
+        if (terms != null) {
+            for (String term : terms) trie.remove(term, userId);
+        }
+        version++;
+        return old;
+    }
+
+    /**
+     * Re-indexes a user after a profile change and invalidates their cached display name.
+     * @param user The updated user
+     */
+    public synchronized void updated(User user) {
+        add(user);
+    }
+
+    public synchronized User get(String userId) {
+        return userId == null ? null : byId.get(userId);
+    }
+
+    /**
+     * Finds a user by exact username.
+     * @param username The username
+     * @return The user, or null
+     */
+    public synchronized User findByUsername(String username) {
+        return username == null ? null : byUsername.get(username);
+    }
+
+    /**
+     * Finds a user by username, ignoring case.
+     * @param username The username
+     * @return The user, or null
+     */
+    public synchronized User findByUsernameIgnoreCase(String username) {
+        return username == null ? null : byUsernameLower.get(username.toLowerCase());
+    }
+
+    /**
+     * Suggests users whose username or a word of their full name starts with a prefix.
+     * @param prefix The typed prefix
+     * @param limit The maximum number of suggestions
+     * @return Matching users, closest matches first
+     */
+    public synchronized List<User> complete(String prefix, int limit) {
+        List<User> out = new ArrayList<>();
+        if (prefix == null || prefix.isBlank()) return out;
+        for (String id : trie.startingWith(prefix.trim(), limit)) {
+            User u = byId.get(id);
+            if (u != null) out.add(u);
+        }
+        return out;
+    }
+
+    /**
+     * Gets a user's display name: their full name, or their username if it is blank.
+     * @param userId The user ID
+     * @return The display name, or "Unknown user"
+     */
+    public synchronized String getDisplayName(String userId) {
+        String cached = displayNames.get(userId);
+        if (cached != null) return cached;
+        User u = byId.get(userId);
+        if (u == null) return "Unknown user";
+        String name = u.getFullName();
+        String display = (name == null || name.isBlank()) ? u.getUsername() : name;
+        displayNames.put(userId, display);
+        return display;
+    }
+
+    /**
+     * Gets a snapshot of every user.
+     * @return The users
+     */
+    public synchronized List<User> values() {
+        return new ArrayList<>(byId.values());
+    }
+
+    public synchronized int size() {
+        return byId.size();
+    }
+
+    /**
+     * Gets a counter that increases on every change, for caches derived from the directory.
+     * @return The directory version
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    private static List<String> termsOf(User user) {
+        List<String> terms = new ArrayList<>();
+        terms.add(user.getUsername());
+        String name = user.getFullName();
+        if (name != null) {
+            for (String word : name.trim().split("\\s+")) {
+                if (!word.isEmpty() && !terms.contains(word)) terms.add(word);
+            }
+        }
+        return terms;
+    }
+}
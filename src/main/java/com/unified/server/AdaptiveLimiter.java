@@ -0,0 +1,175 @@
+package com.unified.server;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * AIMD concurrency limit for calls into the store.
+ * The limit grows by one per limit's worth of fast completions while the limit is actually being
+ * used, and is cut by {@link #BACKOFF} when a call fails or takes more than {@link #TOLERANCE} times
+ * the baseline latency (the lowest recently observed, drifting slowly upward). Cuts happen at most
+ * once per baseline interval, so one slow batch shrinks the limit once, not once per request.
+ * Each {@link Priority} may only fill its share of the limit, so low-priority work is turned away
+ * first and login and send keep running while Firestore is slow.
+ */
+public final class AdaptiveLimiter {
+
+    /** Admission classes, in the order they are shed. */
+    public enum Priority {
+        /** Search, export, channel discovery: only half the limit. */
+        LOW(0.5),
+        /** Everything else. */
+        NORMAL(0.8),
+        /** Login and send: the whole limit. */
+        CRITICAL(1.0);
+
+        final double share;
+
+        Priority(double share) {
+            this.share = share;
+        }
+    }
+
+    /** Thrown by {@link #call} when the request is shed. */
+    public static final class Overloaded extends RejectedExecutionException {
+        private static final long serialVersionUID = 1L;
+
+        Overloaded(Priority p) {
+            super("Store overloaded, shedding " + p + " work");
+        }
+    }
+
+    static final double BACKOFF = 0.75;
+    static final double TOLERANCE = 2.0;
+    /** Latencies below this never count as congestion, however small the baseline. */
+    static final long MIN_CONGESTED_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    /** Per-sample upward drift of the baseline, so a permanently slower store becomes the new normal. */
+    private static final double BASELINE_DRIFT = 0.001;
+
+    /** One admitted request; close it when the store call is done. */
+    public final class Permit implements AutoCloseable {
+        private final long startNanos = System.nanoTime();
+        private boolean failed;
+        private boolean sampled = true;
+        private boolean closed;
+
+        /** The call failed in a way that suggests an overloaded store (timeout, unavailable). */
+        public void failed() {
+            failed = true;
+        }
+
+        /** Releases without feeding the latency estimate, for calls that are slow by design (streaming). */
+        public void ignoreLatency() {
+            sampled = false;
+        }
+
+        @Override
+        public void close() {
+            if (closed) return;
+            closed = true;
+            complete(System.nanoTime() - startNanos, failed, sampled);
+        }
+    }
+
+    private final int minLimit;
+    private final int maxLimit;
+    private double limit;
+    private int inFlight;
+    private long baselineNanos = Long.MAX_VALUE;
+    private long lastCutNanos = System.nanoTime();
+    private final AtomicLong[] admitted = counters();
+    private final AtomicLong[] shed = counters();
+    private final AtomicLong cuts = new AtomicLong();
+
+    public AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.max(this.minLimit, Math.min(this.maxLimit, initialLimit));
+    }
+
+    /** Bounds from UNIFIED_STORE_LIMIT_MIN / _INITIAL / _MAX (defaults 4 / 32 / 256). */
+    public static AdaptiveLimiter fromEnvironment() {
+        Map<String, String> env = System.getenv();
+        return new AdaptiveLimiter(Integer.parseInt(env.getOrDefault("UNIFIED_STORE_LIMIT_INITIAL", "32")),
+                Integer.parseInt(env.getOrDefault("UNIFIED_STORE_LIMIT_MIN", "4")),
+                Integer.parseInt(env.getOrDefault("UNIFIED_STORE_LIMIT_MAX", "256")));
+    }
+
+    /** Admits a request or returns null if its priority's share of the limit is used up. */
+    public Permit tryAcquire(Priority p) {
+        synchronized (this) {
+            int allowed = Math.max(p == Priority.CRITICAL ? minLimit : 1, (int) (limit * p.share));
+            if (inFlight >= allowed) {
+                shed[p.ordinal()].incrementAndGet();
+                return null;
+            }
+            inFlight++;
+        }
+        admitted[p.ordinal()].incrementAndGet();
+        return new Permit();
+    }
+
+    /**
+     * Runs one store call under the limit. Exceptions other than bad-argument errors count as
+     * congestion.
+     * @throws Overloaded if the call is shed
+     */
+    public <T> T call(Priority p, Callable<T> task) throws Exception {
+        Permit permit = tryAcquire(p);
+        if (permit == null) throw new Overloaded(p);
+        try (permit) {
+            return task.call();
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            permit.failed();
+            throw e;
+        }
+    }
+
+    public synchronized Map<String, Object> metrics() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("limit", (int) limit);
+        m.put("inFlight", inFlight);
+        m.put("baselineMillis", baselineNanos == Long.MAX_VALUE ? null : baselineNanos / 1e6);
+        m.put("cuts", cuts.get());
+        Map<String, Object> byPriority = new LinkedHashMap<>();
+        for (Priority p : Priority.values()) {
+            byPriority.put(p.name(), Map.of("admitted", admitted[p.ordinal()].get(), "shed", shed[p.ordinal()].get()));
+        }
+        m.put("priorities", byPriority);
+        return m;
+    }
+
+    private synchronized void complete(long rttNanos, boolean failed, boolean sampled) {
+        boolean saturated = inFlight >= (int) limit / 2;
+        inFlight--;
+        if (!sampled && !failed) return;
+        if (!failed) {
+            baselineNanos = rttNanos < baselineNanos ? rttNanos
+                    : baselineNanos + (long) ((rttNanos - baselineNanos) * BASELINE_DRIFT);
+        }
+        long now = System.nanoTime();
+        long baseline = baselineNanos == Long.MAX_VALUE ? MIN_CONGESTED_NANOS : baselineNanos;
+        boolean congested = failed || rttNanos > Math.max(MIN_CONGESTED_NANOS, (long) (baseline * TOLERANCE));
+        if (congested) {
+            if (now - lastCutNanos > Math.max(baseline, MIN_CONGESTED_NANOS)) {
+                limit = Math.max(minLimit, limit * BACKOFF);
+                lastCutNanos = now;
+                cuts.incrementAndGet();
+            }
+        } else if (saturated) {
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+        }
+    }
+
+    private static AtomicLong[] counters() {
+        AtomicLong[] a = new AtomicLong[Priority.values().length];
+        for (int i = 0; i < a.length; i++) a[i] = new AtomicLong();
+        return a;
+    }
+}
@@ -5,10 +5,25 @@ import com.google.auth.oauth2.GoogleCredentials;
 import com.google.cloud.ServiceOptions;
 import com.google.cloud.Timestamp;
 import com.google.cloud.firestore.*;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.ToNumberPolicy;
+import com.unified.model.DirectMessageChannel;
 import com.unified.model.Student;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.ExecutionException;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 
 /** Firestore access for Unified (hard-fail on errors). */
 public final class CloudStore {
@@ -72,8 +87,7 @@ public final class CloudStore {
             try { putIfNotNull(doc, "major", String.valueOf(Student.class.getMethod("getMajor").invoke(s))); } catch (Throwable ignore) {}
             try { putIfNotNull(doc, "school", String.valueOf(Student.class.getMethod("getSchool").invoke(s))); } catch (Throwable ignore) {}
             try { Object courses = Student.class.getMethod("getEnrolledCourses").invoke(s); doc.put("enrolledCourses", normalizeValue(courses)); } catch (Throwable ignore) {}
-            // password (hashed) if your model提供
-            try { putIfNotNull(doc, "hashedPassword", Student.class.getMethod("getHashedPassword").invoke(s)); } catch (Throwable ignore) {}
+            putIfNotNull(doc, "hashedPassword", s.getHashedPassword());
 
             doc.put("online", Boolean.TRUE.equals(s.isOnline()));
             doc.put("updatedAt", Timestamp.now());
@@ -90,6 +104,17 @@ public final class CloudStore {
         }
     }
 
+    /** Replaces a user's stored password hash, e.g. after upgrading it on login. */
+    public static void updatePasswordHash(Student s) {
+        String docId = firstNonBlank(s.getUsername(), s.getUserId());
+        if (docId == null) throw new IllegalArgumentException("username or userId required");
+        try {
+            db.collection("users").document(docId)
+              .set(Map.of("hashedPassword", s.getHashedPassword(), "updatedAt", Timestamp.now()), SetOptions.merge()).get();
+        } catch (InterruptedException ie) { Thread.currentThread().interrupt(); throw new RuntimeException(ie); }
+        catch (ExecutionException ee) { throw new RuntimeException(cause(ee)); }
+    }
+
     public static Student getStudentByUsername(String username) {
         if (isBlank(username)) return null;
         try {
@@ -151,6 +176,8 @@ public final class CloudStore {
         }
     
         doc.put("participants", normalizeValue(p));
+        // Prefix discovery filters on isPrivate, so every channel must carry it
+        doc.putIfAbsent("isPrivate", "DIRECT".equalsIgnoreCase(str(doc.get("type"))));
         doc.putIfAbsent("createdAt", Timestamp.now());
         doc.put("updatedAt", Timestamp.now());
     
@@ -168,6 +195,47 @@ public final class CloudStore {
             throw new RuntimeException(cause(ee));
         }
     }
+    // ---------- Direct messages ----------
+    /** Looks up the DM between two users through dmPairs/{pairKey}; null if they have none. */
+    public static String findDirectChannel(String userA, String userB) {
+        if (isBlank(userA) || isBlank(userB)) return null;
+        try {
+            DocumentSnapshot d = db.collection("dmPairs").document(DirectMessageChannel.pairKey(userA, userB)).get().get();
+            return d.exists() ? d.getString("channelId") : null;
+        } catch (InterruptedException ie) { Thread.currentThread().interrupt(); throw new RuntimeException(ie); }
+        catch (ExecutionException ee) { throw new RuntimeException(cause(ee)); }
+    }
+
+    /**
+     * Returns the DM channel between two users, creating it (and its dmPairs entry) in one transaction
+     * if it doesn't exist yet, so concurrent "message this person" clicks can't create duplicates.
+     */
+    public static String findOrCreateDirectChannel(String userA, String userB, Map<String, Object> channelDoc) {
+        if (isBlank(userA) || isBlank(userB)) throw new IllegalArgumentException("Both users required");
+        String key = DirectMessageChannel.pairKey(userA, userB);
+        DocumentReference pairRef = db.collection("dmPairs").document(key);
+        Map<String, Object> doc = new LinkedHashMap<>(channelDoc == null ? Map.of() : channelDoc);
+        String channelId = isBlank(str(doc.get("channelId"))) ? key : str(doc.get("channelId"));
+        doc.put("channelId", channelId);
+        doc.putIfAbsent("type", "DIRECT");
+        doc.putIfAbsent("isPrivate", true);
+        doc.putIfAbsent("ownerId", userA);
+        doc.put("participants", List.of(userA, userB));
+        doc.putIfAbsent("createdAt", Timestamp.now());
+        doc.put("updatedAt", Timestamp.now());
+        Map<String, Object> channel = normalizeMap(doc);
+        try {
+            return db.runTransaction(tx -> {
+                DocumentSnapshot pair = tx.get(pairRef).get();
+                if (pair.exists()) return pair.getString("channelId");
+                tx.set(db.collection("channels").document(channelId), channel);
+                tx.set(pairRef, Map.of("channelId", channelId, "users", List.of(userA, userB), "createdAt", Timestamp.now()));
+                return channelId;
+            }).get();
+        } catch (InterruptedException ie) { Thread.currentThread().interrupt(); throw new RuntimeException(ie); }
+        catch (ExecutionException ee) { throw new RuntimeException(cause(ee)); }
+    }
+
     public static Map<String,Object> findChannelByExactName(String name){
         try {
             var qs = db.collection("channels")
@@ -178,16 +246,47 @@ public final class CloudStore {
         } catch (Exception e) { throw new RuntimeException(e); }
     }
     
-    public static List<Map<String,Object>> searchChannelsByPrefix(String prefix){
+    public static final int MAX_DISCOVERY_PAGE = 200;
+
+    /**
+     * One page of public channels whose name starts with {@code prefix}, in name order, resuming after the
+     * channel {@code afterChannelId}. Private groups and DMs are excluded by the query itself
+     * (needs the composite index isPrivate + name). Within the page, rows are ranked by member count
+     * and then by most recent activity.
+     */
+    public static ChannelPage searchChannelsByPrefix(String prefix, int limit, String afterChannelId){
+        int n = Math.max(1, Math.min(limit, MAX_DISCOVERY_PAGE));
+        String p = prefix == null ? "" : prefix;
         try {
-            String end = prefix + "\uf8ff";
-            var qs = db.collection("channels")
-                    .whereGreaterThanOrEqualTo("name", prefix)
-                    .whereLessThan("name", end).get().get();
-            List<Map<String,Object>> out = new ArrayList<>();
-            for (var d : qs.getDocuments()) out.add(row(d));
-            return out;
-        } catch (Exception e) { throw new RuntimeException(e); }
+            Query q = db.collection("channels")
+                    .whereEqualTo("isPrivate", false)
+                    .whereGreaterThanOrEqualTo("name", p)
+                    .whereLessThan("name", p + "\uf8ff")
+                    .orderBy("name").orderBy(FieldPath.documentId())
+                    .limit(n);
+            if (!isBlank(afterChannelId)) {
+                DocumentSnapshot after = db.collection("channels").document(afterChannelId).get().get();
+                if (after.exists()) q = q.startAfter(after);
+            }
+            List<QueryDocumentSnapshot> docs = q.get().get().getDocuments();
+            List<Map<String,Object>> out = new ArrayList<>(docs.size());
+            for (var d : docs) out.add(row(d));
+            out.sort(Comparator.<Map<String,Object>>comparingInt(m -> memberCount(m)).reversed()
+                    .thenComparing((a, b) -> Long.compare(ts(b.get("updatedAt")), ts(a.get("updatedAt")))));
+            String next = docs.size() < n ? null : docs.get(docs.size() - 1).getId();
+            return new ChannelPage(out, next);
+        } catch (InterruptedException ie) { Thread.currentThread().interrupt(); throw new RuntimeException(ie); }
+        catch (ExecutionException ee) { throw new RuntimeException(cause(ee)); }
+    }
+
+    private static int memberCount(Map<String,Object> row) {
+        Object p = row.get("participants");
+        return p instanceof Collection ? ((Collection<?>) p).size() : 0;
+    }
+
+    public static final class ChannelPage {
+        public final List<Map<String,Object>> channels; public final String nextCursor;
+        public ChannelPage(List<Map<String,Object>> channels, String nextCursor) { this.channels=channels; this.nextCursor=nextCursor; }
     }
     
     public static void addParticipant(String channelId, String userId) {
@@ -207,22 +306,108 @@ public final class CloudStore {
     
 
     // ---------- Messages ----------
+    /** A channel's whole history, tiered segments included, oldest first. */
     public static List<Map<String, Object>> listMessages(String channelId) {
-        if (isBlank(channelId)) return List.of();
+        List<Map<String, Object>> out = new ArrayList<>();
+        forEachMessage(channelId, RETENTION_PAGE_SIZE, out::add);
+        return out;
+    }
+
+    /**
+     * Streams a channel's messages in createdAt order, one page at a time: first those tiered into
+     * coldSegments, which are all older, then the messages subcollection.
+     * Uses query cursors so only a single page is held in memory; returns the number visited.
+     */
+    public static long forEachMessage(String channelId, int pageSize, Consumer<Map<String, Object>> action) {
+        if (isBlank(channelId)) return 0;
         try {
-            List<Map<String, Object>> out = new ArrayList<>();
-            QuerySnapshot qs = db.collection("channels").document(channelId)
-                    .collection("messages").orderBy("createdAt", Query.Direction.ASCENDING).get().get();
-            for (QueryDocumentSnapshot d : qs.getDocuments()) {
-                Map<String,Object> m = new LinkedHashMap<>(d.getData());
-                m.put("messageId", d.getId());
-                out.add(m);
+            DocumentReference channel = db.collection("channels").document(channelId);
+            ReadPosition position = new ReadPosition();
+            long visited = 0;
+            Query segments = channel.collection("coldSegments").orderBy(FieldPath.documentId()).limit(TIER_READ_PAGE);
+            DocumentSnapshot segmentCursor = null;
+            while (true) {
+                Query q = (segmentCursor == null) ? segments : segments.startAfter(segmentCursor);
+                List<QueryDocumentSnapshot> page = q.get().get().getDocuments();
+                for (QueryDocumentSnapshot segment : page) {
+                    List<Map<String,Object>> rows = decodeTieredSegment(segment);
+                    resolveCrossPosts(rows);
+                    for (Map<String,Object> m : rows) {
+                        if (!position.advance(m)) continue;
+                        action.accept(m);
+                        visited++;
+                    }
+                }
+                if (page.size() < TIER_READ_PAGE) break;
+                segmentCursor = page.get(page.size() - 1);
+            }
+
+            Query base = channel.collection("messages").orderBy("createdAt", Query.Direction.ASCENDING).limit(pageSize);
+            DocumentSnapshot cursor = null;
+            while (true) {
+                Query q = (cursor == null) ? base : base.startAfter(cursor);
+                List<QueryDocumentSnapshot> page = q.get().get().getDocuments();
+                List<Map<String,Object>> rows = new ArrayList<>(page.size());
+                for (QueryDocumentSnapshot d : page) {
+                    Map<String,Object> m = new LinkedHashMap<>(d.getData());
+                    m.put("messageId", d.getId());
+                    rows.add(m);
+                }
+                resolveCrossPosts(rows);
+                for (Map<String,Object> m : rows) {
+                    if (!position.advance(m)) continue;
+                    action.accept(m);
+                    visited++;
+                }
+                if (page.size() < pageSize) return visited;
+                cursor = page.get(page.size() - 1);
             }
-            return out;
         } catch (InterruptedException ie) { Thread.currentThread().interrupt(); throw new RuntimeException(ie); }
         catch (ExecutionException ee) { throw new RuntimeException(cause(ee)); }
     }
 
+    /**
+     * Stores a message under the client's idempotency key, so a retried send returns the first copy
+     * instead of adding a second one. The key becomes the message ID.
+     */
+    public static MessageAck addMessage(String channelId, String clientMessageId, Map<String, Object> msgDoc) {
+        if (isBlank(clientMessageId)) {
+            Map<String, Object> doc = msgDoc == null ? new LinkedHashMap<>() : msgDoc;
+            String id = addMessage(channelId, doc);
+            return new MessageAck(id, ts(doc.get("createdAt")), false);
+        }
+        if (isBlank(channelId)) throw new IllegalArgumentException("channelId required");
+        if (clientMessageId.length() > 128 || clientMessageId.contains("/")) {
+            throw new IllegalArgumentException("Invalid clientMessageId");
+        }
+        Map<String, Object> doc = msgDoc == null ? new LinkedHashMap<>() : msgDoc;
+        doc.putIfAbsent("type", "text");
+        doc.putIfAbsent("createdAt", Timestamp.now());
+        doc.put("clientMessageId", clientMessageId);
+        String content = String.valueOf(doc.getOrDefault("content", ""));
+        Map<String, Object> normalized = normalizeMap(doc);
+        DocumentReference channelRef = db.collection("channels").document(channelId);
+        DocumentReference msgRef = channelRef.collection("messages").document(clientMessageId);
+        try {
+            return db.runTransaction(tx -> {
+                DocumentSnapshot existing = tx.get(msgRef).get();
+                if (existing.exists()) return new MessageAck(existing.getId(), ts(existing.get("createdAt")), true);
+                tx.create(msgRef, normalized);
+                tx.set(channelRef, Map.of("updatedAt", Timestamp.now(),
+                        "lastMessageSummary", content.substring(0, Math.min(120, content.length()))), SetOptions.merge());
+                return new MessageAck(clientMessageId, ts(doc.get("createdAt")), false);
+            }).get();
+        } catch (InterruptedException ie) { Thread.currentThread().interrupt(); throw new RuntimeException(ie); }
+        catch (ExecutionException ee) { throw new RuntimeException(cause(ee)); }
+    }
+
+    public static final class MessageAck {
+        public final String messageId; public final long createdAt; public final boolean duplicate;
+        public MessageAck(String messageId, long createdAt, boolean duplicate) {
+            this.messageId=messageId; this.createdAt=createdAt; this.duplicate=duplicate;
+        }
+    }
+
     public static String addMessage(String channelId, Map<String, Object> msgDoc) {
         if (isBlank(channelId)) throw new IllegalArgumentException("channelId required");
         if (msgDoc == null) msgDoc = new LinkedHashMap<>();
@@ -241,6 +426,442 @@ public final class CloudStore {
         catch (ExecutionException ee) { throw new RuntimeException(cause(ee)); }
     }
 
+    /**
+     * Stores an announcement body once in announcements/{id} and adds a lightweight pointer message
+     * {type: "crosspost", announcementId} to each channel, all in one batch.
+     */
+    public static String crossPostAnnouncement(List<String> channelIds, Map<String, Object> body) {
+        if (channelIds.isEmpty()) throw new IllegalArgumentException("channelIds required");
+        if (channelIds.size() > MAX_CROSSPOST_CHANNELS) throw new IllegalArgumentException("Too many channels");
+        Map<String, Object> bodyDoc = normalizeMap(new LinkedHashMap<>(body));
+        bodyDoc.putIfAbsent("createdAt", Timestamp.now());
+        bodyDoc.put("channelIds", new ArrayList<>(channelIds));
+        String summary = String.valueOf(body.getOrDefault("content", ""));
+        summary = summary.substring(0, Math.min(120, summary.length()));
+        try {
+            WriteBatch batch = db.batch();
+            DocumentReference bodyRef = db.collection("announcements").document();
+            batch.set(bodyRef, bodyDoc);
+            for (String channelId : channelIds) {
+                DocumentReference ch = db.collection("channels").document(channelId);
+                Map<String, Object> pointer = new LinkedHashMap<>();
+                pointer.put("type", "crosspost");
+                pointer.put("announcementId", bodyRef.getId());
+                pointer.put("senderId", body.get("senderId"));
+                pointer.put("createdAt", bodyDoc.get("createdAt"));
+                batch.set(ch.collection("messages").document(), pointer);
+                batch.set(ch, Map.of("updatedAt", Timestamp.now(), "lastMessageSummary", summary), SetOptions.merge());
+            }
+            batch.commit().get();
+            return bodyRef.getId();
+        } catch (InterruptedException ie) { Thread.currentThread().interrupt(); throw new RuntimeException(ie); }
+        catch (ExecutionException ee) { throw new RuntimeException(cause(ee)); }
+    }
+
+    /** Fills cross-post pointers with their shared body, fetching each unique announcement once. */
+    private static void resolveCrossPosts(List<Map<String, Object>> messages) throws InterruptedException, ExecutionException {
+        Map<String, DocumentReference> refs = new LinkedHashMap<>();
+        for (Map<String, Object> m : messages) {
+            if ("crosspost".equals(m.get("type")) && m.get("announcementId") != null) {
+                String id = String.valueOf(m.get("announcementId"));
+                refs.putIfAbsent(id, db.collection("announcements").document(id));
+            }
+        }
+        if (refs.isEmpty()) return;
+        Map<String, Map<String, Object>> bodies = new HashMap<>();
+        for (DocumentSnapshot d : db.getAll(refs.values().toArray(new DocumentReference[0])).get()) {
+            if (d.exists()) bodies.put(d.getId(), d.getData());
+        }
+        for (Map<String, Object> m : messages) {
+            Map<String, Object> b = bodies.get(String.valueOf(m.get("announcementId")));
+            if (b == null) continue;
+            for (String k : new String[] {"content", "courseId", "courseName", "announcementType", "important"}) {
+                if (b.containsKey(k)) m.putIfAbsent(k, b.get(k));
+            }
+        }
+    }
+
+    /** Participants of a channel, including its owner, or null if the channel does not exist. */
+    public static Set<String> findChannelParticipants(String channelId) {
+        if (isBlank(channelId)) return null;
+        try {
+            DocumentSnapshot d = db.collection("channels").document(channelId).get().get();
+            return d.exists() ? participantsOf(d.getData()) : null;
+        } catch (InterruptedException ie) { Thread.currentThread().interrupt(); throw new RuntimeException(ie); }
+        catch (ExecutionException ee) { throw new RuntimeException(cause(ee)); }
+    }
+
+    /** Fetches several channel documents in one round trip; channels that don't exist are left out. */
+    public static Map<String, Map<String, Object>> getChannels(Collection<String> channelIds) {
+        Map<String, Map<String, Object>> out = new LinkedHashMap<>();
+        if (channelIds.isEmpty()) return out;
+        DocumentReference[] refs = channelIds.stream()
+                .map(id -> db.collection("channels").document(id)).toArray(DocumentReference[]::new);
+        try {
+            for (DocumentSnapshot d : db.getAll(refs).get()) {
+                if (d.exists()) out.put(d.getId(), d.getData());
+            }
+            return out;
+        } catch (InterruptedException ie) { Thread.currentThread().interrupt(); throw new RuntimeException(ie); }
+        catch (ExecutionException ee) { throw new RuntimeException(cause(ee)); }
+    }
+
+    /** Participants listed in an already fetched channel document, including its owner. Does no I/O. */
+    public static Set<String> participantsOf(Map<String, Object> channel) {
+        Set<String> out = new LinkedHashSet<>();
+        Object parts = channel.get("participants");
+        if (parts instanceof Collection) for (Object p : (Collection<?>) parts) out.add(String.valueOf(p));
+        Object owner = channel.get("ownerId");
+        if (owner != null) out.add(String.valueOf(owner));
+        return out;
+    }
+
+    // ---------- Inbox ----------
+    /** Firestore caps a WriteBatch at 500 writes. */
+    public static final int MAX_BATCH_WRITES = 500;
+    /** A cross-post writes the body plus a pointer and an update per channel, all in one batch. */
+    public static final int MAX_CROSSPOST_CHANNELS = (MAX_BATCH_WRITES - 1) / 2;
+
+    /** Writes inbox/{userId}/entries/{messageId} for every user in one batched commit. */
+    public static void writeInboxEntries(List<String> userIds, String messageId, Map<String, Object> entry) {
+        if (userIds.size() > MAX_BATCH_WRITES) throw new IllegalArgumentException("At most " + MAX_BATCH_WRITES + " users per batch");
+        Map<String, Object> doc = normalizeMap(new LinkedHashMap<>(entry));
+        doc.put("deliveredAt", Timestamp.now());
+        doc.put("read", false);
+        try {
+            WriteBatch batch = db.batch();
+            for (String userId : userIds) {
+                batch.set(db.collection("inbox").document(userId).collection("entries").document(messageId), doc);
+            }
+            batch.commit().get();
+        } catch (InterruptedException ie) { Thread.currentThread().interrupt(); throw new RuntimeException(ie); }
+        catch (ExecutionException ee) { throw new RuntimeException(cause(ee)); }
+    }
+
+    // ---------- Retention ----------
+    private static final int RETENTION_PAGE_SIZE = 500;
+
+    /** Visits every channel as (channelId, type), paging with cursors. */
+    public static void forEachChannel(BiConsumer<String, String> action) {
+        try {
+            Query base = db.collection("channels").orderBy(FieldPath.documentId())
+                    .select("type").limit(RETENTION_PAGE_SIZE);
+            DocumentSnapshot cursor = null;
+            while (true) {
+                Query q = (cursor == null) ? base : base.startAfter(cursor);
+                List<QueryDocumentSnapshot> page = q.get().get().getDocuments();
+                for (QueryDocumentSnapshot d : page) action.accept(d.getId(), str(d.get("type")));
+                if (page.size() < RETENTION_PAGE_SIZE) return;
+                cursor = page.get(page.size() - 1);
+            }
+        } catch (InterruptedException ie) { Thread.currentThread().interrupt(); throw new RuntimeException(ie); }
+        catch (ExecutionException ee) { throw new RuntimeException(cause(ee)); }
+    }
+
+    /**
+     * Sets isPrivate on channels written before it was defaulted (DMs private, everything else public),
+     * so they show up in prefix discovery again. Only documents missing the field are written.
+     * @return the number of channels updated
+     */
+    public static int backfillChannelVisibility() {
+        try {
+            Query base = db.collection("channels").orderBy(FieldPath.documentId())
+                    .select("type", "isPrivate").limit(RETENTION_PAGE_SIZE);
+            DocumentSnapshot cursor = null;
+            int updated = 0;
+            while (true) {
+                Query q = (cursor == null) ? base : base.startAfter(cursor);
+                List<QueryDocumentSnapshot> page = q.get().get().getDocuments();
+                WriteBatch batch = db.batch();
+                int inBatch = 0;
+                for (QueryDocumentSnapshot d : page) {
+                    if (d.contains("isPrivate")) continue;
+                    batch.set(d.getReference(), Map.of("isPrivate", "DIRECT".equalsIgnoreCase(str(d.get("type")))), SetOptions.merge());
+                    inBatch++;
+                }
+                if (inBatch > 0) batch.commit().get();
+                updated += inBatch;
+                if (page.size() < RETENTION_PAGE_SIZE) return updated;
+                cursor = page.get(page.size() - 1);
+            }
+        } catch (InterruptedException ie) { Thread.currentThread().interrupt(); throw new RuntimeException(ie); }
+        catch (ExecutionException ee) { throw new RuntimeException(cause(ee)); }
+    }
+
+    /**
+     * Removes a channel's oldest messages with a BulkWriter: everything created before {@code olderThan}
+     * plus anything beyond the newest {@code keepLatest}. Archived messages are copied to
+     * channels/{id}/archivedMessages before deletion. Tiered segments hold the oldest messages and
+     * are removed first, whole, once every message in them has expired.
+     */
+    public static RetentionResult purgeMessages(String channelId, Instant olderThan, int keepLatest, boolean archive) {
+        if (isBlank(channelId)) return new RetentionResult(0, 0);
+        CollectionReference msgs = db.collection("channels").document(channelId).collection("messages");
+        CollectionReference archived = db.collection("channels").document(channelId).collection("archivedMessages");
+        CollectionReference cold = db.collection("channels").document(channelId).collection("coldSegments");
+        long cutoff = olderThan == null ? Long.MIN_VALUE : olderThan.toEpochMilli();
+        BulkWriter writer = null;
+        long deleted = 0, copied = 0;
+        try {
+            List<QueryDocumentSnapshot> segments = cold.orderBy(FieldPath.documentId())
+                    .select("count", "lastCreatedAt").get().get().getDocuments();
+            long excess = 0;
+            if (keepLatest > 0) {
+                long total = msgs.count().get().get().getCount();
+                for (QueryDocumentSnapshot seg : segments) total += seg.getLong("count");
+                excess = Math.max(0, total - keepLatest);
+            }
+            if (excess == 0 && olderThan == null) return new RetentionResult(0, 0);
+            writer = db.bulkWriter();
+
+            for (QueryDocumentSnapshot seg : segments) {
+                long n = seg.getLong("count");
+                if (deleted + n > excess && ts(seg.get("lastCreatedAt")) >= cutoff) {
+                    // An unexpired segment is older than every hot message, so nothing after it expires either
+                    writer.close();
+                    return new RetentionResult(deleted, copied);
+                }
+                if (archive) {
+                    for (Map<String,Object> m : decodeTieredSegment(seg.getReference().get().get())) {
+                        String id = String.valueOf(m.remove("messageId"));
+                        writer.set(archived.document(id), m);
+                        copied++;
+                    }
+                }
+                writer.delete(seg.getReference());
+                deleted += n;
+            }
+
+            // Both limits select a prefix of the createdAt order, so stop at the first message to keep.
+            Query base = msgs.orderBy("createdAt", Query.Direction.ASCENDING).limit(RETENTION_PAGE_SIZE);
+            DocumentSnapshot cursor = null;
+            scan:
+            while (true) {
+                Query q = (cursor == null) ? base : base.startAfter(cursor);
+                List<QueryDocumentSnapshot> page = q.get().get().getDocuments();
+                for (QueryDocumentSnapshot d : page) {
+                    boolean expired = deleted < excess || ts(d.get("createdAt")) < cutoff;
+                    if (!expired) break scan;
+                    if (archive) {
+                        writer.set(archived.document(d.getId()), d.getData());
+                        copied++;
+                    }
+                    writer.delete(d.getReference());
+                    deleted++;
+                }
+                if (page.size() < RETENTION_PAGE_SIZE) break;
+                cursor = page.get(page.size() - 1);
+            }
+            writer.close(); // waits for every queued write
+            return new RetentionResult(deleted, copied);
+        } catch (InterruptedException ie) { Thread.currentThread().interrupt(); throw new RuntimeException(ie); }
+        catch (ExecutionException ee) {
+            if (writer != null) writer.flush();
+            throw new RuntimeException(cause(ee));
+        }
+    }
+
+    public static final class RetentionResult {
+        public final long deleted; public final long archived;
+        public RetentionResult(long deleted, long archived) { this.deleted=deleted; this.archived=archived; }
+    }
+
+    // ---------- Tiered messages ----------
+    /** Most messages per tiered segment document. */
+    private static final int TIER_SEGMENT_MESSAGES = 1000;
+    /** A shorter tail stays in messages until more of the channel has aged, so segments don't fragment. */
+    private static final int TIER_MIN_SEGMENT_MESSAGES = 100;
+    /** Uncompressed budget per segment; the compressed blob then always fits Firestore's 1 MiB document cap. */
+    private static final int TIER_SEGMENT_BYTES = 900 * 1024;
+    /** Segment documents per read page; each holds up to TIER_SEGMENT_MESSAGES messages. */
+    private static final int TIER_READ_PAGE = 4;
+    private static final Gson TIER_GSON = new GsonBuilder()
+            .setObjectToNumberStrategy(ToNumberPolicy.LONG_OR_DOUBLE).create();
+
+    /**
+     * Moves a channel's messages created before {@code olderThan} out of the messages subcollection
+     * into Deflate-compressed segment documents in channels/{id}/coldSegments, so reading old history
+     * costs one document read per segment instead of one per message. Each segment is written before
+     * its originals are deleted with a BulkWriter; readers skip the duplicates a failure in between
+     * leaves behind, and the next run re-tiers the survivors.
+     * @return the number of messages tiered
+     */
+    public static long tierMessages(String channelId, Instant olderThan) {
+        if (isBlank(channelId) || olderThan == null) return 0;
+        DocumentReference channel = db.collection("channels").document(channelId);
+        long cutoff = olderThan.toEpochMilli();
+        long tiered = 0;
+        try {
+            Query base = channel.collection("messages").orderBy("createdAt", Query.Direction.ASCENDING)
+                    .limit(RETENTION_PAGE_SIZE);
+            List<QueryDocumentSnapshot> pending = new ArrayList<>();
+            List<String> rows = new ArrayList<>();
+            int bytes = 0;
+            DocumentSnapshot cursor = null;
+            scan:
+            while (true) {
+                Query q = (cursor == null) ? base : base.startAfter(cursor);
+                List<QueryDocumentSnapshot> page = q.get().get().getDocuments();
+                for (QueryDocumentSnapshot d : page) {
+                    if (ts(d.get("createdAt")) >= cutoff) break scan;
+                    String row = encodeTieredRow(d.getId(), d.getData());
+                    int size = row.getBytes(StandardCharsets.UTF_8).length + 1;
+                    if (!pending.isEmpty() && (pending.size() == TIER_SEGMENT_MESSAGES || bytes + size > TIER_SEGMENT_BYTES)) {
+                        tiered += writeTieredSegment(channel, pending, rows);
+                        pending.clear();
+                        rows.clear();
+                        bytes = 0;
+                    }
+                    pending.add(d);
+                    rows.add(row);
+                    bytes += size;
+                }
+                if (page.size() < RETENTION_PAGE_SIZE) break;
+                cursor = page.get(page.size() - 1);
+            }
+            if (pending.size() >= TIER_MIN_SEGMENT_MESSAGES) tiered += writeTieredSegment(channel, pending, rows);
+            return tiered;
+        } catch (InterruptedException ie) { Thread.currentThread().interrupt(); throw new RuntimeException(ie); }
+        catch (ExecutionException ee) { throw new RuntimeException(cause(ee)); }
+    }
+
+    private static int writeTieredSegment(DocumentReference channel, List<QueryDocumentSnapshot> docs, List<String> rows)
+            throws InterruptedException, ExecutionException {
+        QueryDocumentSnapshot first = docs.get(0), last = docs.get(docs.size() - 1);
+        // Named after its first message, so the IDs sort by age and re-tiering the same run rewrites one document
+        String id = String.format("%013d-%s", Math.max(0, ts(first.get("createdAt"))), first.getId());
+        Map<String,Object> segment = new LinkedHashMap<>();
+        segment.put("data", Blob.fromBytes(deflate(String.join("\n", rows))));
+        segment.put("count", docs.size());
+        segment.put("firstCreatedAt", first.get("createdAt"));
+        segment.put("lastCreatedAt", last.get("createdAt"));
+        segment.put("tieredAt", Timestamp.now());
+        channel.collection("coldSegments").document(id).set(segment).get();
+        BulkWriter writer = db.bulkWriter();
+        for (QueryDocumentSnapshot d : docs) writer.delete(d.getReference());
+        writer.close(); // waits for every queued delete
+        return docs.size();
+    }
+
+    /** One message as a JSON line; Timestamp fields are listed so they come back as Timestamps. */
+    private static String encodeTieredRow(String messageId, Map<String, Object> data) {
+        Map<String,Object> fields = new LinkedHashMap<>();
+        List<String> timestamps = new ArrayList<>();
+        for (var e : data.entrySet()) {
+            Object v = e.getValue();
+            if (v instanceof Timestamp) {
+                timestamps.add(e.getKey());
+                fields.put(e.getKey(), v.toString());
+            } else if (isPlainValue(v)) {
+                fields.put(e.getKey(), v);
+            } else {
+                throw new IllegalStateException("Cannot tier message " + messageId + ": unsupported field " + e.getKey());
+            }
+        }
+        Map<String,Object> row = new LinkedHashMap<>();
+        row.put("id", messageId);
+        row.put("fields", fields);
+        row.put("timestamps", timestamps);
+        return TIER_GSON.toJson(row);
+    }
+
+    private static boolean isPlainValue(Object v) {
+        if (v == null || v instanceof String || v instanceof Number || v instanceof Boolean) return true;
+        if (v instanceof Collection) return ((Collection<?>) v).stream().allMatch(CloudStore::isPlainValue);
+        if (v instanceof Map) return ((Map<?, ?>) v).values().stream().allMatch(CloudStore::isPlainValue);
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> decodeTieredSegment(DocumentSnapshot segment) {
+        Blob data = segment.getBlob("data");
+        List<Map<String,Object>> out = new ArrayList<>();
+        if (data == null) return out;
+        for (String line : inflate(data.toBytes()).split("\n")) {
+            if (line.isEmpty()) continue;
+            Map<String,Object> row = TIER_GSON.fromJson(line, Map.class);
+            Map<String,Object> m = new LinkedHashMap<>((Map<String,Object>) row.get("fields"));
+            for (Object k : (List<Object>) row.get("timestamps")) {
+                m.put((String) k, Timestamp.parseTimestamp((String) m.get(k)));
+            }
+            m.put("messageId", row.get("id"));
+            out.add(m);
+        }
+        return out;
+    }
+
+    private static byte[] deflate(String text) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try (DeflaterOutputStream z = new DeflaterOutputStream(out, deflater)) {
+            z.write(text.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);   // in-memory streams don't fail
+        } finally {
+            deflater.end();
+        }
+        return out.toByteArray();
+    }
+
+    private static String inflate(byte[] blob) {
+        try (InflaterInputStream z = new InflaterInputStream(new ByteArrayInputStream(blob))) {
+            return new String(z.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("Corrupt tiered segment", e);
+        }
+    }
+
+    /** The last (createdAt, messageId) handed out, so a message both tiered and still hot is visited once. */
+    private static final class ReadPosition {
+        private Timestamp createdAt = Timestamp.MIN_VALUE;
+        private String messageId = "";
+
+        boolean advance(Map<String, Object> m) {
+            Timestamp t = m.get("createdAt") instanceof Timestamp ? (Timestamp) m.get("createdAt") : Timestamp.MIN_VALUE;
+            String id = String.valueOf(m.get("messageId"));
+            int c = t.compareTo(createdAt);
+            if (c < 0 || (c == 0 && id.compareTo(messageId) <= 0)) return false;
+            createdAt = t;
+            messageId = id;
+            return true;
+        }
+    }
+
+    // ---------- Cold segments ----------
+    /** One immutable, compressed message segment per document in coldSegments. */
+    public static void putColdSegment(String key, byte[] blob) {
+        try {
+            db.collection("coldSegments").document(coldDocId(key))
+              .set(Map.of("data", Blob.fromBytes(blob), "createdAt", Timestamp.now())).get();
+        } catch (InterruptedException ie) { Thread.currentThread().interrupt(); throw new RuntimeException(ie); }
+        catch (ExecutionException ee) { throw new RuntimeException(cause(ee)); }
+    }
+
+    public static byte[] getColdSegment(String key) {
+        byte[] data = findColdSegment(key);
+        if (data == null) throw new IllegalStateException("Cold segment not found: " + key);
+        return data;
+    }
+
+    /** The segment's bytes, or null if there is no such segment. */
+    public static byte[] findColdSegment(String key) {
+        try {
+            DocumentSnapshot snap = db.collection("coldSegments").document(coldDocId(key)).get().get();
+            Blob data = snap.exists() ? snap.getBlob("data") : null;
+            return data == null ? null : data.toBytes();
+        } catch (InterruptedException ie) { Thread.currentThread().interrupt(); throw new RuntimeException(ie); }
+        catch (ExecutionException ee) { throw new RuntimeException(cause(ee)); }
+    }
+
+    public static void deleteColdSegment(String key) {
+        try {
+            db.collection("coldSegments").document(coldDocId(key)).delete().get();
+        } catch (InterruptedException ie) { Thread.currentThread().interrupt(); throw new RuntimeException(ie); }
+        catch (ExecutionException ee) { throw new RuntimeException(cause(ee)); }
+    }
+
+    private static String coldDocId(String key) { return key.replace('/', '_'); }
+
     // ---------- helpers ----------
     public static final class UpsertResult {
         public final boolean ok; public final String id; public final String updateTime; public final String error;
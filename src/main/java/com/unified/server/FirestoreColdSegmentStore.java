@@ -0,0 +1,38 @@
+package com.unified.server;
+
+import com.unified.model.ColdSegmentStore;
+
+import java.io.IOException;
+
+/** Cold message segments stored as single Firestore documents (one read per segment). */
+public final class FirestoreColdSegmentStore implements ColdSegmentStore {
+    // Firestore caps documents at 1 MiB; leave room for the other fields.
+    private static final int MAX_BLOB_BYTES = 900 * 1024;
+
+    @Override
+    public void put(String key, byte[] blob) throws IOException {
+        try { CloudStore.putColdSegment(key, blob); }
+        catch (RuntimeException e) { throw new IOException("Failed to store cold segment " + key, e); }
+    }
+
+    @Override
+    public byte[] get(String key) throws IOException {
+        try { return CloudStore.getColdSegment(key); }
+        catch (RuntimeException e) { throw new IOException("Failed to load cold segment " + key, e); }
+    }
+
+    @Override
+    public byte[] find(String key) throws IOException {
+        try { return CloudStore.findColdSegment(key); }
+        catch (RuntimeException e) { throw new IOException("Failed to load cold segment " + key, e); }
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        try { CloudStore.deleteColdSegment(key); }
+        catch (RuntimeException e) { throw new IOException("Failed to delete cold segment " + key, e); }
+    }
+
+    @Override
+    public int maxBlobBytes() { return MAX_BLOB_BYTES; }
+}
@@ -0,0 +1,34 @@
+package com.unified.server;
+
+import com.unified.model.AnnouncementMessage;
+import com.unified.model.InboxSink;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Announcement inbox entries written to Firestore, one batched commit per chunk of recipients. */
+public final class FirestoreInboxSink implements InboxSink {
+
+    @Override
+    public void deliver(AnnouncementMessage a, List<String> userIds) throws IOException {
+        String content = a.getContent() == null ? "" : a.getContent();
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("messageId", a.getMessageId());
+        entry.put("channelId", a.getChannelId());
+        entry.put("senderId", a.getSenderId());
+        entry.put("courseName", a.getCourseName());
+        entry.put("announcementType", a.getAnnouncementType());
+        entry.put("important", a.isImportant());
+        entry.put("summary", content.substring(0, Math.min(120, content.length())));
+        try {
+            CloudStore.writeInboxEntries(userIds, a.getMessageId(), entry);
+        } catch (RuntimeException e) {
+            throw new IOException("Inbox write failed for " + userIds.size() + " users", e);
+        }
+    }
+
+    @Override
+    public int maxBatchSize() { return CloudStore.MAX_BATCH_WRITES; }
+}
@@ -0,0 +1,101 @@
+package com.unified.server;
+
+import com.unified.model.User;
+import com.unified.util.LatencyHistogram;
+import com.unified.util.PasswordManager;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Dedicated, bounded pool for deliberately slow password hashing.
+ * At most {@code threads} hashes run at once and at most {@code queueDepth} wait; anything beyond
+ * that is rejected immediately, so a login burst is shed with 503s instead of tying up every
+ * HTTP worker on key derivation.
+ */
+public final class PasswordHashingPool {
+
+    private final ThreadPoolExecutor pool;
+    private final int queueDepth;
+    private final AtomicLong rejected = new AtomicLong();
+    private final LatencyHistogram hashTime = new LatencyHistogram();
+
+    public PasswordHashingPool(int threads, int queueDepth) {
+        this.queueDepth = Math.max(1, queueDepth);
+        AtomicInteger n = new AtomicInteger();
+        int size = Math.max(1, threads);
+        this.pool = new ThreadPoolExecutor(size, size, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(this.queueDepth), r -> {
+                    Thread t = new Thread(r, "password-hash-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /** Checks a password on the pool. @throws RejectedExecutionException if the pool is saturated */
+    public CompletableFuture<Boolean> verify(User user, String password) {
+        return submit(() -> user != null && user.verifyPassword(password));
+    }
+
+    /** Hashes a password on the pool. @throws RejectedExecutionException if the pool is saturated */
+    public CompletableFuture<String> hash(String password) {
+        return submit(() -> PasswordManager.hashPassword(password));
+    }
+
+    /**
+     * Upgrades an outdated hash in the background after a successful login. Best effort: if the pool
+     * is busy the upgrade is simply tried again on the next login.
+     */
+    public void rehashLater(User user, String password, java.util.function.Consumer<User> persist) {
+        if (!PasswordManager.needsRehash(user.getHashedPassword())) return;
+        try {
+            submit(() -> {
+                if (user.rehashPasswordIfNeeded(password)) persist.accept(user);
+                return null;
+            });
+        } catch (RejectedExecutionException ignore) {
+            // retried on the next login
+        }
+    }
+
+    public Map<String, Object> metrics() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("threads", pool.getMaximumPoolSize());
+        m.put("active", pool.getActiveCount());
+        m.put("queued", pool.getQueue().size());
+        m.put("queueDepth", queueDepth);
+        m.put("completed", pool.getCompletedTaskCount());
+        m.put("rejected", rejected.get());
+        m.put("iterations", PasswordManager.getIterations());
+        m.put("hashTime", hashTime.toMap());
+        return m;
+    }
+
+    private <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFuture<T> f = new CompletableFuture<>();
+        try {
+            pool.execute(() -> {
+                long start = System.nanoTime();
+                try {
+                    f.complete(task.call());
+                } catch (Throwable t) {
+                    f.completeExceptionally(t);
+                } finally {
+                    hashTime.recordNanos(System.nanoTime() - start);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw e;
+        }
+        return f;
+    }
+}
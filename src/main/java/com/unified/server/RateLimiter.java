@@ -0,0 +1,132 @@
+package com.unified.server;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Token-bucket rate limiter keyed by an arbitrary string (a user ID, a remote address).
+ * Buckets live in a fixed number of lock stripes, so callers with different keys rarely contend,
+ * and refill lazily from the elapsed time when touched; no background thread is involved.
+ * Each stripe sweeps out buckets that have been idle long enough to be full again every
+ * {@link #SWEEP_EVERY} acquisitions, which keeps memory bounded by the recently active keys.
+ */
+public final class RateLimiter {
+
+    static final int STRIPES = 64;
+    static final int SWEEP_EVERY = 1024;
+
+    private static final class Bucket {
+        double tokens;
+        long lastNanos;
+
+        Bucket(double tokens, long lastNanos) {
+            this.tokens = tokens;
+            this.lastNanos = lastNanos;
+        }
+    }
+
+    private static final class Stripe {
+        final Map<String, Bucket> buckets = new HashMap<>();
+        int sinceSweep;
+    }
+
+    private final String name;
+    private final double permitsPerNano;
+    private final int burst;
+    /** A bucket untouched for this long has refilled completely and can be forgotten. */
+    private final long idleNanos;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder limited = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    /**
+     * @param name             label for metrics
+     * @param permitsPerSecond steady-state rate per key
+     * @param burst            bucket size, i.e. how many requests a fresh key may make at once
+     */
+    public RateLimiter(String name, double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0 || burst < 1) throw new IllegalArgumentException("rate and burst must be positive");
+        this.name = name;
+        this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = burst;
+        this.idleNanos = (long) Math.ceil(burst / permitsPerNano);
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new Stripe();
+    }
+
+    /**
+     * Builds a limiter from an environment variable of the form {@code permitsPerSecond:burst}
+     * (e.g. {@code 0.5:10}), falling back to the given default. "off" disables the limiter.
+     * @return the limiter, or null if disabled
+     */
+    public static RateLimiter fromEnvironment(String name, String variable, String defaultSpec) {
+        String spec = System.getenv().getOrDefault(variable, defaultSpec).trim();
+        if (spec.equalsIgnoreCase("off")) return null;
+        String[] parts = spec.split(":");
+        double rate = Double.parseDouble(parts[0]);
+        int burst = parts.length > 1 ? Integer.parseInt(parts[1]) : (int) Math.max(1, Math.ceil(rate));
+        return new RateLimiter(name, rate, burst);
+    }
+
+    /**
+     * Takes one permit for {@code key}.
+     * @return 0 if the request may proceed, otherwise how many nanoseconds until a permit is available
+     */
+    public long tryAcquire(String key) {
+        if (key == null) key = "";
+        Stripe stripe = stripes[(key.hashCode() & 0x7fffffff) % STRIPES];
+        long now = System.nanoTime();
+        long wait;
+        synchronized (stripe) {
+            if (++stripe.sinceSweep >= SWEEP_EVERY) sweep(stripe, now);
+            Bucket b = stripe.buckets.get(key);
+            if (b == null) {
+                b = new Bucket(burst, now);
+                stripe.buckets.put(key, b);
+            } else {
+                b.tokens = Math.min(burst, b.tokens + (now - b.lastNanos) * permitsPerNano);
+                b.lastNanos = now;
+            }
+            if (b.tokens >= 1) {
+                b.tokens -= 1;
+                wait = 0;
+            } else {
+                wait = (long) Math.ceil((1 - b.tokens) / permitsPerNano);
+            }
+        }
+        (wait == 0 ? allowed : limited).increment();
+        return wait;
+    }
+
+    public Map<String, Object> metrics() {
+        int keys = 0;
+        for (Stripe s : stripes) {
+            synchronized (s) {
+                keys += s.buckets.size();
+            }
+        }
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("name", name);
+        m.put("permitsPerSecond", permitsPerNano * TimeUnit.SECONDS.toNanos(1));
+        m.put("burst", burst);
+        m.put("keys", keys);
+        m.put("allowed", allowed.sum());
+        m.put("limited", limited.sum());
+        m.put("evicted", evicted.sum());
+        return m;
+    }
+
+    private void sweep(Stripe stripe, long now) {
+        stripe.sinceSweep = 0;
+        for (Iterator<Bucket> it = stripe.buckets.values().iterator(); it.hasNext(); ) {
+            if (now - it.next().lastNanos >= idleNanos) {
+                it.remove();
+                evicted.increment();
+            }
+        }
+    }
+}
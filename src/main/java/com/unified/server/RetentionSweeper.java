@@ -0,0 +1,191 @@
+package com.unified.server;
+
+import com.unified.model.Channel;
+import com.unified.model.ChatHistoryExporter;
+import com.unified.model.ColdSegmentStore;
+import com.unified.model.ColdTier;
+import com.unified.model.ExportOptions;
+import com.unified.model.RetentionPolicies;
+import com.unified.model.RetentionPolicy;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Low-priority background enforcement of per-channel-type retention and cold tiering.
+ * Truncates expired messages from in-memory channels (archiving them to local JSONL files when
+ * the policy says ARCHIVE) and purges them from Firestore with BulkWriter deletes. Old messages are
+ * tiered into compressed segments both in memory and in Firestore's messages subcollections.
+ */
+public final class RetentionSweeper {
+
+    private final RetentionPolicies policies;
+    private final Supplier<Collection<Channel>> channels;
+    private final boolean sweepFirestore;
+    private final Path archiveDir;
+    private Duration tierAfter;
+    private ColdSegmentStore coldStore;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param policies       retention policy per channel type
+     * @param channels       supplies the in-memory channels to trim, or null for none
+     * @param sweepFirestore whether to purge and tier the Firestore messages subcollections as well
+     * @param archiveDir     where in-memory messages are archived as {channelId}.jsonl
+     */
+    public RetentionSweeper(RetentionPolicies policies, Supplier<Collection<Channel>> channels,
+                            boolean sweepFirestore, Path archiveDir) {
+        this.policies = policies;
+        this.channels = channels;
+        this.sweepFirestore = sweepFirestore;
+        this.archiveDir = archiveDir;
+    }
+
+    /**
+     * Also moves messages older than {@code age} into compressed cold segments: in-memory channels
+     * into {@code store}, and Firestore channels into their coldSegments subcollection.
+     */
+    public RetentionSweeper tierAfter(Duration age, ColdSegmentStore store) {
+        this.tierAfter = age;
+        this.coldStore = store;
+        return this;
+    }
+
+    /** Starts sweeping on a daemon, minimum-priority thread. */
+    public synchronized void start(Duration interval) {
+        if (scheduler != null) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "retention-sweeper");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+        long period = Math.max(1, interval.toSeconds());
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                // Same process as the interactive CLI, so idle sweeps stay silent and reports go to stderr
+                SweepReport report = sweepOnce();
+                if (!report.isQuiet()) System.err.println(report);
+            } catch (RuntimeException e) {
+                System.err.println("Retention sweep failed: " + e);
+            }
+        }, period, period, TimeUnit.SECONDS);
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) scheduler.shutdownNow();
+        scheduler = null;
+    }
+
+    /** Runs one full sweep and reports what was reclaimed. */
+    public SweepReport sweepOnce() {
+        SweepReport report = new SweepReport();
+        if (channels != null) {
+            LocalDateTime tierCutoff = tierAfter == null ? null : LocalDateTime.now().minus(tierAfter);
+            for (Channel c : channels.get()) {
+                report.channelsScanned++;
+                report.trimmedInMemory += trim(c, policies.forChannel(c));
+                if (tierCutoff != null) report.tieredInMemory += tier(c, tierCutoff);
+            }
+        }
+        if (sweepFirestore) {
+            Instant now = Instant.now();
+            Instant tierBefore = tierAfter == null ? null : now.minus(tierAfter);
+            CloudStore.forEachChannel((channelId, type) -> {
+                report.channelsScanned++;
+                RetentionPolicy p = policies.forType(type);
+                if (p.isBounded()) {
+                    Instant olderThan = p.getMaxAge() == null ? null : now.minus(p.getMaxAge());
+                    try {
+                        var r = CloudStore.purgeMessages(channelId, olderThan, p.getMaxCount(),
+                                p.getAction() == RetentionPolicy.Action.ARCHIVE);
+                        report.deletedInStore += r.deleted;
+                        report.archivedInStore += r.archived;
+                    } catch (RuntimeException e) {
+                        report.failures++;
+                        System.err.println("Retention purge failed for " + channelId + ": " + e);
+                    }
+                }
+                if (tierBefore != null) {
+                    try {
+                        report.tieredInStore += CloudStore.tierMessages(channelId, tierBefore);
+                    } catch (RuntimeException e) {
+                        report.failures++;
+                        System.err.println("Cold tiering failed for " + channelId + ": " + e);
+                    }
+                }
+            });
+        }
+        return report;
+    }
+
+    private long tier(Channel c, LocalDateTime cutoff) {
+        try {
+            if (c.getMessageLog() == null && c.getColdTier() == null) {
+                c.attachColdTier(new ColdTier(c.getChannelId(), coldStore));
+            }
+            return c.tierOlderThan(cutoff);
+        } catch (IOException e) {
+            System.err.println("Cold tiering failed for " + c.getChannelId() + ": " + e);
+            return 0;
+        }
+    }
+
+    private long trim(Channel c, RetentionPolicy p) {
+        if (!p.isBounded()) return 0;
+        if (p.getAction() != RetentionPolicy.Action.ARCHIVE || archiveDir == null) {
+            return c.applyRetention(p, null);
+        }
+        try {
+            Files.createDirectories(archiveDir);
+            Path file = archiveDir.resolve(c.getChannelId() + ".jsonl");
+            try (Writer w = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                return c.applyRetention(p, m -> {
+                    try {
+                        ChatHistoryExporter.writeMessage(m, w, ExportOptions.Format.JSONL);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        } catch (IOException | UncheckedIOException e) {
+            // Keep the messages rather than drop them without an archive copy.
+            System.err.println("Retention archive failed for " + c.getChannelId() + ": " + e);
+            return 0;
+        }
+    }
+
+    public static final class SweepReport {
+        public int channelsScanned; public long trimmedInMemory; public long tieredInMemory; public long deletedInStore;
+        public long archivedInStore; public long tieredInStore; public int failures;
+
+        /** True when the sweep neither reclaimed anything nor hit a failure. */
+        public boolean isQuiet() {
+            return trimmedInMemory == 0 && tieredInMemory == 0 && deletedInStore == 0 && archivedInStore == 0
+                    && tieredInStore == 0 && failures == 0;
+        }
+
+        @Override
+        public String toString() {
+            return "Retention sweep: scanned=" + channelsScanned + " trimmedInMemory=" + trimmedInMemory
+                    + " tieredInMemory=" + tieredInMemory
+                    + " deletedInStore=" + deletedInStore + " archivedInStore=" + archivedInStore
+                    + " tieredInStore=" + tieredInStore
+                    + " failures=" + failures;
+        }
+    }
+}
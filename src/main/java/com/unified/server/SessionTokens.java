@@ -0,0 +1,156 @@
+package com.unified.server;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stateless, HMAC-SHA256 signed session tokens.
+ * A token is {@code payload.signature}, where the payload carries the user ID, an expiry and a random
+ * token ID, so checking a request is one MAC over a few dozen bytes and never a store lookup.
+ * Each thread keeps its own keyed {@link Mac}. Logged-out tokens go on a revocation list that only
+ * holds entries until they would have expired anyway.
+ */
+public final class SessionTokens {
+
+    public static final Duration DEFAULT_TTL = Duration.ofHours(12);
+
+    private static final String HMAC = "HmacSHA256";
+    private static final int MIN_KEY_BYTES = 32;
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final Base64.Encoder B64 = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder B64D = Base64.getUrlDecoder();
+
+    /** What a valid token says about its bearer. */
+    public static final class Claims {
+        public final String userId;
+        public final String tokenId;
+        public final long expiresAtMillis;
+
+        Claims(String userId, String tokenId, long expiresAtMillis) {
+            this.userId = userId;
+            this.tokenId = tokenId;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+
+    private final SecretKeySpec key;
+    private final Duration ttl;
+    private final ThreadLocal<Mac> macs;
+    /** tokenId -> expiry of revoked, not yet expired tokens. */
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    private final AtomicLong issued = new AtomicLong();
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public SessionTokens(byte[] key, Duration ttl) {
+        if (key == null || key.length < MIN_KEY_BYTES) {
+            throw new IllegalArgumentException("Session key must be at least " + MIN_KEY_BYTES + " bytes");
+        }
+        this.key = new SecretKeySpec(key.clone(), HMAC);
+        this.ttl = ttl;
+        this.macs = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance(HMAC);
+                mac.init(this.key);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HMAC not available", e);
+            }
+        });
+    }
+
+    /**
+     * Key from UNIFIED_SESSION_KEY (base64, at least 32 bytes) and lifetime from
+     * UNIFIED_SESSION_TTL_MINUTES. Without a configured key a random one is generated,
+     * so tokens stop working when the process restarts.
+     */
+    public static SessionTokens fromEnvironment() {
+        String configured = System.getenv("UNIFIED_SESSION_KEY");
+        byte[] key;
+        if (configured != null && !configured.isBlank()) {
+            key = Base64.getDecoder().decode(configured.trim());
+        } else {
+            key = new byte[MIN_KEY_BYTES];
+            RANDOM.nextBytes(key);
+            System.err.println("UNIFIED_SESSION_KEY not set; session tokens will not survive a restart");
+        }
+        String minutes = System.getenv("UNIFIED_SESSION_TTL_MINUTES");
+        return new SessionTokens(key, minutes == null ? DEFAULT_TTL : Duration.ofMinutes(Long.parseLong(minutes)));
+    }
+
+    /** Signs a new token for a user who has just authenticated. */
+    public String issue(String userId) {
+        byte[] id = new byte[12];
+        RANDOM.nextBytes(id);
+        long expires = System.currentTimeMillis() + ttl.toMillis();
+        String payload = B64.encodeToString((userId + "\n" + expires + "\n" + B64.encodeToString(id))
+                .getBytes(StandardCharsets.UTF_8));
+        issued.incrementAndGet();
+        return payload + "." + B64.encodeToString(sign(payload));
+    }
+
+    /** Returns the token's claims, or null if it is malformed, forged, expired or revoked. */
+    public Claims verify(String token) {
+        Claims c = parse(token);
+        if (c == null || c.expiresAtMillis <= System.currentTimeMillis() || revoked.containsKey(c.tokenId)) {
+            rejected.incrementAndGet();
+            return null;
+        }
+        accepted.incrementAndGet();
+        return c;
+    }
+
+    /** Revokes a valid token until it expires. @return false if the token was not valid to begin with */
+    public boolean revoke(String token) {
+        Claims c = verify(token);
+        if (c == null) return false;
+        long now = System.currentTimeMillis();
+        revoked.values().removeIf(expires -> expires <= now);
+        revoked.put(c.tokenId, c.expiresAtMillis);
+        return true;
+    }
+
+    /** Token lifetime. */
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public Map<String, Object> metrics() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("issued", issued.get());
+        m.put("accepted", accepted.get());
+        m.put("rejected", rejected.get());
+        m.put("revoked", revoked.size());
+        m.put("ttlMinutes", ttl.toMinutes());
+        return m;
+    }
+
+    private Claims parse(String token) {
+        if (token == null) return null;
+        int dot = token.lastIndexOf('.');
+        if (dot <= 0) return null;
+        String payload = token.substring(0, dot);
+        try {
+            if (!MessageDigest.isEqual(sign(payload), B64D.decode(token.substring(dot + 1)))) return null;
+            String[] parts = new String(B64D.decode(payload), StandardCharsets.UTF_8).split("\n");
+            if (parts.length != 3) return null;
+            return new Claims(parts[0], parts[2], Long.parseLong(parts[1]));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private byte[] sign(String payload) {
+        return macs.get().doFinal(payload.getBytes(StandardCharsets.US_ASCII));
+    }
+}
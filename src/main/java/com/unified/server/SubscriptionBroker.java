@@ -0,0 +1,277 @@
+package com.unified.server;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pub/sub broker between the message write path and client connections.
+ * Every subscriber owns a fixed-size ring buffer, so publishing is O(1) per subscriber and never
+ * waits on a reader: a stalled connection only overflows its own buffer, where its
+ * {@link OverflowPolicy} decides what happens, while everyone else keeps receiving messages.
+ */
+public final class SubscriptionBroker {
+
+    /** What to do when a subscriber's ring buffer is full. */
+    public enum OverflowPolicy {
+        /** Overwrite the oldest undelivered event. */
+        DROP_OLDEST,
+        /** Discard everything buffered and tell the client to refetch history. */
+        RESYNC,
+        /** Close the subscription; the client must resubscribe. */
+        DISCONNECT
+    }
+
+    public static final int DEFAULT_CAPACITY = 256;
+    /** Largest ring buffer a client may ask for; larger requests are clamped. */
+    public static final int MAX_CAPACITY = 4096;
+
+    private final Map<String, CopyOnWriteArrayList<Subscription>> byChannel = new ConcurrentHashMap<>();
+    private final Map<String, Subscription> byId = new ConcurrentHashMap<>();
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong disconnects = new AtomicLong();
+    private ScheduledExecutorService reaper;
+
+    /**
+     * Opens a subscription to a set of channels.
+     * @param subscriberId who is subscribing; only this user may poll the subscription
+     * @param channelIds   the channels to receive messages from
+     * @param capacity     ring buffer size in events, clamped to [1, MAX_CAPACITY]
+     * @param policy       what to do when the buffer overflows
+     */
+    public Subscription subscribe(String subscriberId, Collection<String> channelIds, int capacity, OverflowPolicy policy) {
+        Subscription s = new Subscription(subscriberId, List.copyOf(channelIds), Math.max(1, Math.min(MAX_CAPACITY, capacity)),
+                policy == null ? OverflowPolicy.DROP_OLDEST : policy);
+        byId.put(s.id, s);
+        for (String channelId : s.channelIds) {
+            byChannel.computeIfAbsent(channelId, k -> new CopyOnWriteArrayList<>()).add(s);
+        }
+        return s;
+    }
+
+    public Subscription get(String subscriptionId) {
+        return subscriptionId == null ? null : byId.get(subscriptionId);
+    }
+
+    /** Closes a subscription and wakes any waiting poll. */
+    public void unsubscribe(Subscription s) {
+        if (s == null || byId.remove(s.id) == null) return;
+        for (String channelId : s.channelIds) {
+            List<Subscription> subs = byChannel.get(channelId);
+            if (subs != null) {
+                subs.remove(s);
+                if (subs.isEmpty()) byChannel.remove(channelId, subs);
+            }
+        }
+        s.close();
+    }
+
+    /**
+     * Delivers an event to every subscriber of a channel.
+     * @return the number of subscribers it was offered to
+     */
+    public int publish(String channelId, Object event) {
+        List<Subscription> subs = byChannel.get(channelId);
+        if (subs == null) return 0;
+        published.incrementAndGet();
+        int n = 0;
+        for (Subscription s : subs) {
+            if (!s.offer(event)) {
+                disconnects.incrementAndGet();
+                unsubscribe(s);
+            }
+            n++;
+        }
+        return n;
+    }
+
+    /** Closes subscriptions that have not polled for longer than {@code idleMillis}. */
+    public int reapIdle(long idleMillis) {
+        long now = System.currentTimeMillis();
+        int n = 0;
+        for (Subscription s : byId.values()) {
+            if (now - s.lastPollAt > idleMillis) {
+                unsubscribe(s);
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /** Periodically closes subscriptions whose client stopped polling. */
+    public synchronized void startReaper(Duration idle) {
+        if (reaper != null) return;
+        reaper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "subscription-reaper");
+            t.setDaemon(true);
+            return t;
+        });
+        long idleMillis = idle.toMillis();
+        long period = Math.max(1000, idleMillis / 2);
+        reaper.scheduleWithFixedDelay(() -> reapIdle(idleMillis), period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Broker-wide metrics plus the laggiest subscribers. The subscription ID is what a poll presents,
+     * so neither it nor the subscriber appears here.
+     */
+    public Map<String, Object> metrics() {
+        long dropped = 0, resyncs = 0, delivered = 0, lag = 0, maxLag = 0;
+        List<Map<String, Object>> subs = new ArrayList<>();
+        for (Subscription s : byId.values()) {
+            Map<String, Object> sm = s.metrics();   // consistent snapshot per subscriber
+            dropped += (Long) sm.get("dropped");
+            resyncs += (Long) sm.get("resyncs");
+            delivered += (Long) sm.get("delivered");
+            long l = (Long) sm.get("lag");
+            lag += l;
+            maxLag = Math.max(maxLag, l);
+            subs.add(sm);
+        }
+        subs.sort((a, b) -> Long.compare((Long) b.get("lag"), (Long) a.get("lag")));
+        List<Map<String, Object>> top = new ArrayList<>(subs.subList(0, Math.min(10, subs.size())));
+
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("subscriptions", subs.size());
+        m.put("channels", byChannel.size());
+        m.put("published", published.get());
+        m.put("delivered", delivered);
+        m.put("dropped", dropped);
+        m.put("resyncs", resyncs);
+        m.put("disconnects", disconnects.get());
+        m.put("totalLag", lag);
+        m.put("maxLag", maxLag);
+        m.put("laggiest", top);
+        return m;
+    }
+
+    /** Result of one poll: buffered events, or a request to resync, or notice that the subscription ended. */
+    public static final class Batch {
+        public final List<Object> events;
+        public final boolean resync;
+        public final boolean closed;
+
+        Batch(List<Object> events, boolean resync, boolean closed) {
+            this.events = events;
+            this.resync = resync;
+            this.closed = closed;
+        }
+    }
+
+    /** One client's bounded view of the channels it follows. */
+    public static final class Subscription {
+        private final String id = UUID.randomUUID().toString();
+        private final String subscriberId;
+        private final List<String> channelIds;
+        private final OverflowPolicy policy;
+        private final Object[] ring;
+        private long head;   // next sequence to deliver
+        private long tail;   // next sequence to write
+        private boolean resyncPending;
+        private boolean closed;
+        private long dropped, resyncs, delivered, maxLag;
+        private volatile long lastPollAt = System.currentTimeMillis();
+
+        private Subscription(String subscriberId, List<String> channelIds, int capacity, OverflowPolicy policy) {
+            this.subscriberId = subscriberId;
+            this.channelIds = channelIds;
+            this.policy = policy;
+            this.ring = new Object[capacity];
+        }
+
+        public String getId() { return id; }
+        public String getSubscriberId() { return subscriberId; }
+        public List<String> getChannelIds() { return channelIds; }
+
+        /** @return false if the subscription must be disconnected */
+        private synchronized boolean offer(Object event) {
+            if (closed) return true;
+            if (tail - head == ring.length) {
+                switch (policy) {
+                    case DROP_OLDEST:
+                        ring[(int) (head % ring.length)] = null;
+                        head++;
+                        dropped++;
+                        break;
+                    case RESYNC:
+                        dropped += tail - head;
+                        Arrays.fill(ring, null);
+                        head = tail;
+                        if (!resyncPending) resyncs++;
+                        resyncPending = true;
+                        break;
+                    case DISCONNECT:
+                        dropped += tail - head + 1;
+                        return false;
+                }
+            }
+            // While a resync is pending new events are still buffered: they follow the refetched history.
+            ring[(int) (tail % ring.length)] = event;
+            tail++;
+            maxLag = Math.max(maxLag, tail - head);
+            notifyAll();
+            return true;
+        }
+
+        /**
+         * Takes up to {@code max} events, waiting up to {@code waitMillis} for the first one.
+         */
+        public synchronized Batch poll(int max, long waitMillis) throws InterruptedException {
+            lastPollAt = System.currentTimeMillis();
+            long deadline = lastPollAt + Math.max(0, waitMillis);
+            while (!closed && !resyncPending && head == tail) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) break;
+                wait(remaining);
+            }
+            lastPollAt = System.currentTimeMillis();
+            if (closed && head == tail) return new Batch(List.of(), false, true);
+            boolean resync = resyncPending;
+            resyncPending = false;
+            int n = (int) Math.min(Math.max(1, max), tail - head);
+            List<Object> out = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                int slot = (int) (head % ring.length);
+                out.add(ring[slot]);
+                ring[slot] = null;
+                head++;
+            }
+            delivered += n;
+            return new Batch(out, resync, closed);
+        }
+
+        /** Number of events published to this subscriber but not yet polled. */
+        public synchronized long lag() {
+            return tail - head;
+        }
+
+        public synchronized Map<String, Object> metrics() {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("policy", policy.name());
+            m.put("capacity", ring.length);
+            m.put("lag", tail - head);
+            m.put("maxLag", maxLag);
+            m.put("delivered", delivered);
+            m.put("dropped", dropped);
+            m.put("resyncs", resyncs);
+            m.put("idleMillis", System.currentTimeMillis() - lastPollAt);
+            return m;
+        }
+
+        private synchronized void close() {
+            closed = true;
+            notifyAll();
+        }
+    }
+}
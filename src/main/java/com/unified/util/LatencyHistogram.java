@@ -0,0 +1,81 @@
+package com.unified.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Utility class for recording latencies into power-of-two microsecond buckets.
+ * Recording is lock-free and allocation-free; percentiles are accurate to within a factor of two.
+ */
+public class LatencyHistogram {
+    private static final int BUCKETS = 40;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong sumMicros = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    /**
+     * Records one latency.
+     * @param nanos The latency in nanoseconds
+     */
+    public void recordNanos(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        counts.incrementAndGet(bucket);
+        total.incrementAndGet();
+        sumMicros.addAndGet(micros);
+        long max;
+        while (micros > (max = maxMicros.get()) && !maxMicros.compareAndSet(max, micros)) {
+            // retry
+        }
+    }
+
+    /**
+     * Gets the number of recorded latencies.
+     * @return The count
+     */
+    public long getCount() {
+        return total.get();
+    }
+
+    /**
+     * Estimates a percentile as the upper bound of the bucket it falls in.
+     * @param percentile The percentile, between 0 and 100
+     * @return The latency in microseconds, or 0 if nothing was recorded
+     */
+    public long percentileMicros(double percentile) {
+        long n = total.get();
+        if (n == 0) return 0;
+        long rank = (long) Math.ceil(n * Math.min(100, Math.max(0, percentile)) / 100.0);
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += counts.get(b);
+            if (seen >= rank) return Math.min(b == 0 ? 0 : 1L << b, maxMicros.get());
+        }
+        return maxMicros.get();
+    }
+
+    /**
+     * Gets count, mean, p50, p95, p99 and max in microseconds.
+     * @return The summary
+     */
+    public Map<String, Object> toMap() {
+        long n = total.get();
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("count", n);
+        m.put("meanMicros", n == 0 ? 0 : sumMicros.get() / n);
+        m.put("p50Micros", percentileMicros(50));
+        m.put("p95Micros", percentileMicros(95));
+        m.put("p99Micros", percentileMicros(99));
+        m.put("maxMicros", maxMicros.get());
+        return m;
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyHistogram" + toMap();
+    }
+}
@@ -1,77 +1,121 @@
 package com.unified.util;
 
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.time.Duration;
 import java.util.Base64;
 
 /**
  * Utility class for secure password management.
- * Handles password hashing and verification using SHA-256 with salt.
+ * Hashes passwords with PBKDF2-HMAC-SHA256 in a versioned format, {@code pbkdf2-sha256$iterations$salt$hash},
+ * so the cost can be raised later: {@link #needsRehash(String)} tells callers to re-hash a password
+ * after a successful login. Hashes in the older SHA-256 {@code salt:hash} format still verify.
  */
 public class PasswordManager {
-    private static final String HASH_ALGORITHM = "SHA-256";
+    public static final String ALGORITHM_ID = "pbkdf2-sha256";
+    public static final int DEFAULT_ITERATIONS = 310_000;
+    public static final int MIN_ITERATIONS = 10_000;
+
+    private static final String KDF = "PBKDF2WithHmacSHA256";
+    private static final String LEGACY_HASH_ALGORITHM = "SHA-256";
     private static final int SALT_LENGTH = 16;
+    private static final int KEY_BITS = 256;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private static volatile int iterations = DEFAULT_ITERATIONS;
 
     /**
-     * Hashes a password using SHA-256 with a random salt.
+     * Hashes a password with a random salt at the current cost.
      * @param password The plain text password to hash
-     * @return The hashed password with salt (format: salt:hash)
+     * @return The hash in format pbkdf2-sha256$iterations$salt$hash
      */
     public static String hashPassword(String password) {
-        try {
-            // Generate a random salt
-            SecureRandom random = new SecureRandom();
-            byte[] salt = new byte[SALT_LENGTH];
-            random.nextBytes(salt);
-
-            // Combine password and salt
-            String saltedPassword = Base64.getEncoder().encodeToString(salt) + password;
-
-            // Hash the salted password
-            MessageDigest md = MessageDigest.getInstance(HASH_ALGORITHM);
-            byte[] hashedBytes = md.digest(saltedPassword.getBytes());
-
-            // Return salt:hash format
-            return Base64.getEncoder().encodeToString(salt) + ":" + 
-                   Base64.getEncoder().encodeToString(hashedBytes);
-
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("Hash algorithm not available", e);
-        }
+        byte[] salt = new byte[SALT_LENGTH];
+        RANDOM.nextBytes(salt);
+        int cost = iterations;
+        byte[] hash = pbkdf2(password, salt, cost);
+        Base64.Encoder b64 = Base64.getEncoder();
+        return ALGORITHM_ID + "$" + cost + "$" + b64.encodeToString(salt) + "$" + b64.encodeToString(hash);
     }
 
     /**
-     * Verifies a password against a stored hash.
+     * Verifies a password against a stored hash in either supported format.
      * @param password The plain text password to verify
-     * @param storedHash The stored hash in format salt:hash
+     * @param storedHash The stored hash
      * @return true if password matches, false otherwise
      */
     public static boolean verifyPassword(String password, String storedHash) {
-        try {
-            // Split the stored hash into salt and hash
-            String[] parts = storedHash.split(":");
-            if (parts.length != 2) {
+        if (password == null || storedHash == null) return false;
+        if (storedHash.startsWith(ALGORITHM_ID + "$")) {
+            String[] parts = storedHash.split("\\$");
+            if (parts.length != 4) return false;
+            try {
+                int cost = Integer.parseInt(parts[1]);
+                byte[] salt = Base64.getDecoder().decode(parts[2]);
+                byte[] expected = Base64.getDecoder().decode(parts[3]);
+                return MessageDigest.isEqual(expected, pbkdf2(password, salt, cost));
+            } catch (IllegalArgumentException e) {
                 return false;
             }
+        }
+        return verifyLegacy(password, storedHash);
+    }
 
-            String salt = parts[0];
-            String hash = parts[1];
-
-            // Combine the provided password with the stored salt
-            String saltedPassword = salt + password;
+    /**
+     * Checks whether a stored hash should be replaced after the next successful login:
+     * it uses the legacy format or fewer iterations than the current cost.
+     * @param storedHash The stored hash
+     * @return true if the password should be re-hashed
+     */
+    public static boolean needsRehash(String storedHash) {
+        if (storedHash == null || !storedHash.startsWith(ALGORITHM_ID + "$")) return true;
+        String[] parts = storedHash.split("\\$");
+        try {
+            return parts.length != 4 || Integer.parseInt(parts[1]) < iterations;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
 
-            // Hash the salted password
-            MessageDigest md = MessageDigest.getInstance(HASH_ALGORITHM);
-            byte[] hashedBytes = md.digest(saltedPassword.getBytes());
+    /**
+     * Gets the PBKDF2 iteration count used for new hashes.
+     * @return The iteration count
+     */
+    public static int getIterations() {
+        return iterations;
+    }
 
-            // Compare with stored hash
-            String computedHash = Base64.getEncoder().encodeToString(hashedBytes);
-            return hash.equals(computedHash);
+    /**
+     * Sets the PBKDF2 iteration count used for new hashes.
+     * @param cost The iteration count, at least MIN_ITERATIONS
+     */
+    public static void setIterations(int cost) {
+        iterations = Math.max(MIN_ITERATIONS, cost);
+    }
 
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("Hash algorithm not available", e);
+    /**
+     * Measures this host and picks the iteration count that makes one hash take about the target time.
+     * @param target The desired time per hash
+     * @return The calibrated iteration count, never below MIN_ITERATIONS
+     */
+    public static int calibrate(Duration target) {
+        byte[] salt = new byte[SALT_LENGTH];
+        RANDOM.nextBytes(salt);
+        int probe = 20_000;
+        for (int i = 0; i < 3; i++) pbkdf2("calibration", salt, probe);   // warm up the JIT
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            long start = System.nanoTime();
+            pbkdf2("calibration", salt, probe);
+            best = Math.min(best, System.nanoTime() - start);
         }
+        double perIteration = (double) best / probe;
+        long cost = (long) (target.toNanos() / Math.max(1e-3, perIteration));
+        return (int) Math.max(MIN_ITERATIONS, Math.min(Integer.MAX_VALUE, cost));
     }
 
     /**
@@ -81,13 +125,41 @@ public class PasswordManager {
      */
     public static String generateSecurePassword(int length) {
         String chars = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789!@#$%^&*";
-        SecureRandom random = new SecureRandom();
         StringBuilder password = new StringBuilder();
 
         for (int i = 0; i < length; i++) {
-            password.append(chars.charAt(random.nextInt(chars.length())));
+            password.append(chars.charAt(RANDOM.nextInt(chars.length())));
         }
 
         return password.toString();
     }
-} 
\ No newline at end of file
+
+    private static byte[] pbkdf2(String password, byte[] salt, int cost) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, cost, KEY_BITS);
+        try {
+            return SecretKeyFactory.getInstance(KDF).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Key derivation not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    private static boolean verifyLegacy(String password, String storedHash) {
+        // Split the stored hash into salt and hash
+        String[] parts = storedHash.split(":");
+        if (parts.length != 2) {
+            return false;
+        }
+        try {
+            MessageDigest md = MessageDigest.getInstance(LEGACY_HASH_ALGORITHM);
+            byte[] hashedBytes = md.digest((parts[0] + password).getBytes());
+            byte[] expected = Base64.getDecoder().decode(parts[1]);
+            return MessageDigest.isEqual(expected, hashedBytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("Hash algorithm not available", e);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
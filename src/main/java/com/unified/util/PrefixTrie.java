@@ -0,0 +1,131 @@
+package com.unified.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Utility class mapping string keys to values for prefix lookups such as autocomplete.
+ * Keys are matched case-insensitively. A lookup walks the prefix once and then collects values
+ * from the subtree, stopping as soon as the limit is reached.
+ * @param <V> The value type
+ */
+public class PrefixTrie<V> {
+    private final Node<V> root = new Node<>();
+    private int size;
+
+    /**
+     * Associates a value with a key. A key may hold several values.
+     * @param key The key
+     * @param value The value
+     */
+    public void put(String key, V value) {
+        Node<V> node = root;
+        for (char ch : normalize(key).toCharArray()) {
+            node = node.children.computeIfAbsent(ch, c -> new Node<>());
+        }
+        if (node.values.add(value)) size++;
+    }
+
+    /**
+     * Removes one value from a key, pruning nodes left empty.
+     * @param key The key
+     * @param value The value to remove
+     * @return true if the value was present
+     */
+    public boolean remove(String key, V value) {
+        String k = normalize(key);
+        Node<V>[] path = newPath(k.length() + 1);
+        Node<V> node = root;
+        path[0] = root;
+        for (int i = 0; i < k.length(); i++) {
+            node = node.children.get(k.charAt(i));
+            if (node == null) return false;
+            path[i + 1] = node;
+        }
+        if (!node.values.remove(value)) return false;
+        size--;
+        for (int i = k.length(); i > 0; i--) {
+            Node<V> n = path[i];
+            if (!n.values.isEmpty() || !n.children.isEmpty()) break;
+            path[i - 1].children.remove(k.charAt(i - 1));
+        }
+        return true;
+    }
+
+    /**
+     * Collects values whose key starts with a prefix, shortest keys first.
+     * @param prefix The prefix to match
+     * @param limit The maximum number of values returned
+     * @return Up to limit distinct values
+     */
+    public List<V> startingWith(String prefix, int limit) {
+        Node<V> node = root;
+        for (char ch : normalize(prefix).toCharArray()) {
+            node = node.children.get(ch);
+            if (node == null) return new ArrayList<>();
+        }
+        Set<V> out = new LinkedHashSet<>();
+        Deque<Node<V>> queue = new ArrayDeque<>();
+        queue.add(node);
+        while (!queue.isEmpty() && out.size() < limit) {
+            Node<V> n = queue.poll();
+            for (V v : n.values) {
+                out.add(v);
+                if (out.size() >= limit) break;
+            }
+            queue.addAll(n.children.values());
+        }
+        return new ArrayList<>(out);
+    }
+
+    /**
+     * Visits every value whose key starts with a prefix. A value stored under several matching keys
+     * is visited once per key.
+     * @param prefix The prefix to match
+     * @param action The action applied to each value
+     */
+    public void forEachStartingWith(String prefix, Consumer<? super V> action) {
+        Node<V> node = root;
+        for (char ch : normalize(prefix).toCharArray()) {
+            node = node.children.get(ch);
+            if (node == null) return;
+        }
+        Deque<Node<V>> stack = new ArrayDeque<>();
+        stack.push(node);
+        while (!stack.isEmpty()) {
+            Node<V> n = stack.pop();
+            n.values.forEach(action);
+            for (Node<V> child : n.children.values()) stack.push(child);
+        }
+    }
+
+    /**
+     * Gets the number of key/value associations.
+     * @return The size
+     */
+    public int size() {
+        return size;
+    }
+
+    private static String normalize(String key) {
+        return key == null ? "" : key.toLowerCase();
+    }
+
+    private static <V> Node<V>[] newPath(int length) {
+        @SuppressWarnings("unchecked")
+        Node<V>[] path = (Node<V>[]) new Node<?>[length];
+        return path;
+    }
+
+    private static final class Node<V> {
+        final Map<Character, Node<V>> children = new HashMap<>(4);
+        final Set<V> values = new LinkedHashSet<>(2);
+    }
+}
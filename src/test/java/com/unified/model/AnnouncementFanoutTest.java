@@ -0,0 +1,146 @@
+package com.unified.model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnnouncementFanoutTest {
+
+    private AnnouncementFanout fanout;
+
+    @AfterEach
+    void shutdown() {
+        if (fanout != null) fanout.shutdown();
+    }
+
+    /** Records every batch, failing the first {@code failures} calls. */
+    private static final class MemorySink implements InboxSink {
+        final List<List<String>> batches = Collections.synchronizedList(new ArrayList<>());
+        final AtomicInteger calls = new AtomicInteger();
+        final int failures;
+        final int maxBatch;
+
+        MemorySink(int failures, int maxBatch) {
+            this.failures = failures;
+            this.maxBatch = maxBatch;
+        }
+
+        @Override
+        public void deliver(AnnouncementMessage announcement, List<String> userIds) throws IOException {
+            if (calls.incrementAndGet() <= failures) throw new IOException("inbox unavailable");
+            batches.add(new ArrayList<>(userIds));
+        }
+
+        @Override
+        public int maxBatchSize() {
+            return maxBatch;
+        }
+
+        List<String> delivered() {
+            List<String> all = new ArrayList<>();
+            synchronized (batches) {
+                batches.forEach(all::addAll);
+            }
+            return all;
+        }
+    }
+
+    private static AnnouncementMessage announcement(String id) {
+        return new AnnouncementMessage(id, "prof", "course", "Exam moved", LocalDateTime.now(), false,
+                "CS101", "Intro", false, "GENERAL");
+    }
+
+    private static List<String> users(int n) {
+        List<String> out = new ArrayList<>();
+        for (int i = 0; i < n; i++) out.add("u" + i);
+        return out;
+    }
+
+    private static AnnouncementFanout.Delivery finished(AnnouncementFanout.Delivery d) throws Exception {
+        return d.whenDone().get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void recipientsAreParticipantsAndEnrolledStudentsWithoutTheSender() {
+        CourseChannel channel = new CourseChannel("CS101", "CS101", "Intro", "prof", "Fall", 2026, true);
+        channel.addParticipant("ta");
+        Student enrolled = new Student("s1", "s1", "S One", "s1@u.edu", "x", "1");
+        enrolled.enrollInCourse("CS101");
+        Student other = new Student("s2", "s2", "S Two", "s2@u.edu", "x", "2");
+        other.enrollInCourse("MA201");
+        Student alsoParticipant = new Student("ta", "ta", "T A", "ta@u.edu", "x", "3");
+        alsoParticipant.enrollInCourse("CS101");
+
+        Set<String> recipients = AnnouncementFanout.resolveRecipients(channel, "prof",
+                List.of(enrolled, other, alsoParticipant));
+        assertEquals(Set.of("ta", "s1"), recipients);
+        assertFalse(AnnouncementFanout.resolveRecipients(channel, "s1", List.of(enrolled)).contains("s1"));
+    }
+
+    @Test
+    void recipientsAreSplitIntoChunksCappedByTheSink() throws Exception {
+        MemorySink sink = new MemorySink(0, 3);
+        fanout = new AnnouncementFanout(sink, 2, 100);
+
+        AnnouncementFanout.Delivery d = finished(fanout.deliver(announcement("a1"), users(10)));
+        assertEquals(10, d.getTotal());
+        assertEquals(10, d.getDelivered());
+        assertEquals(0, d.getFailed());
+        assertEquals(4, sink.batches.size());
+        sink.batches.forEach(b -> assertTrue(b.size() <= 3));
+        List<String> delivered = sink.delivered();
+        Collections.sort(delivered);
+        List<String> expected = users(10);
+        Collections.sort(expected);
+        assertEquals(expected, delivered);
+        assertSame(d, fanout.getDelivery("a1"));
+    }
+
+    @Test
+    void failedChunkIsRetriedWithBackoff() throws Exception {
+        MemorySink sink = new MemorySink(2, 500);
+        fanout = new AnnouncementFanout(sink, 1, 50);
+
+        long start = System.nanoTime();
+        AnnouncementFanout.Delivery d = finished(fanout.deliver(announcement("a2"), users(5)));
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(5, d.getDelivered());
+        assertEquals(0, d.getFailed());
+        assertEquals(3, sink.calls.get());
+        // Two backoffs: at least 200 ms and then 400 ms before the third attempt
+        assertTrue(elapsedMs >= 600, "retried after " + elapsedMs + " ms");
+    }
+
+    @Test
+    void chunkFailsAfterMaxAttempts() throws Exception {
+        MemorySink sink = new MemorySink(Integer.MAX_VALUE, 500);
+        fanout = new AnnouncementFanout(sink, 2, 4);
+
+        AnnouncementFanout.Delivery d = finished(fanout.deliver(announcement("a3"), users(6)));
+        assertTrue(d.isDone());
+        assertEquals(0, d.getDelivered());
+        assertEquals(6, d.getFailed());
+        assertEquals(2 * 3, sink.calls.get());
+    }
+
+    @Test
+    void emptyDeliveryCompletesAtOnce() {
+        fanout = new AnnouncementFanout(new MemorySink(0, 500), 1, 10);
+
+        AnnouncementFanout.Delivery d = fanout.deliver(announcement("a4"), List.of());
+        assertTrue(d.isDone());
+        assertEquals(0, d.getTotal());
+        assertEquals(Boolean.TRUE, d.toMap().get("done"));
+    }
+}
@@ -0,0 +1,67 @@
+package com.unified.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChannelDirectoryTest {
+
+    private static GroupChatChannel group(String name, int members) {
+        GroupChatChannel g = new GroupChatChannel(name, "", "owner", 1000, false);
+        for (int i = 1; i < members; i++) g.addParticipant("member" + i);
+        return g;
+    }
+
+    @Test
+    void ranksEveryMatchNotJustTheFirstOnesFound() {
+        ChannelDirectory dir = new ChannelDirectory();
+        for (int i = 0; i < 6000; i++) dir.add(group("Study group " + i, 1));
+        GroupChatChannel biggest = group("Study group zz", 40);
+        dir.add(biggest);
+
+        ChannelDirectory.Page page = dir.discover("study", null, 0, 5);
+        assertSame(biggest, page.getChannels().get(0));
+        assertTrue(page.hasMore());
+    }
+
+    @Test
+    void pagesAreDisjointSlicesOfOneRanking() {
+        ChannelDirectory dir = new ChannelDirectory();
+        for (int i = 0; i < 25; i++) dir.add(group("Physics " + i, 1 + i % 7));
+
+        Set<String> seen = new HashSet<>();
+        List<Channel> all = new ArrayList<>();
+        int offset = 0;
+        ChannelDirectory.Page page;
+        do {
+            page = dir.discover("phys", null, offset, 10);
+            for (Channel c : page.getChannels()) assertTrue(seen.add(c.getChannelId()));
+            all.addAll(page.getChannels());
+            offset = page.getNextOffset();
+        } while (page.hasMore());
+
+        assertEquals(25, all.size());
+        List<Channel> sorted = new ArrayList<>(all);
+        sorted.sort(ChannelDirectory.RANKING);
+        assertEquals(sorted, all);
+    }
+
+    @Test
+    void leavesOutPrivateExcludedAndMultiTermDuplicates() {
+        ChannelDirectory dir = new ChannelDirectory();
+        GroupChatChannel open = group("Chess club", 3);
+        GroupChatChannel joined = group("Chess openings", 2);
+        GroupChatChannel hidden = new GroupChatChannel("Chess secrets", "", "owner", 10, true);
+        assertTrue(dir.add(open));
+        assertTrue(dir.add(joined));
+        assertFalse(dir.add(hidden));
+
+        List<Channel> found = dir.discover("ches", Set.of(joined.getChannelId()), 0, 10).getChannels();
+        assertEquals(List.of(open), found);
+    }
+}
@@ -0,0 +1,133 @@
+package com.unified.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChannelEventBusTest {
+
+    /** Collects events and lets a test wait for a given number of them. */
+    private static final class Recorder implements ChannelEventBus.Subscriber {
+        final List<ChannelEvent> events = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void onEvent(ChannelEvent event) {
+            synchronized (events) {
+                events.add(event);
+                events.notifyAll();
+            }
+        }
+
+        List<ChannelEvent> await(int n) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            synchronized (events) {
+                while (events.size() < n) {
+                    long left = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    if (left <= 0) fail("only " + events.size() + " of " + n + " events arrived");
+                    events.wait(left);
+                }
+                return new ArrayList<>(events);
+            }
+        }
+    }
+
+    private static ChannelEvent joined(String userId) {
+        return new ChannelEvent.ParticipantJoined("c", userId);
+    }
+
+    @Test
+    void publishingWithoutSubscribersIsSkipped() {
+        ChannelEventBus bus = new ChannelEventBus(4);
+        ChannelEvent event = joined("u");
+
+        assertFalse(bus.hasSubscribers());
+        assertFalse(bus.publish(event));
+        assertEquals(0, event.getSequence());
+        assertEquals(0, bus.getPendingCount());
+        assertEquals(0, bus.getDroppedCount());
+
+        // Channels check hasSubscribers first, so nothing is built or queued for them either
+        Channel channel = new GroupChatChannel("quiet", "", "owner", 10, false);
+        channel.setEventBus(bus);
+        assertTrue(channel.addParticipant("someone"));
+        assertTrue(channel.sendMessage(new TextMessage("owner", channel.getChannelId(), "hi")));
+        assertEquals(0, bus.getPendingCount());
+    }
+
+    @Test
+    void concurrentPublishersAreDeliveredInSequenceOrder() throws InterruptedException {
+        ChannelEventBus bus = new ChannelEventBus(ChannelEventBus.DEFAULT_CAPACITY);
+        Recorder recorder = new Recorder();
+        bus.subscribe(recorder);
+
+        int threads = 4, perThread = 1000;
+        List<Thread> publishers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            String prefix = "t" + t + "-";
+            publishers.add(new Thread(() -> {
+                for (int i = 0; i < perThread; i++) assertTrue(bus.publish(joined(prefix + i)));
+            }));
+        }
+        publishers.forEach(Thread::start);
+        for (Thread t : publishers) t.join();
+
+        List<ChannelEvent> events = recorder.await(threads * perThread);
+        int[] next = new int[threads];
+        for (int i = 0; i < events.size(); i++) {
+            ChannelEvent e = events.get(i);
+            assertEquals(i + 1, e.getSequence());
+            String[] parts = ((ChannelEvent.ParticipantJoined) e).getUserId().substring(1).split("-");
+            int thread = Integer.parseInt(parts[0]);
+            assertEquals(next[thread]++, Integer.parseInt(parts[1]), "per-publisher order");
+        }
+        assertEquals(0, bus.getDroppedCount());
+    }
+
+    @Test
+    void overflowIsCountedAndReportedWithOneResync() throws InterruptedException {
+        ChannelEventBus bus = new ChannelEventBus(2);
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Recorder recorder = new Recorder();
+        bus.subscribe(event -> {
+            if (event.getSequence() == 1) {
+                holding.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ignored) {
+                }
+            }
+        });
+        bus.subscribe(recorder);
+
+        // The dispatcher is stuck on the first event, so two more fill the queue and the rest are dropped
+        assertTrue(bus.publish(joined("a")));
+        assertTrue(holding.await(5, TimeUnit.SECONDS));
+        assertTrue(bus.publish(joined("b")));
+        assertTrue(bus.publish(joined("c")));
+        assertFalse(bus.publish(joined("d")));
+        assertFalse(bus.publish(joined("e")));
+        assertFalse(bus.publish(joined("f")));
+        assertEquals(3, bus.getDroppedCount());
+        release.countDown();
+
+        List<ChannelEvent> events = recorder.await(4);
+        assertEquals(List.of(1L, 2L, 3L, 4L), events.stream().map(ChannelEvent::getSequence).toList());
+        assertTrue(events.get(3) instanceof ChannelEvent.Resync);
+        assertEquals(3, ((ChannelEvent.Resync) events.get(3)).getDropped());
+
+        // Once reported, drops are not reported again
+        assertTrue(bus.publish(joined("g")));
+        events = recorder.await(5);
+        assertEquals(5L, events.get(4).getSequence());
+        assertTrue(events.get(4) instanceof ChannelEvent.ParticipantJoined);
+        Thread.sleep(50);
+        assertEquals(5, recorder.events.size());
+    }
+}
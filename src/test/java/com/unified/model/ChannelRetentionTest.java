@@ -0,0 +1,88 @@
+package com.unified.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChannelRetentionTest {
+
+    private static final String OWNER = "owner";
+
+    @TempDir
+    Path dir;
+
+    private static Channel channelWith(int oldMessages, int newMessages) {
+        Channel c = new GroupChatChannel("retention", "", OWNER, 10, false);
+        LocalDateTime old = LocalDateTime.now().minusDays(30);
+        for (int i = 0; i < oldMessages; i++) {
+            assertTrue(c.sendMessage(new TextMessage("old" + i, OWNER, c.getChannelId(), "old " + i, old.plusSeconds(i), false)));
+        }
+        for (int i = 0; i < newMessages; i++) {
+            assertTrue(c.sendMessage(new TextMessage(OWNER, c.getChannelId(), "new " + i)));
+        }
+        return c;
+    }
+
+    @Test
+    void countLimitKeepsNewest() {
+        Channel c = channelWith(0, 10);
+
+        assertEquals(6, c.applyRetention(new RetentionPolicy(null, 4, RetentionPolicy.Action.DELETE), null));
+        assertEquals(4, c.getMessageCount());
+        assertEquals("new 6", c.getMessages().get(0).getContent());
+    }
+
+    @Test
+    void ageLimitArchivesExpiredPrefixInOrder() {
+        Channel c = channelWith(5, 3);
+        List<String> archived = new ArrayList<>();
+
+        int removed = c.applyRetention(new RetentionPolicy(Duration.ofDays(7), 0, RetentionPolicy.Action.ARCHIVE),
+                m -> archived.add(m.getMessageId()));
+
+        assertEquals(5, removed);
+        assertEquals(List.of("old0", "old1", "old2", "old3", "old4"), archived);
+        assertEquals(3, c.getMessageCount());
+    }
+
+    @Test
+    void deleteActionSkipsArchive() {
+        Channel c = channelWith(2, 1);
+        List<Message> archived = new ArrayList<>();
+
+        c.applyRetention(new RetentionPolicy(Duration.ofDays(7), 0, RetentionPolicy.Action.DELETE), archived::add);
+
+        assertTrue(archived.isEmpty());
+        assertEquals(1, c.getMessageCount());
+    }
+
+    @Test
+    void unboundedPolicyRemovesNothing() {
+        Channel c = channelWith(3, 3);
+
+        assertEquals(0, c.applyRetention(RetentionPolicy.KEEP_ALL, null));
+        assertEquals(6, c.getMessageCount());
+    }
+
+    @Test
+    void retentionReachesMessagesInAttachedHistory() throws IOException {
+        Channel c = channelWith(0, 0);
+        c.attachHistory(new SegmentedMessageLog(dir, 4096));
+        for (int i = 0; i < 600; i++) {
+            assertTrue(c.sendMessage(new TextMessage(OWNER, c.getChannelId(), "logged " + i)));
+        }
+
+        assertEquals(500, c.applyRetention(new RetentionPolicy(null, 100, RetentionPolicy.Action.DELETE), null));
+        assertEquals(100, c.getMessageCount());
+        assertEquals("logged 500", c.getMessages(0, 1).get(0).getContent());
+        c.closeHistory();
+    }
+}
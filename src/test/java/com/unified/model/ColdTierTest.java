@@ -0,0 +1,208 @@
+package com.unified.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColdTierTest {
+
+    /** Blobs in a map; fails every put after {@code failAfter} successful ones. */
+    private static final class MemoryStore implements ColdSegmentStore {
+        final Map<String, byte[]> blobs = new HashMap<>();
+        int failAfter = Integer.MAX_VALUE;
+        int maxBlob = Integer.MAX_VALUE;
+
+        @Override
+        public void put(String key, byte[] blob) throws IOException {
+            if (failAfter-- <= 0) throw new IOException("store unavailable");
+            blobs.put(key, blob);
+        }
+
+        @Override
+        public byte[] get(String key) throws IOException {
+            byte[] blob = blobs.get(key);
+            if (blob == null) throw new IOException("missing " + key);
+            return blob;
+        }
+
+        @Override
+        public byte[] find(String key) {
+            return blobs.get(key);
+        }
+
+        @Override
+        public void delete(String key) {
+            blobs.remove(key);
+        }
+
+        /** Stored segments, not counting manifests. */
+        int segments() {
+            return (int) blobs.keySet().stream().filter(k -> !k.endsWith("/manifest")).count();
+        }
+
+        @Override
+        public int maxBlobBytes() {
+            return maxBlob;
+        }
+    }
+
+    private static List<Message> messages(int from, int to) {
+        List<Message> out = new ArrayList<>();
+        LocalDateTime base = LocalDateTime.of(2023, 1, 1, 0, 0);
+        for (int i = from; i < to; i++) {
+            out.add(new TextMessage("m" + i, "u", "c", "cold " + i, base.plusMinutes(i), false));
+        }
+        return out;
+    }
+
+    private static ColdTier tier(MemoryStore store, int segmentMessages) throws IOException {
+        // Unique channel IDs keep the shared segment cache from leaking between tests
+        return new ColdTier(UUID.randomUUID().toString(), store, segmentMessages);
+    }
+
+    @Test
+    void appendSplitsIntoSegmentsAndReadsBack() throws IOException {
+        MemoryStore store = new MemoryStore();
+        ColdTier tier = tier(store, 100);
+        assertDoesNotThrow(() -> tier.append(messages(0, 250)));
+
+        assertEquals(250, tier.size());
+        assertEquals(3, tier.getSegmentCount());
+        assertEquals(3, store.segments());
+        assertEquals("cold 0", tier.read(0).getContent());
+        assertEquals("cold 149", tier.read(149).getContent());
+        assertEquals("cold 249", tier.read(249).getContent());
+        assertThrows(IndexOutOfBoundsException.class, () -> tier.read(250));
+    }
+
+    @Test
+    void forEachVisitsRangeAcrossSegments() throws IOException {
+        ColdTier tier = tier(new MemoryStore(), 50);
+        tier.append(messages(0, 200));
+        List<String> seen = new ArrayList<>();
+        tier.forEach(40, 160, m -> seen.add(m.getMessageId()));
+
+        assertEquals(120, seen.size());
+        assertEquals("m40", seen.get(0));
+        assertEquals("m159", seen.get(119));
+    }
+
+    @Test
+    void oversizeSegmentsAreSplitToFitTheStore() throws IOException {
+        MemoryStore store = new MemoryStore();
+        store.maxBlob = 200;
+        ColdTier tier = tier(store, 1000);
+        tier.append(messages(0, 64));
+
+        assertTrue(tier.getSegmentCount() > 1);
+        assertEquals(tier.getSegmentCount(), store.segments());
+        for (int i = 0; i < 64; i++) assertEquals("cold " + i, tier.read(i).getContent());
+    }
+
+    @Test
+    void dropOldestDeletesFullyDroppedSegments() throws IOException {
+        MemoryStore store = new MemoryStore();
+        ColdTier tier = tier(store, 100);
+        tier.append(messages(0, 300));
+
+        tier.dropOldest(150);
+        assertEquals(150, tier.size());
+        assertEquals(2, tier.getSegmentCount());
+        assertEquals(2, store.segments());
+        assertEquals("cold 150", tier.read(0).getContent());
+
+        tier.dropOldest(50);
+        assertEquals(1, tier.getSegmentCount());
+        assertEquals("cold 200", tier.read(0).getContent());
+    }
+
+    @Test
+    void failedAppendLeavesTierAndStoreUnchanged() throws IOException {
+        MemoryStore store = new MemoryStore();
+        ColdTier tier = tier(store, 100);
+        tier.append(messages(0, 100));
+
+        store.failAfter = 2;
+        assertThrows(IOException.class, () -> tier.append(messages(100, 400)));
+        assertEquals(100, tier.size());
+        assertEquals(1, tier.getSegmentCount());
+        assertEquals(1, store.segments());
+
+        store.failAfter = Integer.MAX_VALUE;
+        tier.append(messages(100, 200));
+        assertEquals(200, tier.size());
+        assertEquals("cold 150", tier.read(150).getContent());
+    }
+
+    @Test
+    void channelKeepsMessagesInMemoryWhenTieringFails() throws IOException {
+        MemoryStore store = new MemoryStore();
+        store.failAfter = 0;
+        Channel c = new GroupChatChannel("cold", "", "u", 10, false);
+        c.attachColdTier(new ColdTier(c.getChannelId(), store, 10));
+        LocalDateTime old = LocalDateTime.now().minusDays(90);
+        for (int i = 0; i < 25; i++) {
+            c.sendMessage(new TextMessage("m" + i, "u", c.getChannelId(), "old " + i, old.plusSeconds(i), false));
+        }
+
+        assertThrows(IOException.class, () -> c.tierOlderThan(LocalDateTime.now().minusDays(30)));
+        assertEquals(25, c.getMessageCount());
+        assertEquals(0, c.getColdTier().size());
+        assertEquals("old 0", c.getMessages(0, 1).get(0).getContent());
+    }
+
+    @Test
+    void reopenedTierFindsItsSegmentsAndDrops() throws IOException {
+        MemoryStore store = new MemoryStore();
+        String channelId = UUID.randomUUID().toString();
+        ColdTier first = new ColdTier(channelId, store, 100);
+        first.append(messages(0, 250));
+        first.dropOldest(120);
+
+        ColdTier reopened = new ColdTier(channelId, store, 100);
+        assertEquals(130, reopened.size());
+        assertEquals(2, reopened.getSegmentCount());
+        assertEquals("cold 120", reopened.read(0).getContent());
+        assertEquals("cold 249", reopened.read(129).getContent());
+    }
+
+    @Test
+    void reopenedTierNeverOverwritesSegments() throws IOException, InterruptedException {
+        MemoryStore store = new MemoryStore();
+        String channelId = UUID.randomUUID().toString();
+        new ColdTier(channelId, store, 100).append(messages(0, 100));
+        Map<String, byte[]> before = new HashMap<>(store.blobs);
+        before.remove(channelId + "/manifest");
+
+        Thread.sleep(5);   // a later opening, as after a restart
+        ColdTier reopened = new ColdTier(channelId, store, 100);
+        reopened.append(messages(100, 200));
+
+        assertEquals(2, store.segments());
+        before.forEach((key, blob) -> assertSame(blob, store.blobs.get(key), key));
+        assertEquals("cold 0", reopened.read(0).getContent());
+        assertEquals("cold 199", reopened.read(199).getContent());
+    }
+
+    @Test
+    void failedManifestWriteRollsBackTheAppend() throws IOException {
+        MemoryStore store = new MemoryStore();
+        String channelId = UUID.randomUUID().toString();
+        ColdTier tier = new ColdTier(channelId, store, 100);
+        tier.append(messages(0, 100));
+
+        store.failAfter = 2;   // both segments are stored, the manifest is not
+        assertThrows(IOException.class, () -> tier.append(messages(100, 300)));
+        assertEquals(100, tier.size());
+        assertEquals(1, store.segments());
+        assertEquals(100, new ColdTier(channelId, store, 100).size());
+    }
+}
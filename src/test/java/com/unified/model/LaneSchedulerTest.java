@@ -0,0 +1,137 @@
+package com.unified.model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.unified.model.DeliveryLane.ANNOUNCEMENT;
+import static com.unified.model.DeliveryLane.CHAT;
+import static com.unified.model.DeliveryLane.IMPORTANT_ANNOUNCEMENT;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LaneSchedulerTest {
+
+    private LaneScheduler scheduler;
+
+    @AfterEach
+    void shutdown() {
+        if (scheduler != null) scheduler.shutdown();
+    }
+
+    @Test
+    void backlogIsServedInWeightedRounds() throws InterruptedException {
+        scheduler = new LaneScheduler(1);
+        CountDownLatch gate = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        // Occupy the single worker (spending CHAT's one turn) while the backlog builds up
+        assertTrue(scheduler.submit(CHAT, () -> {
+            started.countDown();
+            try {
+                gate.await();
+            } catch (InterruptedException ignored) {
+            }
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        int perLane = 30;
+        List<DeliveryLane> ran = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(3 * perLane);
+        for (int i = 0; i < perLane; i++) {
+            for (DeliveryLane lane : new DeliveryLane[] {CHAT, ANNOUNCEMENT, IMPORTANT_ANNOUNCEMENT}) {
+                assertTrue(scheduler.submit(lane, () -> {
+                    ran.add(lane);
+                    done.countDown();
+                }));
+            }
+        }
+        gate.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        // Remainder of the first round: 8 important, 4 announcements, CHAT already used its turn
+        assertEquals(counts(8, 4, 0), count(ran.subList(0, 12)));
+        // A full round: every lane gets its weight, highest priority first
+        List<DeliveryLane> round = ran.subList(12, 25);
+        assertEquals(counts(8, 4, 1), count(round));
+        assertEquals(IMPORTANT_ANNOUNCEMENT, round.get(0));
+        assertEquals(CHAT, round.get(12));
+    }
+
+    @Test
+    void chatIsNotStarvedByAnnouncements() throws InterruptedException {
+        scheduler = new LaneScheduler(1);
+        CountDownLatch gate = new CountDownLatch(1);
+        scheduler.submit(IMPORTANT_ANNOUNCEMENT, () -> {
+            try {
+                gate.await();
+            } catch (InterruptedException ignored) {
+            }
+        });
+        List<DeliveryLane> ran = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch chatDone = new CountDownLatch(1);
+        for (int i = 0; i < 100; i++) scheduler.submit(IMPORTANT_ANNOUNCEMENT, () -> ran.add(IMPORTANT_ANNOUNCEMENT));
+        scheduler.submit(CHAT, () -> {
+            ran.add(CHAT);
+            chatDone.countDown();
+        });
+        gate.countDown();
+
+        assertTrue(chatDone.await(5, TimeUnit.SECONDS));
+        assertTrue(ran.indexOf(CHAT) <= 2 * IMPORTANT_ANNOUNCEMENT.getWeight(), "chat ran at " + ran.indexOf(CHAT));
+    }
+
+    @Test
+    void fullLaneRejectsWithoutAffectingOthers() throws InterruptedException {
+        Map<DeliveryLane, Integer> capacities = new EnumMap<>(DeliveryLane.class);
+        capacities.put(CHAT, 2);
+        scheduler = new LaneScheduler(1, capacities);
+        CountDownLatch gate = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        scheduler.submit(ANNOUNCEMENT, () -> {
+            started.countDown();
+            try {
+                gate.await();
+            } catch (InterruptedException ignored) {
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertTrue(scheduler.submit(CHAT, () -> {}));
+        assertTrue(scheduler.submit(CHAT, () -> {}));
+        assertFalse(scheduler.submit(CHAT, () -> {}));
+        assertTrue(scheduler.submit(ANNOUNCEMENT, () -> {}));
+        assertEquals(2, scheduler.getQueued(CHAT));
+        @SuppressWarnings("unchecked")
+        Map<String, Object> chat = (Map<String, Object>) scheduler.metrics().get(CHAT.name());
+        assertEquals(1L, chat.get("rejected"));
+        gate.countDown();
+    }
+
+    @Test
+    void shutdownRejectsNewWork() {
+        scheduler = new LaneScheduler(1);
+        scheduler.shutdown();
+
+        assertFalse(scheduler.submit(CHAT, () -> {}));
+    }
+
+    private static Map<DeliveryLane, Integer> counts(int important, int announcement, int chat) {
+        Map<DeliveryLane, Integer> m = new EnumMap<>(DeliveryLane.class);
+        m.put(IMPORTANT_ANNOUNCEMENT, important);
+        m.put(ANNOUNCEMENT, announcement);
+        m.put(CHAT, chat);
+        return m;
+    }
+
+    private static Map<DeliveryLane, Integer> count(List<DeliveryLane> lanes) {
+        Map<DeliveryLane, Integer> m = counts(0, 0, 0);
+        for (DeliveryLane l : lanes) m.merge(l, 1, Integer::sum);
+        return m;
+    }
+}
@@ -0,0 +1,51 @@
+package com.unified.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageCodecTest {
+
+    private static final LocalDateTime TS = LocalDateTime.of(2024, 3, 1, 9, 30, 15, 123_456_789);
+
+    @Test
+    void textMessageRoundTrips() {
+        TextMessage m = new TextMessage("m1", "alice", "c1", "héllo ✓", TS, true);
+        Message back = MessageCodec.decode(ByteBuffer.wrap(MessageCodec.encode(m)));
+
+        assertInstanceOf(TextMessage.class, back);
+        assertEquals("m1", back.getMessageId());
+        assertEquals("alice", back.getSenderId());
+        assertEquals("c1", back.getChannelId());
+        assertEquals("héllo ✓", back.getContent());
+        assertEquals(TS, back.getTimestamp());
+        assertTrue(back.isRead());
+    }
+
+    @Test
+    void fileMessageKeepsAttachmentFields() {
+        FileMessage m = new FileMessage("m2", "bob", "c1", "File: notes.pdf", TS, false,
+                "notes.pdf", "https://files/notes.pdf", 42_000L, "application/pdf");
+        FileMessage back = (FileMessage) MessageCodec.decode(ByteBuffer.wrap(MessageCodec.encode(m)));
+
+        assertEquals("notes.pdf", back.getFileName());
+        assertEquals("https://files/notes.pdf", back.getFileUrl());
+        assertEquals(42_000L, back.getFileSize());
+        assertEquals("application/pdf", back.getFileType());
+        assertFalse(back.isRead());
+    }
+
+    @Test
+    void decodeAdvancesPastEachRecord() {
+        byte[] a = MessageCodec.encode(new TextMessage("a", "u", "c", "first", TS, false));
+        byte[] b = MessageCodec.encode(new TextMessage("b", "u", "c", "second", TS, false));
+        ByteBuffer buf = ByteBuffer.allocate(a.length + b.length).put(a).put(b).flip();
+
+        assertEquals("first", MessageCodec.decode(buf).getContent());
+        assertEquals("second", MessageCodec.decode(buf).getContent());
+        assertFalse(buf.hasRemaining());
+    }
+}
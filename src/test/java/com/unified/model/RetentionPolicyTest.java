@@ -0,0 +1,46 @@
+package com.unified.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RetentionPolicyTest {
+
+    @Test
+    void parsesEverySetting() {
+        RetentionPolicy p = RetentionPolicy.parse("maxAgeDays=30, maxCount=1000, action=delete");
+
+        assertEquals(Duration.ofDays(30), p.getMaxAge());
+        assertEquals(1000, p.getMaxCount());
+        assertEquals(RetentionPolicy.Action.DELETE, p.getAction());
+        assertTrue(p.isBounded());
+    }
+
+    @Test
+    void defaultsToArchiveWithoutLimits() {
+        RetentionPolicy p = RetentionPolicy.parse("maxAgeHours=12");
+
+        assertEquals(Duration.ofHours(12), p.getMaxAge());
+        assertEquals(0, p.getMaxCount());
+        assertEquals(RetentionPolicy.Action.ARCHIVE, p.getAction());
+        assertFalse(RetentionPolicy.KEEP_ALL.isBounded());
+    }
+
+    @Test
+    void rejectsMalformedSpecs() {
+        assertThrows(IllegalArgumentException.class, () -> RetentionPolicy.parse("maxCount"));
+        assertThrows(IllegalArgumentException.class, () -> RetentionPolicy.parse("maxSize=10"));
+        assertThrows(IllegalArgumentException.class, () -> RetentionPolicy.parse("action=shred"));
+    }
+
+    @Test
+    void cutoffIsNowMinusMaxAge() {
+        LocalDateTime now = LocalDateTime.of(2024, 6, 1, 12, 0);
+
+        assertEquals(now.minusDays(7), new RetentionPolicy(Duration.ofDays(7), 0, null).cutoff(now));
+        assertNull(new RetentionPolicy(null, 10, null).cutoff(now));
+    }
+}
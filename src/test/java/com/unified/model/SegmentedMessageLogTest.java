@@ -0,0 +1,99 @@
+package com.unified.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentedMessageLogTest {
+
+    private static final int SEGMENT_BYTES = 4096;
+
+    @TempDir
+    Path dir;
+
+    private static Message msg(int i) {
+        return new TextMessage("m" + i, "u", "c", "message " + i, LocalDateTime.of(2024, 1, 1, 0, 0).plusSeconds(i), false);
+    }
+
+    @Test
+    void appendsAndReadsAcrossSegments() throws IOException {
+        try (SegmentedMessageLog log = new SegmentedMessageLog(dir, SEGMENT_BYTES)) {
+            for (int i = 0; i < 500; i++) assertEquals(i, log.append(msg(i)));
+
+            assertEquals(500, log.size());
+            assertEquals("message 0", log.read(0).getContent());
+            assertEquals("message 499", log.read(499).getContent());
+            List<Message> range = log.read(100, 110);
+            assertEquals(10, range.size());
+            assertEquals("m100", range.get(0).getMessageId());
+            assertEquals(List.of("m497", "m498", "m499"), ids(log.lastN(3)));
+        }
+    }
+
+    @Test
+    void forEachVisitsRangeInOrder() throws IOException {
+        try (SegmentedMessageLog log = new SegmentedMessageLog(dir, SEGMENT_BYTES)) {
+            for (int i = 0; i < 600; i++) log.append(msg(i));
+            List<Message> seen = new ArrayList<>();
+            log.forEach(250, 550, seen::add);
+
+            assertEquals(300, seen.size());
+            assertEquals("m250", seen.get(0).getMessageId());
+            assertEquals("m549", seen.get(299).getMessageId());
+        }
+    }
+
+    @Test
+    void reopenRecoversEveryMessageAndKeepsAppending() throws IOException {
+        try (SegmentedMessageLog log = new SegmentedMessageLog(dir, SEGMENT_BYTES)) {
+            for (int i = 0; i < 300; i++) log.append(msg(i));
+        }
+        try (SegmentedMessageLog log = new SegmentedMessageLog(dir, SEGMENT_BYTES)) {
+            assertEquals(300, log.size());
+            assertEquals("message 299", log.read(299).getContent());
+            assertEquals(300, log.append(msg(300)));
+        }
+        try (SegmentedMessageLog log = new SegmentedMessageLog(dir, SEGMENT_BYTES)) {
+            assertEquals(301, log.size());
+            assertEquals("message 300", log.read(300).getContent());
+        }
+    }
+
+    @Test
+    void truncateBeforeDropsWholeSegmentsOnly() throws IOException {
+        try (SegmentedMessageLog log = new SegmentedMessageLog(dir, SEGMENT_BYTES)) {
+            for (int i = 0; i < 500; i++) log.append(msg(i));
+            int first = log.truncateBefore(250);
+
+            assertTrue(first > 0 && first <= 250, "first index " + first);
+            assertEquals(first, log.firstIndex());
+            assertEquals("m" + first, log.read(first).getMessageId());
+            assertEquals(500, log.endIndex());
+        }
+    }
+
+    @Test
+    void rejectsOversizeRecordsAndAppendsAfterClose() throws IOException {
+        SegmentedMessageLog log = new SegmentedMessageLog(dir, SEGMENT_BYTES);
+        Message huge = new TextMessage("big", "u", "c", "x".repeat(SEGMENT_BYTES), LocalDateTime.now(), false);
+        assertThrows(IllegalArgumentException.class, () -> log.append(huge));
+        assertEquals(0, log.size());
+
+        log.close();
+        log.close();   // idempotent
+        assertThrows(IOException.class, () -> log.append(msg(0)));
+    }
+
+    private static List<String> ids(List<Message> messages) {
+        List<String> out = new ArrayList<>();
+        for (Message m : messages) out.add(m.getMessageId());
+        return out;
+    }
+}
@@ -0,0 +1,115 @@
+package com.unified.server;
+
+import com.unified.server.AdaptiveLimiter.Permit;
+import com.unified.server.AdaptiveLimiter.Priority;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveLimiterTest {
+
+    /** Longer than the minimum spacing between cuts. */
+    private static final long PAST_CUT_INTERVAL_MS = AdaptiveLimiter.MIN_CONGESTED_NANOS / 1_000_000 + 20;
+
+    private static int limit(AdaptiveLimiter l) {
+        return (Integer) l.metrics().get("limit");
+    }
+
+    private static List<Permit> acquireAll(AdaptiveLimiter l, Priority p) {
+        List<Permit> out = new ArrayList<>();
+        for (Permit permit; (permit = l.tryAcquire(p)) != null; ) out.add(permit);
+        return out;
+    }
+
+    @Test
+    void prioritiesGetTheirShareOfTheLimit() {
+        AdaptiveLimiter l = new AdaptiveLimiter(10, 2, 100);
+
+        List<Permit> low = acquireAll(l, Priority.LOW);
+        assertEquals(5, low.size());
+        List<Permit> normal = acquireAll(l, Priority.NORMAL);
+        assertEquals(3, normal.size());
+        List<Permit> critical = acquireAll(l, Priority.CRITICAL);
+        assertEquals(2, critical.size());
+
+        assertNull(l.tryAcquire(Priority.NORMAL));
+        low.forEach(Permit::close);
+        normal.forEach(Permit::close);
+        critical.forEach(Permit::close);
+        assertNotNull(l.tryAcquire(Priority.LOW));
+    }
+
+    @Test
+    void failureCutsTheLimitOncePerInterval() throws InterruptedException {
+        AdaptiveLimiter l = new AdaptiveLimiter(20, 4, 100);
+        Thread.sleep(PAST_CUT_INTERVAL_MS);
+
+        for (int i = 0; i < 3; i++) {
+            Permit p = l.tryAcquire(Priority.NORMAL);
+            p.failed();
+            p.close();
+        }
+        assertEquals(15, limit(l));
+        assertEquals(1L, l.metrics().get("cuts"));
+    }
+
+    @Test
+    void slowCallsCutButIgnoredLatencyDoesNot() throws InterruptedException {
+        AdaptiveLimiter l = new AdaptiveLimiter(20, 4, 100);
+        for (int i = 0; i < 10; i++) l.tryAcquire(Priority.NORMAL).close();   // fast baseline
+
+        Permit streaming = l.tryAcquire(Priority.LOW);
+        streaming.ignoreLatency();
+        Thread.sleep(PAST_CUT_INTERVAL_MS);
+        streaming.close();
+        assertEquals(20, limit(l));
+
+        Permit slow = l.tryAcquire(Priority.NORMAL);
+        Thread.sleep(PAST_CUT_INTERVAL_MS);
+        slow.close();
+        assertEquals(15, limit(l));
+    }
+
+    @Test
+    void limitNeverDropsBelowMinimum() throws InterruptedException {
+        AdaptiveLimiter l = new AdaptiveLimiter(8, 4, 100);
+        for (int i = 0; i < 3; i++) {
+            Thread.sleep(PAST_CUT_INTERVAL_MS);
+            Permit p = l.tryAcquire(Priority.CRITICAL);
+            p.failed();
+            p.close();
+        }
+        assertEquals(4, limit(l));
+        assertEquals(4, acquireAll(l, Priority.CRITICAL).size());
+    }
+
+    @Test
+    void growsOnlyWhileTheLimitIsInUse() {
+        AdaptiveLimiter idle = new AdaptiveLimiter(10, 1, 100);
+        for (int i = 0; i < 500; i++) idle.tryAcquire(Priority.NORMAL).close();
+        assertEquals(10, limit(idle));
+
+        AdaptiveLimiter busy = new AdaptiveLimiter(10, 1, 12);
+        for (int round = 0; round < 100; round++) acquireAll(busy, Priority.CRITICAL).forEach(Permit::close);
+        assertEquals(12, limit(busy));
+    }
+
+    @Test
+    void callShedsWhenFullAndPassesBadArgumentsThrough() throws Exception {
+        AdaptiveLimiter l = new AdaptiveLimiter(2, 1, 100);
+        assertEquals("ok", l.call(Priority.NORMAL, () -> "ok"));
+
+        Permit held = l.tryAcquire(Priority.LOW);
+        assertThrows(AdaptiveLimiter.Overloaded.class, () -> l.call(Priority.LOW, () -> "shed"));
+        held.close();
+
+        Thread.sleep(PAST_CUT_INTERVAL_MS);
+        assertThrows(IllegalArgumentException.class, () -> l.call(Priority.NORMAL, () -> {
+            throw new IllegalArgumentException("bad id");
+        }));
+        assertEquals(0L, l.metrics().get("cuts"), "caller errors are not congestion");
+    }
+}
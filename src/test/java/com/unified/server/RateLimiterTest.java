@@ -0,0 +1,81 @@
+package com.unified.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+
+    private static final String UNSET = "UNIFIED_TEST_RATE_LIMIT_NOT_SET";
+
+    @Test
+    void allowsBurstThenReportsWait() {
+        RateLimiter limiter = new RateLimiter("test", 2, 3);
+        for (int i = 0; i < 3; i++) assertEquals(0, limiter.tryAcquire("k"));
+
+        long wait = limiter.tryAcquire("k");
+        assertTrue(wait > 0 && wait <= TimeUnit.MILLISECONDS.toNanos(500), "wait " + wait);
+        assertEquals(3L, limiter.metrics().get("allowed"));
+        assertEquals(1L, limiter.metrics().get("limited"));
+    }
+
+    @Test
+    void refillsWithElapsedTime() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter("test", 100, 1);
+        assertEquals(0, limiter.tryAcquire("k"));
+        assertTrue(limiter.tryAcquire("k") > 0);
+
+        Thread.sleep(30);
+        assertEquals(0, limiter.tryAcquire("k"));
+    }
+
+    @Test
+    void keysAreIndependent() {
+        RateLimiter limiter = new RateLimiter("test", 0.01, 1);
+        assertEquals(0, limiter.tryAcquire("a"));
+        assertTrue(limiter.tryAcquire("a") > 0);
+
+        assertEquals(0, limiter.tryAcquire("b"));
+        assertEquals(0, limiter.tryAcquire(null));
+    }
+
+    @Test
+    void sweepEvictsRefilledIdleBuckets() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter("test", 1000, 1);   // a bucket is full again after 1 ms
+        int hotStripe = stripe("idle-0");
+        String hot = "hot";
+        for (int j = 0; stripe(hot) != hotStripe; j++) hot = "hot-" + j;   // share a stripe with idle keys
+        int idleInHotStripe = 0;
+        for (int i = 0; i < 500; i++) {
+            String key = "idle-" + i;
+            limiter.tryAcquire(key);
+            if (stripe(key) == hotStripe) idleInHotStripe++;
+        }
+        assertTrue(idleInHotStripe > 0);
+        assertEquals(500, limiter.metrics().get("keys"));
+
+        Thread.sleep(20);
+        for (int i = 0; i < RateLimiter.SWEEP_EVERY; i++) limiter.tryAcquire(hot);
+
+        assertEquals((long) idleInHotStripe, limiter.metrics().get("evicted"));
+        assertEquals(500 - idleInHotStripe + 1, limiter.metrics().get("keys"));
+    }
+
+    @Test
+    void parsesSpecsAndCanBeTurnedOff() {
+        assertNull(RateLimiter.fromEnvironment("off", UNSET, "off"));
+
+        RateLimiter limiter = RateLimiter.fromEnvironment("spec", UNSET, "0.5:10");
+        assertEquals(10, limiter.metrics().get("burst"));
+        assertEquals(0.5, (Double) limiter.metrics().get("permitsPerSecond"), 1e-9);
+
+        assertEquals(3, RateLimiter.fromEnvironment("spec", UNSET, "2.5").metrics().get("burst"));
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter("bad", 0, 1));
+    }
+
+    private static int stripe(String key) {
+        return (key.hashCode() & 0x7fffffff) % RateLimiter.STRIPES;
+    }
+}
@@ -0,0 +1,92 @@
+package com.unified.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionTokensTest {
+
+    private static byte[] key(int fill) {
+        byte[] k = new byte[32];
+        Arrays.fill(k, (byte) fill);
+        return k;
+    }
+
+    private final SessionTokens tokens = new SessionTokens(key(1), Duration.ofHours(1));
+
+    @Test
+    void issuedTokenVerifiesWithItsClaims() {
+        long before = System.currentTimeMillis();
+        SessionTokens.Claims c = tokens.verify(tokens.issue("user-42"));
+
+        assertNotNull(c);
+        assertEquals("user-42", c.userId);
+        assertNotNull(c.tokenId);
+        assertTrue(c.expiresAtMillis >= before + Duration.ofHours(1).toMillis());
+    }
+
+    @Test
+    void tokensAreUnique() {
+        assertNotEquals(tokens.verify(tokens.issue("u")).tokenId, tokens.verify(tokens.issue("u")).tokenId);
+    }
+
+    @Test
+    void forgedTokensAreRejected() {
+        String token = tokens.issue("alice");
+        int dot = token.lastIndexOf('.');
+        String payload = token.substring(0, dot);
+        String sig = token.substring(dot + 1);
+
+        // Same signature over a payload naming someone else
+        String decoded = new String(Base64.getUrlDecoder().decode(payload), StandardCharsets.UTF_8);
+        String mallory = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(decoded.replace("alice", "admin").getBytes(StandardCharsets.UTF_8));
+        assertNull(tokens.verify(mallory + "." + sig));
+
+        // Flipped signature bit
+        char last = sig.charAt(0);
+        assertNull(tokens.verify(payload + "." + (last == 'A' ? 'B' : 'A') + sig.substring(1)));
+
+        // Signed with another key
+        assertNull(tokens.verify(new SessionTokens(key(2), Duration.ofHours(1)).issue("alice")));
+    }
+
+    @Test
+    void malformedTokensAreRejected() {
+        assertNull(tokens.verify(null));
+        assertNull(tokens.verify(""));
+        assertNull(tokens.verify("no-dot"));
+        assertNull(tokens.verify(".sig"));
+        assertNull(tokens.verify("!!!.???"));
+    }
+
+    @Test
+    void expiredTokensAreRejected() {
+        SessionTokens instant = new SessionTokens(key(1), Duration.ZERO);
+
+        assertNull(instant.verify(instant.issue("bob")));
+    }
+
+    @Test
+    void revokedTokensStayRejected() {
+        String token = tokens.issue("carol");
+        String other = tokens.issue("carol");
+
+        assertTrue(tokens.revoke(token));
+        assertNull(tokens.verify(token));
+        assertFalse(tokens.revoke(token));
+        assertNotNull(tokens.verify(other), "revoking one session leaves the others");
+        assertEquals(1, tokens.metrics().get("revoked"));
+    }
+
+    @Test
+    void shortKeysAreRefused() {
+        assertThrows(IllegalArgumentException.class, () -> new SessionTokens(new byte[16], Duration.ofHours(1)));
+        assertThrows(IllegalArgumentException.class, () -> new SessionTokens(null, Duration.ofHours(1)));
+    }
+}
@@ -0,0 +1,117 @@
+package com.unified.server;
+
+import com.unified.server.SubscriptionBroker.Batch;
+import com.unified.server.SubscriptionBroker.OverflowPolicy;
+import com.unified.server.SubscriptionBroker.Subscription;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SubscriptionBrokerTest {
+
+    private final SubscriptionBroker broker = new SubscriptionBroker();
+
+    private void publish(String channelId, int from, int to) {
+        for (int i = from; i < to; i++) broker.publish(channelId, i);
+    }
+
+    @Test
+    void deliversOnlySubscribedChannelsInOrder() throws InterruptedException {
+        Subscription s = broker.subscribe("u", List.of("a", "b"), 16, OverflowPolicy.DROP_OLDEST);
+        broker.publish("a", 1);
+        broker.publish("x", 2);
+        broker.publish("b", 3);
+
+        Batch batch = s.poll(10, 0);
+        assertEquals(List.of(1, 3), batch.events);
+        assertFalse(batch.resync);
+        assertFalse(batch.closed);
+    }
+
+    @Test
+    void dropOldestKeepsTheNewestEvents() throws InterruptedException {
+        Subscription s = broker.subscribe("u", List.of("a"), 4, OverflowPolicy.DROP_OLDEST);
+        publish("a", 0, 10);
+
+        assertEquals(4, s.lag());
+        assertEquals(List.of(6, 7, 8, 9), s.poll(10, 0).events);
+        assertEquals(6L, s.metrics().get("dropped"));
+    }
+
+    @Test
+    void resyncDiscardsBacklogAndFlagsNextPoll() throws InterruptedException {
+        Subscription s = broker.subscribe("u", List.of("a"), 4, OverflowPolicy.RESYNC);
+        publish("a", 0, 6);
+
+        Batch batch = s.poll(10, 0);
+        assertTrue(batch.resync);
+        assertEquals(List.of(4, 5), batch.events);
+        assertFalse(s.poll(10, 0).resync);
+        assertEquals(1L, s.metrics().get("resyncs"));
+    }
+
+    @Test
+    void disconnectClosesAndUnsubscribes() throws InterruptedException {
+        Subscription s = broker.subscribe("u", List.of("a"), 2, OverflowPolicy.DISCONNECT);
+        publish("a", 0, 2);
+        broker.publish("a", 2);
+
+        assertNull(broker.get(s.getId()));
+        assertEquals(List.of(0, 1), s.poll(10, 0).events);
+        assertTrue(s.poll(10, 0).closed);
+        assertEquals(0, broker.publish("a", 3));
+    }
+
+    @Test
+    void capacityIsClamped() {
+        Subscription big = broker.subscribe("u", List.of("a"), 1_000_000, null);
+        Subscription tiny = broker.subscribe("u", List.of("a"), 0, null);
+
+        assertEquals(SubscriptionBroker.MAX_CAPACITY, big.metrics().get("capacity"));
+        assertEquals(1, tiny.metrics().get("capacity"));
+        assertEquals(OverflowPolicy.DROP_OLDEST.name(), big.metrics().get("policy"));
+    }
+
+    @Test
+    void metricsNeverExposeSubscriptionIds() {
+        Subscription s = broker.subscribe("alice", List.of("a"), 8, null);
+        publish("a", 0, 3);
+
+        String dump = broker.metrics().toString();
+        assertFalse(dump.contains(s.getId()));
+        assertFalse(dump.contains("alice"));
+        assertEquals(3L, broker.metrics().get("totalLag"));
+    }
+
+    @Test
+    void pollWakesOnPublishAndTimesOutWhenIdle() throws InterruptedException {
+        Subscription s = broker.subscribe("u", List.of("a"), 8, null);
+        long start = System.nanoTime();
+        assertTrue(s.poll(10, 50).events.isEmpty());
+        assertTrue(System.nanoTime() - start >= 40_000_000L);
+
+        Thread publisher = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ignored) {
+                return;
+            }
+            broker.publish("a", "late");
+        });
+        publisher.start();
+        assertEquals(List.of("late"), s.poll(10, 5_000).events);
+        publisher.join();
+    }
+
+    @Test
+    void reapIdleClosesSubscriptionsThatStoppedPolling() throws InterruptedException {
+        Subscription s = broker.subscribe("u", List.of("a"), 8, null);
+        Thread.sleep(20);
+
+        assertEquals(1, broker.reapIdle(10));
+        assertNull(broker.get(s.getId()));
+        assertTrue(s.poll(10, 0).closed);
+    }
+}
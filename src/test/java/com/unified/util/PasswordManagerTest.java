@@ -0,0 +1,80 @@
+package com.unified.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordManagerTest {
+
+    private int savedIterations;
+
+    @BeforeEach
+    void cheapHashes() {
+        savedIterations = PasswordManager.getIterations();
+        PasswordManager.setIterations(PasswordManager.MIN_ITERATIONS);
+    }
+
+    @AfterEach
+    void restore() {
+        PasswordManager.setIterations(savedIterations);
+    }
+
+    /** The salt:base64(sha256(salt + password)) format written before PBKDF2. */
+    private static String legacyHash(String salt, String password) throws Exception {
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest((salt + password).getBytes(StandardCharsets.UTF_8));
+        return salt + ":" + Base64.getEncoder().encodeToString(digest);
+    }
+
+    @Test
+    void hashesVerifyAndAreSalted() {
+        String a = PasswordManager.hashPassword("correct horse");
+        String b = PasswordManager.hashPassword("correct horse");
+
+        assertTrue(a.startsWith(PasswordManager.ALGORITHM_ID + "$" + PasswordManager.MIN_ITERATIONS + "$"));
+        assertNotEquals(a, b);
+        assertTrue(PasswordManager.verifyPassword("correct horse", a));
+        assertFalse(PasswordManager.verifyPassword("correct horse!", a));
+    }
+
+    @Test
+    void verifiesLegacyHashes() throws Exception {
+        String legacy = legacyHash("c2FsdHNhbHQ=", "hunter2");
+
+        assertTrue(PasswordManager.verifyPassword("hunter2", legacy));
+        assertFalse(PasswordManager.verifyPassword("hunter3", legacy));
+    }
+
+    @Test
+    void rejectsMalformedInput() {
+        assertFalse(PasswordManager.verifyPassword("x", null));
+        assertFalse(PasswordManager.verifyPassword(null, PasswordManager.hashPassword("x")));
+        assertFalse(PasswordManager.verifyPassword("x", "no-separator"));
+        assertFalse(PasswordManager.verifyPassword("x", PasswordManager.ALGORITHM_ID + "$10000$%%%$%%%"));
+        assertFalse(PasswordManager.verifyPassword("x", PasswordManager.ALGORITHM_ID + "$1$2"));
+    }
+
+    @Test
+    void needsRehashForLegacyAndCheaperHashes() throws Exception {
+        String current = PasswordManager.hashPassword("pw");
+        assertFalse(PasswordManager.needsRehash(current));
+        assertTrue(PasswordManager.needsRehash(legacyHash("salt", "pw")));
+        assertTrue(PasswordManager.needsRehash(null));
+        assertTrue(PasswordManager.needsRehash(PasswordManager.ALGORITHM_ID + "$many$a$b"));
+
+        PasswordManager.setIterations(PasswordManager.MIN_ITERATIONS * 2);
+        assertTrue(PasswordManager.needsRehash(current));
+        assertTrue(PasswordManager.verifyPassword("pw", current), "older cost still verifies");
+    }
+
+    @Test
+    void iterationsHaveAFloor() {
+        PasswordManager.setIterations(1);
+        assertEquals(PasswordManager.MIN_ITERATIONS, PasswordManager.getIterations());
+    }
+}
@@ -0,0 +1,81 @@
+package com.unified.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrefixTrieTest {
+
+    @Test
+    void matchesPrefixCaseInsensitivelyShortestKeysFirst() {
+        PrefixTrie<String> trie = new PrefixTrie<>();
+        trie.put("Algorithms", "algo");
+        trie.put("alg", "short");
+        trie.put("Biology", "bio");
+
+        assertEquals(List.of("short", "algo"), trie.startingWith("AL", 10));
+        assertEquals(List.of("bio"), trie.startingWith("bio", 10));
+        assertTrue(trie.startingWith("chem", 10).isEmpty());
+    }
+
+    @Test
+    void limitAndDuplicateValuesAreRespected() {
+        PrefixTrie<Integer> trie = new PrefixTrie<>();
+        for (int i = 0; i < 50; i++) trie.put("key" + i, i);
+        trie.put("keyword", 7);   // same value under a second key
+
+        assertEquals(5, trie.startingWith("key", 5).size());
+        List<Integer> all = trie.startingWith("key", 100);
+        assertEquals(50, all.size());
+        assertEquals(all.size(), all.stream().distinct().count());
+    }
+
+    @Test
+    void blankPrefixMatchesEverything() {
+        PrefixTrie<String> trie = new PrefixTrie<>();
+        trie.put("a", "1");
+        trie.put("b", "2");
+
+        assertEquals(2, trie.startingWith("", 10).size());
+        assertEquals(2, trie.startingWith(null, 10).size());
+    }
+
+    @Test
+    void removePrunesOnlyTheGivenValue() {
+        PrefixTrie<String> trie = new PrefixTrie<>();
+        trie.put("course", "c1");
+        trie.put("course", "c2");
+        trie.put("courseware", "c3");
+        assertEquals(3, trie.size());
+
+        assertTrue(trie.remove("COURSE", "c1"));
+        assertFalse(trie.remove("course", "c1"));
+        assertFalse(trie.remove("cour", "c2"));
+        assertEquals(List.of("c2", "c3"), trie.startingWith("cour", 10));
+
+        assertTrue(trie.remove("courseware", "c3"));
+        assertTrue(trie.remove("course", "c2"));
+        assertEquals(0, trie.size());
+        assertTrue(trie.startingWith("c", 10).isEmpty());
+    }
+
+    @Test
+    void forEachStartingWithVisitsEveryMatchOncePerKey() {
+        PrefixTrie<String> trie = new PrefixTrie<>();
+        trie.put("data structures", "ds");
+        trie.put("data", "ds");
+        trie.put("databases", "db");
+        trie.put("design", "des");
+
+        List<String> seen = new ArrayList<>();
+        trie.forEachStartingWith("dat", seen::add);
+
+        assertEquals(3, seen.size());
+        assertEquals(2, seen.stream().filter("ds"::equals).count());
+        assertTrue(seen.contains("db"));
+        trie.forEachStartingWith("x", v -> fail("unexpected " + v));
+    }
+}